@@ -0,0 +1,39 @@
+package info.sollie.db;
+
+import info.sollie.db.annotations.ForeignKey;
+import info.sollie.db.annotations.ManyToMany;
+import info.sollie.db.annotations.OneToMany;
+
+/**
+ * How the {@link ForeignKey}, {@link OneToMany} and {@link ManyToMany} fields of a object is created when it is
+ * read from the database.
+ * 
+ * @author Andre Sollie
+ *
+ */
+public enum FetchMode {
+
+	/**
+	 * The relations is not read. A ForeignKey is a object with only the ID set. Same as follow false.
+	 */
+	NONE,
+
+	/**
+	 * The relations is read together with the objects. Same as follow true.
+	 */
+	EAGER,
+
+	/**
+	 * A OneToMany or ManyToMany field gets a list that is read from the database the first time it is used. A 
+	 * ForeignKey is a object with only the ID set, call {@link info.sollie.db.interfaces.Retrievable#populateObject(boolean)}
+	 * to read it. If the field cannot contain a lazy list the relation is read together with the object.
+	 */
+	LAZY;
+
+	/**
+	 * @return the mode for the follow flag.
+	 */
+	public static FetchMode of(final boolean follow) {
+		return follow ? EAGER : NONE;
+	}
+}
@@ -0,0 +1,134 @@
+package info.sollie.db;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import info.sollie.db.annotations.ForeignKey;
+import info.sollie.db.annotations.ManyToMany;
+import info.sollie.db.annotations.OneToMany;
+
+/**
+ * Names the relations that is read together with a object, and how they are read. A relation is named with a path
+ * of field names from the class that is read, as "customer" or "lines.product". The relations that is not in the 
+ * plan is not read, so a {@link ForeignKey} is a object with only the ID and a {@link OneToMany} or 
+ * {@link ManyToMany} list is null.
+ * 
+ * <pre>
+ * FetchPlan plan = new FetchPlan().add("customer", Strategy.JOIN).add("lines.product");
+ * List&lt;Order&gt; orders = databaseTool.getObjects(Order.class, plan, "WHERE t0.Status = ?", status);
+ * </pre>
+ * 
+ * @author Andre Sollie
+ *
+ */
+public final class FetchPlan {
+
+	/**
+	 * How a relation is read.
+	 */
+	public enum Strategy {
+
+		/**
+		 * Read the ForeignKey with a LEFT JOIN in the same query as the object. Only used for ForeignKey fields of 
+		 * the class that is read, when the SQL is generated. In other cases it is read as {@link #BATCH}.
+		 */
+		JOIN,
+
+		/**
+		 * Read the relation for every object in the result with IN queries.
+		 */
+		BATCH,
+
+		/**
+		 * Read the relation the first time it is used, as {@link FetchMode#LAZY}. The relations under it in the 
+		 * plan is not read.
+		 */
+		LAZY
+	}
+
+	private final Map<String, Strategy> strategies = new LinkedHashMap<String, Strategy>();
+
+	private final Map<String, FetchPlan> plans = new LinkedHashMap<String, FetchPlan>();
+
+	/**
+	 * Add a relation that is read with {@link Strategy#BATCH}.
+	 * 
+	 * @param path of field names separated by dot.
+	 * @return this plan.
+	 */
+	public FetchPlan add(final String path) {
+		return this.add(path, Strategy.BATCH);
+	}
+
+	/**
+	 * Add a relation. The relations in the path that is not in the plan is added with {@link Strategy#BATCH}.
+	 * 
+	 * @param path of field names separated by dot.
+	 * @param strategy of the last relation in the path.
+	 * @return this plan.
+	 */
+	public FetchPlan add(final String path, final Strategy strategy) {
+		if (path == null || path.length() == 0) {
+			throw new IllegalArgumentException("Path cannot be empty.");
+		}
+		int dot = path.indexOf('.');
+		if (dot < 0) {
+			this.strategies.put(path, strategy);
+			return this;
+		}
+		String name = path.substring(0, dot);
+		if (!this.strategies.containsKey(name)) {
+			this.strategies.put(name, Strategy.BATCH);
+		}
+		FetchPlan plan = this.plans.get(name);
+		if (plan == null) {
+			plan = new FetchPlan();
+			this.plans.put(name, plan);
+		}
+		plan.add(path.substring(dot + 1), strategy);
+		return this;
+	}
+
+	/**
+	 * @return the names of the fields that is read, in the order they was added.
+	 */
+	public Set<String> getNames() {
+		return Collections.unmodifiableSet(this.strategies.keySet());
+	}
+
+	/**
+	 * @param name of a field.
+	 * @return how the field is read or null if it is not read.
+	 */
+	@Nullable
+	public Strategy getStrategy(final String name) {
+		return this.strategies.get(name);
+	}
+
+	/**
+	 * @param name of a field.
+	 * @return the plan for the objects in the field or null if no relations under it is read.
+	 */
+	@Nullable
+	public FetchPlan getPlan(final String name) {
+		return this.plans.get(name);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder(64);
+		for (Map.Entry<String, Strategy> entry : this.strategies.entrySet()) {
+			if (result.length() > 0) {
+				result.append(", ");
+			}
+			result.append(entry.getKey()).append('=').append(entry.getValue());
+			FetchPlan plan = this.plans.get(entry.getKey());
+			if (plan != null) {
+				result.append(" {").append(plan).append('}');
+			}
+		}
+		return result.toString();
+	}
+}
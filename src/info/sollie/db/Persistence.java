@@ -8,6 +8,7 @@ import java.io.Serializable;
 
 import info.sollie.db.interfaces.Retrievable;
 import info.sollie.db.interfaces.Writeable;
+import info.sollie.db.mssql.SqlGenerator;
 import info.sollie.db.store.PersistentStore;
 import info.sollie.db.store.PersistentStores;
 
@@ -30,6 +31,12 @@ Comparable<E>  {
 	private static final Logger logger = Logger.getLogger(Persistence.class);
 	
 	private static final PersistentStore mssqlStore = PersistentStores.getMssqlStore(); 
+
+	/** Values of the columns when the object was read or stored. Null if it is not known. */
+	private transient Object[] snapshot;
+
+	/** The id is given by {@link info.sollie.db.mssql.IDAllocator} and the object is not inserted yet. */
+	private transient boolean allocated;
 	
 	public Persistence (int id) {
 		this.setID(id);
@@ -60,6 +67,51 @@ Comparable<E>  {
 		}
 	}
 	
+	/**
+	 * Remember the values of the columns as the values in the database. It is called when the object is read or 
+	 * stored. A update only writes the columns that is changed after this.
+	 */
+	public final void markClean() {
+		this.snapshot = SqlGenerator.snapshot(this);
+		this.allocated = false;
+	}
+
+	/**
+	 * @return true if the id is given by {@link info.sollie.db.mssql.IDAllocator} and the object is not inserted yet.
+	 */
+	public final boolean isAllocated() {
+		return this.allocated;
+	}
+
+	/**
+	 * @param allocated true when the id is given before the object is inserted. It is set by 
+	 * {@link info.sollie.db.mssql.IDAllocator}.
+	 */
+	public final void setAllocated(final boolean allocated) {
+		this.allocated = allocated;
+	}
+
+	/**
+	 * Forget the values in the database, so the next update writes every column.
+	 */
+	public final void markDirty() {
+		this.snapshot = null;
+	}
+
+	/**
+	 * @return true if a column is changed after the object was read or stored, or if it is not known.
+	 */
+	public final boolean isDirty() {
+		return this.snapshot == null || SqlGenerator.getDirtyTemplate(this, this.snapshot) != null;
+	}
+
+	/**
+	 * @return the values of the columns when the object was read or stored, or null if it is not known.
+	 */
+	public final Object[] getSnapshot() {
+		return this.snapshot;
+	}
+
 	/**
 	 * @param follow is ignored.
 	 */
@@ -0,0 +1,39 @@
+package info.sollie.db.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to give new objects of a class a id before they is inserted, from blocks of ids that is reserved in the 
+ * database. The primary key of the table must not be a identity column. The class must extend 
+ * {@link info.sollie.db.Persistence}.
+ * 
+ * @author Andre Sollie
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface AllocatedID {
+
+	/**
+	 * @return number of ids in every block.
+	 */
+	int blockSize() default 100;
+
+	/**
+	 * A sequence to reserve the blocks from. The sequence must increment by the block size. If it is empty, the 
+	 * blocks is reserved in the allocation table.
+	 * 
+	 * @return the name of the sequence.
+	 */
+	String sequence() default "";
+
+	/**
+	 * A table with the columns Name and NextID. The row of the class is named as the table of the class, and is 
+	 * created after the highest id in the table when it is missing.
+	 * 
+	 * @return the name of the allocation table.
+	 */
+	String table() default "IDAllocation";
+}
@@ -7,6 +7,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 
+import info.sollie.db.FetchMode;
 import info.sollie.db.interfaces.Retrievable;
 import info.sollie.db.interfaces.Retriver;
 
@@ -30,7 +31,11 @@ public class AnnotationObjectHandler<T extends Retrievable> implements ResultSet
 	private final Class<T> clazz;
 	
 	public AnnotationObjectHandler(final Class<T> type, final boolean follow, Retriver retriver) {
-		this.resultSetHandler = new AnnotationObjectListHandler<T>(type, follow, retriver);
+		this(type, FetchMode.of(follow), retriver);
+	}
+
+	public AnnotationObjectHandler(final Class<T> type, final FetchMode mode, Retriver retriver) {
+		this.resultSetHandler = new AnnotationObjectListHandler<T>(type, mode, retriver);
 		this.retriver = retriver;
 		this.clazz = type;
 	}
@@ -3,31 +3,31 @@
  */
 package info.sollie.db.handlers;
 
-import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
+import info.sollie.db.FetchMode;
 import info.sollie.db.Nullable;
-import info.sollie.db.annotations.BigInt;
-import info.sollie.db.annotations.Clob;
-import info.sollie.db.annotations.DBBoolean;
-import info.sollie.db.annotations.DBDouble;
-import info.sollie.db.annotations.DBInteger;
-import info.sollie.db.annotations.Decimal;
+import info.sollie.db.Persistence;
 import info.sollie.db.annotations.ForeignKey;
 import info.sollie.db.annotations.ManyToMany;
-import info.sollie.db.annotations.Numeric;
 import info.sollie.db.annotations.OneToMany;
-import info.sollie.db.annotations.Real;
-import info.sollie.db.annotations.Timestamp;
-import info.sollie.db.annotations.Varchar;
 import info.sollie.db.interfaces.Retrievable;
 import info.sollie.db.interfaces.Retriver;
+import info.sollie.db.mapping.Accessors;
+import info.sollie.db.mapping.ClassMappings;
+import info.sollie.db.mapping.ColumnType;
+import info.sollie.db.mapping.FieldMapping;
+import info.sollie.db.mapping.GeneratedMapping;
+import info.sollie.db.mapping.GeneratedMappings;
+import info.sollie.db.mapping.RelationMapping;
+import info.sollie.db.mapping.RowPlan;
+import info.sollie.db.store.IdentityMap;
 
 import org.apache.commons.dbutils.ResultSetHandler;
 import org.apache.log4j.Logger;
@@ -46,13 +46,33 @@ public class AnnotationObjectListHandler<T extends Retrievable> implements Resul
 
 	private boolean follow;
 
+	private final FetchMode mode;
+
 	private final Retriver retriver;
 
 	private T t;
 
+	/** Plan for the result set that is handled. */
+	private RowPlan plan;
+
+	private ResultSet planResultSet;
+
+	private Class<?> planType;
+
+	/** Generated mapping for the type of the plan. Null if it is mapped with reflection. */
+	private GeneratedMapping<Object> generated;
+
+	/** Field codes of the generated mapping for the result set that is handled. */
+	private int[] generatedColumns;
+
 	public AnnotationObjectListHandler(final Class<T> type, final boolean follow, Retriver retriver) {
+		this(type, FetchMode.of(follow), retriver);
+	}
+
+	public AnnotationObjectListHandler(final Class<T> type, final FetchMode mode, Retriver retriver) {
 		this.type = type;
-		this.follow = follow;
+		this.follow = mode == FetchMode.EAGER;
+		this.mode = mode;
 		this.retriver = retriver;
 		this.t = null;
 	}
@@ -61,6 +81,7 @@ public class AnnotationObjectListHandler<T extends Retrievable> implements Resul
 	public AnnotationObjectListHandler(final T t, final boolean follow, Retriver retriver) {
 		this.type =  (Class<T>) t.getClass();
 		this.follow = follow;
+		this.mode = FetchMode.of(follow);
 		this.retriver = retriver;
 		this.t = t;
 	}
@@ -68,14 +89,29 @@ public class AnnotationObjectListHandler<T extends Retrievable> implements Resul
 	@Override
 	public List<T> handle(final ResultSet resultSet) throws SQLException {
 		List<T> list = new ArrayList<T>(50);
+		IdentityMap identities = IdentityMap.current();
 		while(resultSet.next()) {
-			if (this.t == null) {
+			boolean given = this.t != null;
+			if (!given) {
 				this.t = this.createInstance(type);
 			}
-			t = this.createObject(resultSet, t, follow);
+			t = this.createObject(resultSet, t, false);
+			if (identities != null) {
+				if (given) {
+					identities.put(t);
+				} else {
+					t = identities.register(t);
+				}
+			}
 			list.add(t);
 			t = null;
 		}
+		if (follow) {
+			this.createForeignObjects(list);
+			this.createObjectsFromRelations(list);
+		} else if (this.mode == FetchMode.LAZY) {
+			this.createLazyRelations(list);
+		}
 		return list;
 	}
 
@@ -86,7 +122,8 @@ public class AnnotationObjectListHandler<T extends Retrievable> implements Resul
 		}
 		E e = null;
 		try {
-			e = clazz.newInstance();
+			GeneratedMapping<E> mapping = GeneratedMappings.get(clazz);
+			e = mapping != null ? mapping.newInstance() : Accessors.newInstance(clazz);
 		} catch (IllegalAccessException e1) {
 			logger.error("Could not create a new instance of class :" + clazz.getSimpleName() , e1);
 		} catch (InstantiationException e1) {
@@ -107,6 +144,9 @@ public class AnnotationObjectListHandler<T extends Retrievable> implements Resul
 	public final <E extends Retrievable> E createObject(ResultSet resultSet, E e, boolean follow) {
 		try {
 			this.createObjectFromDatabase(resultSet, e, follow);
+			if (e instanceof Persistence) {
+				((Persistence<?>) e).markClean();
+			}
 			if (follow) {
 				this.createObjectFromRelations(e);
 			}
@@ -124,83 +164,135 @@ public class AnnotationObjectListHandler<T extends Retrievable> implements Resul
 
 
 	/**
-	 * Method for creating relations between OneToMany and ManyToMany relations between objects. It will look for 
-	 * right annotation and if found. This relation will be created as a List.
+	 * Load the {@link ForeignKey} objects of every object in the list. The objects only have the ID of the foreign 
+	 * objects set. Each field is loaded with one IN query for every chunk of different IDs, 
+	 * instead of one query for every row.
 	 * 
-	 * @param <E> class that is retrievable.
-	 * @param e the object to create relation from. If it contains OneToMany relation and ManyToMany relation. 
-	 * @throws InstantiationException
-	 * @throws IllegalAccessException
+	 * @param list of objects created from the result set.
 	 */
-	public final <E> void createObjectFromRelations(E e) throws InstantiationException, IllegalAccessException {
-		for (Field field : e.getClass().getDeclaredFields()) {
-			field.setAccessible(true);
-			if (field.getType().equals(List.class)) {
-				for (Annotation annotation: field.getAnnotations()) {
+	protected final void createForeignObjects(List<T> list) {
+		if (list.isEmpty()) {
+			return;
+		}
+		for (FieldMapping mapping : ClassMappings.get(this.type).getFields()) {
+			if (mapping.getType() == ColumnType.FOREIGN_KEY) {
+				try {
+					retriver.setForeignObjects(mapping.getField(), list);
+				} catch (IllegalAccessException e1) {
+					logger.error("Could not create objects. IllegalAcces to a object : " + e1.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Create the {@link OneToMany} and {@link ManyToMany} relations of every object in the list. Each relation is
+	 * loaded for all the objects with one IN query for every chunk of IDs. The relations is loaded at the same 
+	 * time by the {@link RelationLoader}.
+	 * 
+	 * @param list of objects created from the result set.
+	 */
+	protected final void createObjectsFromRelations(final List<T> list) {
+		if (list.isEmpty()) {
+			return;
+		}
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (final RelationMapping relation : ClassMappings.get(this.type).getRelations()) {
+			final Annotation annotation = relation.getAnnotation();
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() throws IllegalAccessException {
 					if (annotation instanceof OneToMany) {
-						retriver.createObjectForOneToManyRelation(e, field, annotation);
+						retriver.createObjectsForOneToManyRelation(list, relation.getField(), annotation);
 					} else if (annotation instanceof ManyToMany) {
-						retriver.createObjectForManyToManyRelation(e, field, annotation); //FIXME: Must implement this one.
+						retriver.createObjectsForManyToManyRelation(list, relation.getField(), annotation);
 					}
+					return null;
 				}
-			}
+			});
+		}
+		try {
+			RelationLoader.getDefault().runAll(tasks);
+		} catch (IllegalAccessException e1) {
+			logger.error("Could not create objects. IllegalAcces to a object : " + e1.getMessage());
+		} catch (RuntimeException e1) {
+			throw e1;
+		} catch (Exception e1) {
+			logger.error("Could not create the relations of " + this.type.getSimpleName() + ". " + e1.getMessage());
 		}
 	}
 
 	/**
-	 * @param <E>
-	 * @param resultSet
-	 * @param e
-	 * @throws SQLException
+	 * Set a list that is read the first time it is used into every {@link OneToMany} and {@link ManyToMany} field.
+	 * 
+	 * @param list of objects created from the result set.
 	 */
-	public final <E extends Retrievable> void createObjectFromDatabase(ResultSet resultSet, E e, boolean follow) throws SQLException {
-		ResultSetMetaData resultSetMetaData = resultSet.getMetaData();
-		int columnCount = resultSetMetaData.getColumnCount();
-		Field[] fields = e.getClass().getDeclaredFields();
-
-		for (int i = 1; i <= columnCount; i++ ) {
-			String columnName = resultSetMetaData.getColumnName(i);
-			boolean found = this.setResultToField(resultSet, e, follow, fields, i, columnName);
-			Class<?> clazz =  e.getClass().getSuperclass();
-			if (!found && clazz != null && !clazz.equals(Object.class)) {
-				Field[] newFields = clazz.getDeclaredFields();
-				found = this.setResultToField(resultSet, e, follow, newFields, i, columnName);
+	protected final void createLazyRelations(List<T> list) {
+		List<RelationMapping> relations = ClassMappings.get(this.type).getRelations();
+		try {
+			for (T e : list) {
+				for (RelationMapping relation : relations) {
+					retriver.createLazyRelation(e, relation.getField(), relation.getAnnotation());
+				}
 			}
-			setValue(resultSet, e, follow, i, columnName, found, clazz);
+		} catch (IllegalAccessException e1) {
+			logger.error("Could not create objects. IllegalAcces to a object : " + e1.getMessage());
+		} catch (InstantiationException e1) {
+			logger.error("Could not create objects. Not possible to inizialise. " + e1.getMessage());
 		}
 	}
 
 	/**
-	 * Recursive set value if not found.
+	 * Method for creating relations between OneToMany and ManyToMany relations between objects. It will look for 
+	 * right annotation and if found. This relation will be created as a List.
 	 * 
+	 * @param <E> class that is retrievable.
+	 * @param e the object to create relation from. If it contains OneToMany relation and ManyToMany relation. 
+	 * @throws InstantiationException
+	 * @throws IllegalAccessException
 	 */
-	private <E extends Retrievable> void setValue(ResultSet resultSet, E e, boolean follow, int i, String columnName, boolean found, Class<?> clazz)
-			throws SQLException {
-		if (clazz != null) {
-			clazz = clazz.getSuperclass(); // Safe for nullpointer. But looks ugly.
-			if (!found && clazz != null && !clazz.equals(Object.class)) {
-				Field[] newFields = clazz.getDeclaredFields();
-				found = this.setResultToField(resultSet, e, follow, newFields, i, columnName);
-				if (!found) {
-					this.setValue(resultSet, e, follow, i, columnName, found, clazz);
-				}
+	public final <E> void createObjectFromRelations(E e) throws InstantiationException, IllegalAccessException {
+		for (RelationMapping relation : ClassMappings.get(e.getClass()).getRelations()) {
+			Annotation annotation = relation.getAnnotation();
+			if (annotation instanceof OneToMany) {
+				retriver.createObjectForOneToManyRelation(e, relation.getField(), annotation);
+			} else if (annotation instanceof ManyToMany) {
+				retriver.createObjectForManyToManyRelation(e, relation.getField(), annotation); //FIXME: Must implement this one.
 			}
 		}
 	}
 
-	
-	private <E extends Retrievable> boolean setResultToField(ResultSet resultSet, E e, boolean follow,
-			Field[] fields, int i, String columnName) throws SQLException {
-		for (Field field : fields) {
-			field.setAccessible(true);
-			if (columnName.equalsIgnoreCase(field.getName()) || this.isForeignKeyMatch(field, columnName)) {
-				Object object = resultSet.getObject(i);
-				this.setField(field, object, e, follow);
-				return true;
+	/**
+	 * Set the columns of the current row into the object. The columns is matched against the fields with a 
+	 * {@link RowPlan} that is only resolved once for each result set. If the class has a {@link GeneratedMapping}
+	 * it is used instead of reflection.
+	 * 
+	 * @param <E>
+	 * @param resultSet
+	 * @param e
+	 * @throws SQLException
+	 */
+	@SuppressWarnings("unchecked")
+	public final <E extends Retrievable> void createObjectFromDatabase(ResultSet resultSet, E e, boolean follow) throws SQLException {
+		if (this.planResultSet != resultSet || this.planType != e.getClass()) {
+			this.generated = GeneratedMappings.get((Class<Object>) (Class<?>) e.getClass());
+			if (this.generated != null) {
+				this.generatedColumns = this.generated.prepare(resultSet.getMetaData());
+				this.plan = null;
+			} else {
+				this.plan = ClassMappings.get(e.getClass()).getPlan(resultSet.getMetaData());
+				this.generatedColumns = null;
 			}
+			this.planResultSet = resultSet;
+			this.planType = e.getClass();
+		}
+		if (this.generated != null) {
+			this.generated.populate(resultSet, this.generatedColumns, e, follow, retriver);
+		} else {
+			this.plan.populate(resultSet, e, follow, retriver);
 		}
-		return false;
 	}
+
 	/**
 	 * Set a field into a object. It will do some tricks if the fields does not match each other. 
 	 * 
@@ -208,101 +300,17 @@ public class AnnotationObjectListHandler<T extends Retrievable> implements Resul
 	 * If the object is String field and the values in the database is of integer and long it will be converted to String.
 	 * If the object is in the database integer but the field is number. It will be translate in a way that 1 is true.
 	 * 
-	 * NOTE: Should be switch.
-	 * 
 	 * @param field to have it field set.
 	 * @param e object that contains the field.
 	 * 
 	 */
 	public final <E extends Retrievable> void setField(Field field, Object object, E e, boolean follow) {
-		boolean found = false;
-		try {
-			for (Annotation annotatino : field.getDeclaredAnnotations()) {
-				if (annotatino instanceof DBInteger) {
-					object = retriver.setInteger(field, object, e);
-					found = true;
-					break;
-
-				} else if (annotatino instanceof DBDouble) {
-					object = retriver.setDouble(field, object, e);
-					found = true;
-					break;
-
-				} else if (annotatino instanceof Real) {
-					field.set(e, object);
-					found = true;
-					break;
-
-				} else if (annotatino instanceof Numeric || annotatino instanceof Decimal) {
-					object = retriver.setNumericAndDecimal(field, object, e);
-					found = true;
-					break;
-
-				} else if (annotatino instanceof Timestamp) {
-					object = retriver.setTimeStamp(field, object, e);
-					found = true;
-					break;
-
-				} else if (annotatino instanceof Varchar) {
-					object = retriver.setVarchar(field, object, e);
-					found = true;
-					break;
-
-				} else if (annotatino instanceof Clob) {
-					object = retriver.setClob(field, object, e);
-					found = true;
-					break;
-				}  else if (annotatino instanceof DBBoolean) {
-					object = retriver.setBoolean(field, object, e);
-					found = true;
-					break;
-
-				} else if (annotatino instanceof BigInt) { 
-					object = retriver.setBigInt(field, object, e);
-					found = true;
-					break;
-
-				} else if (annotatino instanceof ForeignKey) {
-					object = retriver.setForeignObject(field, object, e, follow);
-					found = true;
-					break;
-
-				} else {
-					//Do possible things.
-				}
-			}
-			if (!found) {
-				if (logger.isTraceEnabled()) {
-					logger.trace("Field is not a db field. " + field.getName());
-				}
-			} 
-
-		} catch (SecurityException e1) {
-			logger.error("Some fields does not have access.", e1);
-		} catch (IllegalArgumentException e1) {
-			logger.error("IllegalArgument. Message: " + e1.getMessage());
-		} catch (IllegalAccessException e1) {
-			logger.error("Cannot access the field. Message: " + e1.getMessage());
-		} catch (IOException e1) {
-			logger.error("Some IO exception when creating objects", e1);
-		} catch (SQLException e1) {
-			logger.error("Error with retriving the object from SQL. Message: " + e1.getMessage());
-		} catch (InstantiationException e1) {
-			logger.error("Could not instaniate class.", e1);
-		}
-	}
-
-
-	private boolean isForeignKeyMatch(Field field, String columnName) {
-		boolean result = false;
-		Annotation annotation = field.getAnnotation(ForeignKey.class);
-		if (annotation != null) {
-			ForeignKey foreignKey = (ForeignKey) annotation;
-			if (columnName.equalsIgnoreCase(foreignKey.id())) {
-				result = true;
-			}
+		FieldMapping mapping = new FieldMapping(field);
+		if (mapping.getType() != null) {
+			mapping.set(retriver, object, e, follow);
+		} else if (logger.isTraceEnabled()) {
+			logger.trace("Field is not a db field. " + field.getName());
 		}
-		return result;
 	}
 
 }
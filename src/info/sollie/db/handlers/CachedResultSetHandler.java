@@ -6,16 +6,15 @@ package info.sollie.db.handlers;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
-import javax.sql.rowset.CachedRowSet;
+import info.sollie.db.resultset.ColumnarResultSet;
 
 import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.dbutils.ResultSetHandler;
 import org.apache.log4j.Logger;
 
-import com.sun.rowset.CachedRowSetImpl;
-
 /**
- * Converts a ResultSet to a offline cacheable resultet. It does not need to be closed.
+ * Converts a ResultSet to a offline cacheable resultet. It does not need to be closed. The rows is kept
+ * in a {@link ColumnarResultSet}.
  * 
  * @author Andre Sollie
  *
@@ -26,10 +25,12 @@ public class CachedResultSetHandler implements ResultSetHandler<ResultSet> {
 	
 	@Override
 	public ResultSet handle(final ResultSet result) throws SQLException {
-		CachedRowSet crm = null;
+		ColumnarResultSet crm = null;
 		try {
-			crm = new CachedRowSetImpl();
-			crm.populate(result);
+			crm = ColumnarResultSet.populate(result);
+			if (logger.isTraceEnabled()) {
+				logger.trace("Cached " + crm.size() + " rows in about " + crm.getMemoryFootprint() + " bytes.");
+			}
 		} catch (SQLException e1) {
 			logger.error("Could not create a Prepared statement. " + e1.getMessage());
 		} finally {
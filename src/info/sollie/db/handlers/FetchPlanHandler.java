@@ -0,0 +1,187 @@
+package info.sollie.db.handlers;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import info.sollie.db.FetchPlan;
+import info.sollie.db.FetchPlan.Strategy;
+import info.sollie.db.annotations.ManyToMany;
+import info.sollie.db.annotations.OneToMany;
+import info.sollie.db.interfaces.Retrievable;
+import info.sollie.db.interfaces.Retriver;
+import info.sollie.db.mapping.Accessors;
+import info.sollie.db.mapping.ClassMapping;
+import info.sollie.db.mapping.ClassMappings;
+import info.sollie.db.mapping.ColumnType;
+import info.sollie.db.mapping.FieldAccessor;
+import info.sollie.db.mapping.FieldMapping;
+import info.sollie.db.mapping.RelationMapping;
+
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.apache.log4j.Logger;
+
+/**
+ * Get every object in the resultset and read the relations that is named in a {@link FetchPlan}. The objects is
+ * read without following any relations, then every relation in the plan is read for all the objects at once. The
+ * relations of the related objects is read in the same way, level by level.
+ *
+ * @author Andre Sollie
+ *
+ */
+public class FetchPlanHandler<T extends Retrievable> implements ResultSetHandler<List<T>> {
+
+	private static final Logger logger = Logger.getLogger(FetchPlanHandler.class);
+
+	private final ResultSetHandler<List<T>> handler;
+
+	private final Class<T> type;
+
+	private final FetchPlan plan;
+
+	private final Retriver retriver;
+
+	/** Foreign keys that is read by the join of the handler. */
+	private final Set<String> joined;
+
+	/**
+	 * @param type of the objects.
+	 * @param plan of the relations to read.
+	 * @param retriver that converts the values.
+	 */
+	public FetchPlanHandler(final Class<T> type, final FetchPlan plan, final Retriver retriver) {
+		this(new AnnotationObjectListHandler<T>(type, false, retriver), type, plan, retriver, Collections.<Field>emptyList());
+	}
+
+	/**
+	 * Read a result set from {@link info.sollie.db.mssql.SqlGenerator#getJoinFetchSQL(Class, List)}.
+	 *
+	 * @param type of the objects.
+	 * @param joined foreign key fields of the type that is joined in the SQL.
+	 * @param plan of the relations to read.
+	 * @param retriver that converts the values.
+	 */
+	public FetchPlanHandler(final Class<T> type, final List<Field> joined, final FetchPlan plan, final Retriver retriver) {
+		this(new JoinFetchHandler<T>(type, joined, retriver), type, plan, retriver, joined);
+	}
+
+	private FetchPlanHandler(final ResultSetHandler<List<T>> handler, final Class<T> type, final FetchPlan plan,
+			final Retriver retriver, final List<Field> joined) {
+		this.handler = handler;
+		this.type = type;
+		this.plan = plan;
+		this.retriver = retriver;
+		this.joined = new HashSet<String>();
+		for (Field field : joined) {
+			this.joined.add(field.getName());
+		}
+	}
+
+	/**
+	 * Get the foreign keys of the class that is read with {@link Strategy#JOIN} in the plan. Other relations with 
+	 * {@link Strategy#JOIN} is not joined, and is read as {@link Strategy#BATCH}.
+	 *
+	 * @param type of the objects.
+	 * @param plan of the relations to read.
+	 * @return the fields to join.
+	 */
+	public static List<Field> getJoined(final Class<?> type, final FetchPlan plan) {
+		List<Field> result = new ArrayList<Field>();
+		ClassMapping<?> mapping = ClassMappings.get(type);
+		for (String name : plan.getNames()) {
+			FieldMapping foreignKey = mapping.getColumn(name);
+			if (plan.getStrategy(name) == Strategy.JOIN && foreignKey != null && foreignKey.getType() == ColumnType.FOREIGN_KEY) {
+				result.add(foreignKey.getField());
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public List<T> handle(final ResultSet resultSet) throws SQLException {
+		List<T> result = this.handler.handle(resultSet);
+		try {
+			this.read(result, this.type, this.plan, this.joined);
+		} catch (IllegalAccessException e) {
+			throw new SQLException("Could not read the relations " + this.plan + " of " + this.type.getSimpleName(), e);
+		} catch (InstantiationException e) {
+			throw new SQLException("Could not read the relations " + this.plan + " of " + this.type.getSimpleName(), e);
+		}
+		return result;
+	}
+
+	private void read(final List<? extends Retrievable> list, final Class<?> clazz, final FetchPlan plan,
+			final Set<String> joined) throws IllegalAccessException, InstantiationException {
+		if (list.isEmpty()) {
+			return;
+		}
+		ClassMapping<?> mapping = ClassMappings.get(clazz);
+		for (String name : plan.getNames()) {
+			Strategy strategy = plan.getStrategy(name);
+			FetchPlan next = plan.getPlan(name);
+			FieldMapping foreignKey = mapping.getColumn(name);
+			if (foreignKey != null && foreignKey.getType() == ColumnType.FOREIGN_KEY) {
+				Field field = foreignKey.getField();
+				if (strategy != Strategy.LAZY && !joined.contains(name)) {
+					this.retriver.setForeignObjects(field, list);
+				}
+				if (next != null && strategy != Strategy.LAZY) {
+					FieldAccessor accessor = Accessors.get(field);
+					Set<Retrievable> related = FetchPlanHandler.newIdentitySet();
+					for (Retrievable e : list) {
+						Object value = accessor.get(e);
+						if (value != null) {
+							related.add((Retrievable) value);
+						}
+					}
+					this.read(new ArrayList<Retrievable>(related), field.getType(), next, Collections.<String>emptySet());
+				}
+				continue;
+			}
+			RelationMapping relation = mapping.getRelation(name);
+			if (relation == null) {
+				throw new IllegalArgumentException(name + " is not a relation of " + clazz.getSimpleName());
+			}
+			Annotation annotation = relation.getAnnotation();
+			if (strategy == Strategy.LAZY) {
+				if (next != null) {
+					logger.warn("The relations under the lazy relation " + name + " of " + clazz.getSimpleName() + " is not read.");
+				}
+				for (Retrievable e : list) {
+					this.retriver.createLazyRelation(e, relation.getField(), annotation);
+				}
+				continue;
+			}
+			if (annotation instanceof OneToMany) {
+				this.retriver.createObjectsForOneToManyRelation(list, relation.getField(), annotation);
+			} else if (annotation instanceof ManyToMany) {
+				this.retriver.createObjectsForManyToManyRelation(list, relation.getField(), annotation);
+			}
+			if (next != null && relation.getElementType() != null) {
+				FieldAccessor accessor = Accessors.get(relation.getField());
+				Set<Retrievable> related = FetchPlanHandler.newIdentitySet();
+				for (Retrievable e : list) {
+					Object value = accessor.get(e);
+					if (value != null) {
+						for (Object object : (Collection<?>) value) {
+							related.add((Retrievable) object);
+						}
+					}
+				}
+				this.read(new ArrayList<Retrievable>(related), relation.getElementType(), next, Collections.<String>emptySet());
+			}
+		}
+	}
+
+	private static Set<Retrievable> newIdentitySet() {
+		return Collections.newSetFromMap(new IdentityHashMap<Retrievable, Boolean>());
+	}
+}
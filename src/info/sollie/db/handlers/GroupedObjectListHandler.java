@@ -0,0 +1,93 @@
+package info.sollie.db.handlers;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import info.sollie.db.interfaces.Retrievable;
+import info.sollie.db.interfaces.Retriver;
+import info.sollie.db.store.IdentityMap;
+
+import org.apache.commons.dbutils.ResultSetHandler;
+
+/**
+ * Get every object in the resultset as {@link AnnotationObjectListHandler}, but the objects is grouped by the value
+ * of a key column. Used to load the relations of many objects with one query, where the key column is the ID of
+ * the object that owns the relation. The objects in a group is in the same order as the rows.
+ *
+ * @author Andre Sollie
+ *
+ */
+public class GroupedObjectListHandler<T extends Retrievable> implements ResultSetHandler<Map<Integer, List<T>>> {
+
+	private final AnnotationObjectListHandler<T> handler;
+
+	private final Class<T> type;
+
+	private final String keyColumn;
+
+	private final boolean follow;
+
+	/** Objects with the same ID in more than one group is the same instance. */
+	private final boolean shared;
+
+	/** The objects that is created when they are shared. */
+	private final Map<String, T> instances = new HashMap<String, T>();
+
+	public GroupedObjectListHandler(final Class<T> type, final String keyColumn, final boolean follow, final Retriver retriver) {
+		this(type, keyColumn, follow, retriver, false);
+	}
+
+	/**
+	 * @param type of the objects.
+	 * @param keyColumn name or label of the column to group by. It must be a integer column.
+	 * @param follow complex objects.
+	 * @param retriver that converts the values.
+	 * @param shared if a object with the same ID in more than one group should be the same instance. The instances
+	 * is shared between every result set the handler handles.
+	 */
+	public GroupedObjectListHandler(final Class<T> type, final String keyColumn, final boolean follow, final Retriver retriver,
+			final boolean shared) {
+		this.handler = new AnnotationObjectListHandler<T>(type, follow, retriver);
+		this.type = type;
+		this.keyColumn = keyColumn;
+		this.follow = follow;
+		this.shared = shared;
+	}
+
+	@Override
+	public Map<Integer, List<T>> handle(final ResultSet resultSet) throws SQLException {
+		Map<Integer, List<T>> result = new LinkedHashMap<Integer, List<T>>();
+		int column = resultSet.findColumn(this.keyColumn);
+		IdentityMap identities = IdentityMap.current();
+		while (resultSet.next()) {
+			Integer key = Integer.valueOf(resultSet.getInt(column));
+			if (resultSet.wasNull()) {
+				continue;
+			}
+			List<T> group = result.get(key);
+			if (group == null) {
+				group = new ArrayList<T>(4);
+				result.put(key, group);
+			}
+			T t = this.handler.createObject(resultSet, this.handler.createInstance(this.type), this.follow);
+			if (identities != null) {
+				t = identities.register(t);
+			}
+			if (this.shared) {
+				T instance = this.instances.get(t.getID());
+				if (instance == null) {
+					this.instances.put(t.getID(), t);
+				} else {
+					t = instance;
+				}
+			}
+			group.add(t);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,141 @@
+package info.sollie.db.handlers;
+
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import info.sollie.db.Persistence;
+import info.sollie.db.interfaces.Retrievable;
+import info.sollie.db.interfaces.Retriver;
+import info.sollie.db.mapping.Accessors;
+import info.sollie.db.mapping.ClassMappings;
+import info.sollie.db.mapping.FieldAccessor;
+import info.sollie.db.mapping.RowPlan;
+import info.sollie.db.mssql.SqlGenerator;
+import info.sollie.db.store.IdentityMap;
+
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.apache.log4j.Logger;
+
+/**
+ * Get every object in a result set from {@link SqlGenerator#getJoinFetchSQL(Class, List)}. Every row is split into
+ * the main object and the objects of the joined {@link info.sollie.db.annotations.ForeignKey} fields, so the foreign
+ * objects is read with the same query. A foreign object that is referenced by more than one row is the same
+ * instance. Other relations is not followed.
+ *
+ * @author Andre Sollie
+ *
+ */
+public class JoinFetchHandler<T extends Retrievable> implements ResultSetHandler<List<T>> {
+
+	private static final Logger logger = Logger.getLogger(JoinFetchHandler.class);
+
+	private final AnnotationObjectListHandler<T> handler;
+
+	private final Class<T> type;
+
+	private final List<Field> foreignKeys;
+
+	private final Retriver retriver;
+
+	/**
+	 * @param type of the main objects.
+	 * @param foreignKeys fields that is joined, in the same order as in the SQL.
+	 * @param retriver that converts the values.
+	 */
+	public JoinFetchHandler(final Class<T> type, final List<Field> foreignKeys, final Retriver retriver) {
+		this.handler = new AnnotationObjectListHandler<T>(type, false, retriver);
+		this.type = type;
+		this.foreignKeys = foreignKeys;
+		this.retriver = retriver;
+	}
+
+	@Override
+	public List<T> handle(final ResultSet resultSet) throws SQLException {
+		ResultSetMetaData metaData = resultSet.getMetaData();
+		int count = this.foreignKeys.size();
+		int[] separators = new int[count + 1];
+		for (int i = 0; i < count; i++) {
+			separators[i] = resultSet.findColumn(SqlGenerator.JOIN_SEPARATOR + (i + 1));
+		}
+		separators[count] = metaData.getColumnCount() + 1;
+		RowPlan plan = ClassMappings.get(this.type).getPlan(metaData, 1, separators[0] - 1);
+		RowPlan[] plans = new RowPlan[count];
+		int[] idColumns = new int[count];
+		FieldAccessor[] accessors = new FieldAccessor[count];
+		List<Map<Integer, Retrievable>> instances = new ArrayList<Map<Integer, Retrievable>>(count);
+		for (int i = 0; i < count; i++) {
+			Field field = this.foreignKeys.get(i);
+			plans[i] = ClassMappings.get(field.getType()).getPlan(metaData, separators[i] + 1, separators[i + 1] - 1);
+			idColumns[i] = JoinFetchHandler.findColumn(metaData, SqlGenerator.getIDName(field.getType()), separators[i] + 1,
+					separators[i + 1] - 1);
+			try {
+				accessors[i] = Accessors.get(field);
+			} catch (IllegalAccessException e) {
+				throw new SQLException("Cannot access the field " + field.getName(), e);
+			}
+			instances.add(new HashMap<Integer, Retrievable>());
+		}
+		List<T> result = new ArrayList<T>(50);
+		IdentityMap identities = IdentityMap.current();
+		while (resultSet.next()) {
+			T t = this.handler.createInstance(this.type);
+			plan.populate(resultSet, t, false, this.retriver);
+			if (t instanceof Persistence) {
+				((Persistence<?>) t).markClean();
+			}
+			if (identities != null) {
+				t = identities.register(t);
+			}
+			for (int i = 0; i < count; i++) {
+				if (idColumns[i] == 0) {
+					continue;
+				}
+				int id = resultSet.getInt(idColumns[i]);
+				if (resultSet.wasNull()) {
+					continue;
+				}
+				Integer key = Integer.valueOf(id);
+				Retrievable foreign = instances.get(i).get(key);
+				if (foreign == null) {
+					@SuppressWarnings("unchecked")
+					Class<? extends Retrievable> clazz = (Class<? extends Retrievable>) this.foreignKeys.get(i).getType();
+					foreign = this.handler.createInstance(clazz);
+					plans[i].populate(resultSet, foreign, false, this.retriver);
+					if (foreign instanceof Persistence) {
+						((Persistence<?>) foreign).markClean();
+					}
+					if (identities != null) {
+						foreign = identities.register(foreign);
+					}
+					instances.get(i).put(key, foreign);
+				}
+				try {
+					accessors[i].set(t, foreign);
+				} catch (IllegalAccessException e) {
+					logger.error("Could not set the field " + this.foreignKeys.get(i).getName() + ". Message: " + e.getMessage());
+				}
+			}
+			result.add(t);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the first column with the name between from and to, or 0 if no column has the name.
+	 */
+	private static int findColumn(final ResultSetMetaData metaData, final String name, final int from, final int to)
+			throws SQLException {
+		for (int i = from; i <= to; i++) {
+			if (name.equalsIgnoreCase(metaData.getColumnName(i))) {
+				return i;
+			}
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,151 @@
+package info.sollie.db.handlers;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import info.sollie.db.interfaces.Retrievable;
+import info.sollie.db.interfaces.Retriver;
+import info.sollie.db.resultset.ColumnarResultSet;
+import info.sollie.db.store.IdentityMap;
+
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.apache.log4j.Logger;
+
+/**
+ * Get every object in the resultset as {@link AnnotationObjectListHandler}, but the objects is created in parallel.
+ * The calling thread reads the rows from the database in batches into {@link ColumnarResultSet}s, while the batches
+ * that is read is mapped to objects by a {@link ForkJoinPool}. Reading from the network and mapping is done at the
+ * same time. The objects is returned in the same order as the rows.
+ *
+ * It is only worth it for large result sets. Result sets with less rows than a batch is mapped on the calling thread.
+ *
+ * @author Andre Sollie
+ *
+ */
+public class ParallelObjectListHandler<T extends Retrievable> implements ResultSetHandler<List<T>> {
+
+	private static final Logger logger = Logger.getLogger(ParallelObjectListHandler.class);
+
+	/** Default number of rows in a batch. */
+	public static final int DEFAULT_BATCH_SIZE = 1024;
+
+	private final Class<T> type;
+
+	private final boolean follow;
+
+	private final Retriver retriver;
+
+	private final int batchSize;
+
+	private final ForkJoinPool pool;
+
+	/** Max number of batches that is read but not mapped. Keeps the memory used by the reader bounded. */
+	private final int maxPending;
+
+	public ParallelObjectListHandler(final Class<T> type, final boolean follow, final Retriver retriver) {
+		this(type, follow, retriver, DEFAULT_BATCH_SIZE, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param type of the objects.
+	 * @param follow complex objects. Relations is read by the workers.
+	 * @param retriver that converts the values.
+	 * @param batchSize number of rows in a batch.
+	 * @param pool that maps the batches.
+	 */
+	public ParallelObjectListHandler(final Class<T> type, final boolean follow, final Retriver retriver, final int batchSize,
+			final ForkJoinPool pool) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("Batch size must be above 0. Was " + batchSize);
+		}
+		this.type = type;
+		this.follow = follow;
+		this.retriver = retriver;
+		this.batchSize = batchSize;
+		this.pool = pool;
+		this.maxPending = Math.max(2, pool.getParallelism() * 2);
+	}
+
+	@Override
+	public List<T> handle(final ResultSet resultSet) throws SQLException {
+		ColumnarResultSet first = ColumnarResultSet.populate(resultSet, this.batchSize);
+		if (first.size() < this.batchSize) {
+			return this.map(first);
+		}
+		List<T> result = new ArrayList<T>(this.batchSize * 4);
+		Deque<ForkJoinTask<List<T>>> pending = new ArrayDeque<ForkJoinTask<List<T>>>();
+		try {
+			ColumnarResultSet batch = first;
+			while (batch.size() > 0) {
+				pending.addLast(this.pool.submit(this.task(batch)));
+				while (pending.size() > this.maxPending) {
+					result.addAll(this.join(pending.removeFirst()));
+				}
+				if (batch.size() < this.batchSize) {
+					break;
+				}
+				batch = ColumnarResultSet.populate(resultSet, this.batchSize);
+			}
+			while (!pending.isEmpty()) {
+				result.addAll(this.join(pending.removeFirst()));
+			}
+		} finally {
+			for (ForkJoinTask<List<T>> task : pending) {
+				task.cancel(false);
+			}
+		}
+		IdentityMap identities = IdentityMap.current();
+		if (identities != null) {
+			for (int i = 0; i < result.size(); i++) {
+				result.set(i, identities.register(result.get(i)));
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Mapped " + result.size() + " objects of type " + this.type.getSimpleName() + " in parallel.");
+		}
+		return result;
+	}
+
+	private Callable<List<T>> task(final ColumnarResultSet batch) {
+		return new Callable<List<T>>() {
+			@Override
+			public List<T> call() throws SQLException {
+				return ParallelObjectListHandler.this.map(batch);
+			}
+		};
+	}
+
+	/**
+	 * Map a batch. Every batch gets its own handler, since the handler keeps the plan of the result set it maps.
+	 */
+	private List<T> map(final ColumnarResultSet batch) throws SQLException {
+		return new AnnotationObjectListHandler<T>(this.type, this.follow, this.retriver).handle(batch);
+	}
+
+	private List<T> join(final ForkJoinTask<List<T>> task) throws SQLException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for the objects to be mapped.", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new SQLException("Could not map the objects.", cause);
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package info.sollie.db.handlers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import info.sollie.db.store.IdentityMap;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runs independent relation queries at the same time, so the time to read the relations of a object is the time of
+ * the slowest relation and not the sum. Every query uses a connection from the pool, so the number of queries that
+ * runs at the same time is capped for all threads together. When the cap is reached the relation is read on the
+ * calling thread, as before.
+ *
+ * The relations is read on the calling thread if a {@link IdentityMap} is open, since the map belongs to the thread.
+ *
+ * @author Andre Sollie
+ *
+ */
+public final class RelationLoader {
+
+	private static final Logger logger = Logger.getLogger(RelationLoader.class);
+
+	/** Default number of relation queries that runs at the same time on other threads. */
+	public static final int DEFAULT_MAX_CONCURRENT = 4;
+
+	private static volatile RelationLoader defaultLoader;
+
+	private final ExecutorService executor;
+
+	private final Semaphore permits;
+
+	/**
+	 * @param executor that runs the queries.
+	 * @param maxConcurrent number of queries that runs on the executor at the same time. 0 reads every relation on
+	 * the calling thread.
+	 */
+	public RelationLoader(final ExecutorService executor, final int maxConcurrent) {
+		if (maxConcurrent < 0) {
+			throw new IllegalArgumentException("Max concurrent must be 0 or above. Was " + maxConcurrent);
+		}
+		this.executor = executor;
+		this.permits = new Semaphore(maxConcurrent);
+	}
+
+	/**
+	 * @return the loader used by the handlers. It runs on virtual threads when the JVM has them.
+	 */
+	public static RelationLoader getDefault() {
+		RelationLoader result = defaultLoader;
+		if (result == null) {
+			synchronized (RelationLoader.class) {
+				result = defaultLoader;
+				if (result == null) {
+					result = new RelationLoader(RelationLoader.newExecutor(), DEFAULT_MAX_CONCURRENT);
+					defaultLoader = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Set the loader used by the handlers. Use a loader with max concurrent 0 to read every relation on the calling
+	 * thread.
+	 */
+	public static void setDefault(final RelationLoader loader) {
+		defaultLoader = loader;
+	}
+
+	/**
+	 * Create a executor with a virtual thread for every task when the JVM has virtual threads, else a pool of daemon
+	 * threads.
+	 */
+	public static ExecutorService newExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (Exception e) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Virtual threads is not available. Relations is read on a thread pool.");
+			}
+		}
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				Thread thread = new Thread(runnable, "relation-loader-" + this.count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Run every task and wait until all is done. The first task and the tasks that cannot get a permit is run on the
+	 * calling thread.
+	 *
+	 * @param tasks to run.
+	 * @throws Exception the first exception thrown by a task, after every task is done.
+	 */
+	public void runAll(final List<? extends Callable<?>> tasks) throws Exception {
+		if (tasks.size() <= 1 || this.permits.availablePermits() == 0 || IdentityMap.current() != null) {
+			for (Callable<?> task : tasks) {
+				task.call();
+			}
+			return;
+		}
+		List<Future<?>> submitted = new ArrayList<Future<?>>(tasks.size());
+		Exception failure = null;
+		for (int i = 0; i < tasks.size(); i++) {
+			final Callable<?> task = tasks.get(i);
+			if (i > 0 && this.permits.tryAcquire()) {
+				FutureTask<Object> future = new FutureTask<Object>(new Callable<Object>() {
+					@Override
+					public Object call() throws Exception {
+						try {
+							return task.call();
+						} finally {
+							RelationLoader.this.permits.release();
+						}
+					}
+				});
+				try {
+					this.executor.execute(future);
+					submitted.add(future);
+					continue;
+				} catch (RuntimeException e) {
+					this.permits.release();
+					logger.warn("Could not run the relation on the executor. " + e.getMessage());
+				}
+			}
+			try {
+				task.call();
+			} catch (Exception e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+		}
+		for (Future<?> future : submitted) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				if (failure == null) {
+					failure = e;
+				}
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+}
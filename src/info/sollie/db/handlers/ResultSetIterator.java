@@ -0,0 +1,146 @@
+package info.sollie.db.handlers;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import info.sollie.db.errors.SQLError;
+import info.sollie.db.interfaces.Retrievable;
+import info.sollie.db.interfaces.Retriver;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Iterates over a open result set and creates one object for every row when it is needed. Only the current row
+ * is kept in memory, so it can be used for result sets that is too large to be read into a list.
+ *
+ * The iterator owns the result set, the statement and the connection. They are closed when the last row is read,
+ * when a error happens or when {@link #close()} is called. Always close the iterator if it is not read to the end.
+ *
+ * @author Andre Sollie
+ *
+ */
+public class ResultSetIterator<T extends Retrievable> implements Iterator<T>, Closeable {
+
+	private static final Logger logger = Logger.getLogger(ResultSetIterator.class);
+
+	private final AnnotationObjectListHandler<T> handler;
+
+	private final Class<T> type;
+
+	private final boolean follow;
+
+	private final String sql;
+
+	private ResultSet resultSet;
+
+	private Statement statement;
+
+	private Connection connection;
+
+	/** The row is moved to but not returned yet. */
+	private boolean fetched;
+
+	private boolean closed;
+
+	/**
+	 * @param sql that is executed. Only used in error messages.
+	 * @param type of the objects.
+	 * @param follow complex objects. Relations is read with other connections while the result set is open.
+	 * @param retriver that converts the values.
+	 * @param resultSet to iterate over.
+	 * @param statement of the result set.
+	 * @param connection of the statement.
+	 */
+	public ResultSetIterator(final String sql, final Class<T> type, final boolean follow, final Retriver retriver,
+			final ResultSet resultSet, final Statement statement, final Connection connection) {
+		this.handler = new AnnotationObjectListHandler<T>(type, follow, retriver);
+		this.type = type;
+		this.follow = follow;
+		this.sql = sql;
+		this.resultSet = resultSet;
+		this.statement = statement;
+		this.connection = connection;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (this.closed) {
+			return false;
+		}
+		if (!this.fetched) {
+			try {
+				this.fetched = this.resultSet.next();
+			} catch (SQLException e) {
+				this.close();
+				throw new SQLError(this.sql, "Could not read the next row. " + e.getMessage(), e);
+			}
+			if (!this.fetched) {
+				this.close();
+			}
+		}
+		return this.fetched;
+	}
+
+	@Override
+	public T next() {
+		if (!this.hasNext()) {
+			throw new NoSuchElementException();
+		}
+		this.fetched = false;
+		T t = this.handler.createInstance(this.type);
+		return this.handler.createObject(this.resultSet, t, this.follow);
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Cannot remove rows from a result set.");
+	}
+
+	/**
+	 * Close the result set, the statement and give the connection back. It can be called more than once.
+	 */
+	@Override
+	public void close() {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		this.fetched = false;
+		try {
+			if (this.resultSet != null) {
+				this.resultSet.close();
+			}
+		} catch (SQLException e) {
+			logger.debug("Could not close the result set. " + e.getMessage());
+		}
+		try {
+			if (this.statement != null) {
+				this.statement.close();
+			}
+		} catch (SQLException e) {
+			logger.debug("Could not close the statement. " + e.getMessage());
+		}
+		try {
+			if (this.connection != null) {
+				this.connection.close();
+			}
+		} catch (SQLException e) {
+			logger.error("Could not give the connection back. " + e.getMessage());
+		}
+		this.resultSet = null;
+		this.statement = null;
+		this.connection = null;
+	}
+
+	/**
+	 * @return true if the result set is closed.
+	 */
+	public boolean isClosed() {
+		return this.closed;
+	}
+}
@@ -3,27 +3,48 @@
  */
 package info.sollie.db.implementation;
 
+import java.lang.reflect.Field;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import info.sollie.db.ConnectionManagers;
+import info.sollie.db.FetchMode;
+import info.sollie.db.FetchPlan;
 import info.sollie.db.Nullable;
 import info.sollie.db.errors.SQLError;
 import info.sollie.db.handlers.AnnotationInitializedHandler;
 import info.sollie.db.handlers.AnnotationObjectHandler;
 import info.sollie.db.handlers.AnnotationObjectListHandler;
 import info.sollie.db.handlers.CachedResultSetHandler;
+import info.sollie.db.handlers.FetchPlanHandler;
+import info.sollie.db.handlers.JoinFetchHandler;
+import info.sollie.db.handlers.ParallelObjectListHandler;
+import info.sollie.db.handlers.ResultSetIterator;
 import info.sollie.db.interfaces.ConnectionManager;
 import info.sollie.db.interfaces.DatabaseTool;
 import info.sollie.db.interfaces.Retrievable;
 import info.sollie.db.interfaces.Retriver;
+import info.sollie.db.interfaces.StatementBinder;
 import info.sollie.db.interfaces.Writeable;
+import info.sollie.db.mapping.Accessors;
+import info.sollie.db.mapping.ClassMappings;
 import info.sollie.db.mssql.MssqlTool;
+import info.sollie.db.mssql.SqlGenerator;
+import info.sollie.db.mssql.WriteBatch;
+import info.sollie.db.mssql.WriteTemplate;
+import info.sollie.db.store.IdentityMap;
+import info.sollie.db.store.UnitOfWork;
 
 import org.apache.commons.dbutils.QueryRunner;
 import org.apache.commons.dbutils.handlers.ArrayHandler;
@@ -44,6 +65,21 @@ public class DefaultDatabaseTool implements DatabaseTool {
 	private static final DatabaseTool instance = new DefaultDatabaseTool();
 	
 	private final boolean isTest;
+
+	/** Writes statements of many threads together. Null if group commit is off. */
+	private volatile GroupCommit groupCommit;
+
+	/** Binds the parameters of {@link #write(String, Object...)}. */
+	private static final StatementBinder<Object[]> objectBinder = new StatementBinder<Object[]>() {
+		@Override
+		public void bind(final PreparedStatement statement, final Object[] objects) throws SQLException {
+			int index = 1;
+			for (Object object : objects) {
+				statement.setObject(index, object);
+				index++;
+			}
+		}
+	};
 	
 	protected DefaultDatabaseTool(){
 		this.poolManager = ConnectionManagers.getPoolManager();
@@ -88,6 +124,59 @@ public class DefaultDatabaseTool implements DatabaseTool {
 		return Collections.emptyList();
 	}
 
+	@Override
+	@Nullable
+	public <E extends Retrievable> E getObject(String sql, Class<E> clazz, FetchMode mode, Object... objects) {
+		try {
+			return this.queryRunner.query(sql, new AnnotationObjectHandler<E>(clazz, mode, this.getRetriver()), objects);
+		} catch (SQLException e) {
+			logger.error("Could not create a Prepared statement. " + e.getMessage());
+		}
+		return null;
+	}
+
+	@Override
+	public <E extends Retrievable> List<E> getObjects(String sql, Class<E> clazz, FetchMode mode, Object... objects) {
+		try {
+			return this.queryRunner.query(sql, new AnnotationObjectListHandler<E>(clazz, mode, this.getRetriver()), objects);
+		} catch (SQLException e) {
+			logger.error("Could not create a Prepared statement. " + e.getMessage());
+		}
+		return Collections.emptyList();
+	}
+
+	@Override
+	@Nullable
+	public <E extends Retrievable> E getObject(String sql, Class<E> clazz, FetchPlan plan, Object... objects) {
+		List<E> result = this.getObjects(sql, clazz, plan, objects);
+		return result.isEmpty() ? null : result.get(0);
+	}
+
+	@Override
+	public <E extends Retrievable> List<E> getObjects(String sql, Class<E> clazz, FetchPlan plan, Object... objects) {
+		try {
+			return this.queryRunner.query(sql, new FetchPlanHandler<E>(clazz, plan, this.getRetriver()), objects);
+		} catch (SQLException e) {
+			logger.error("Could not create a Prepared statement. " + e.getMessage());
+		}
+		return Collections.emptyList();
+	}
+
+	@Override
+	public <E extends Retrievable> List<E> getObjects(Class<E> clazz, FetchPlan plan, String condition, Object... objects) {
+		List<Field> joined = FetchPlanHandler.getJoined(clazz, plan);
+		String sql = SqlGenerator.getJoinFetchSQL(clazz, joined);
+		if (condition != null) {
+			sql = sql + " " + condition;
+		}
+		try {
+			return this.queryRunner.query(sql, new FetchPlanHandler<E>(clazz, joined, plan, this.getRetriver()), objects);
+		} catch (SQLException e) {
+			logger.error("Some thing wrong with the SQL query. Message: " + e.getMessage());
+		}
+		return Collections.emptyList();
+	}
+
 	@Override
 	public <E extends Retrievable> void setObject(String sql, E e, boolean follow) {
 		try {
@@ -99,13 +188,31 @@ public class DefaultDatabaseTool implements DatabaseTool {
 		} 
 	}
 
+	@Override
+	public <E extends Retrievable> void setObject(String sql, E e, boolean follow, Object... objects) {
+		try {
+			if (e != null) {
+				this.queryRunner.query(sql, new AnnotationInitializedHandler<E>(e, follow, this.getRetriver()), objects);
+			}
+		} catch (SQLException e1) {
+			logger.error("Could not create a Prepared statement. " + e1.getMessage());
+		} 
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	@Nullable
 	public <E extends Retrievable> E getObject(Class<E> clazz, int id, boolean follow) {
+		IdentityMap identities = IdentityMap.current();
+		if (identities != null) {
+			E known = identities.get(clazz, id);
+			if (known != null) {
+				return known;
+			}
+		}
 		Retrievable r = null;
 		try {
-			r = (Retrievable) clazz.newInstance();
+			r = (Retrievable) Accessors.newInstance(clazz);
 			r.setID(id);
 			r.populateObject(follow);
 		} catch (InstantiationException e) {
@@ -118,26 +225,62 @@ public class DefaultDatabaseTool implements DatabaseTool {
 
 	@Override
 	public <E extends Writeable> void storeObject(final String sql, final E e) {
+		this.storeObject(sql, e, null);
+	}
+
+	@Override
+	public void setGroupCommit(final int maxGroupSize) {
+		this.groupCommit = maxGroupSize > 1 ? new GroupCommit(this.poolManager, maxGroupSize) : null;
+	}
+
+	/**
+	 * @return the group commit, or null if it is off or the thread has the connection of a unit of work.
+	 */
+	@Nullable
+	private GroupCommit getGroupCommit() {
+		UnitOfWork unitOfWork = UnitOfWork.current();
+		if (unitOfWork != null && !unitOfWork.autoCommit()) {
+			return null;
+		}
+		return this.groupCommit;
+	}
+
+	@Override
+	public <E extends Writeable> void storeObject(final String sql, final E e, final StatementBinder<? super E> binder) {
+		boolean newObject = sql.contains("INSERT") && !(binder instanceof WriteTemplate && ((WriteTemplate) binder).isAssigned());
+		GroupCommit group = this.getGroupCommit();
+		if (group != null && binder != null) {
+			try {
+				int result = group.write(sql, e, binder, newObject);
+				if (newObject) {
+					e.setID(result);
+				}
+			} catch (SQLException e1) {
+				logger.error("Something wrong with the update. Sql: " + sql + " Message: "  + e1.getMessage(), e1);
+				throw new SQLError(sql, e1.getMessage(), e1);
+			}
+			return;
+		}
 		final long start = System.currentTimeMillis();
 		PreparedStatement preparedStatement = null;
 		Connection connection = poolManager.getConnection();
 		
-		boolean newObject = sql.contains("INSERT");
-		ResultSet resultSet = null;
 		try {
 			if (connection == null) {
 				throw new SQLException("Got null from connection manager. Possible error with db or all connections used.");
 			}
-			preparedStatement = connection.prepareStatement(sql);
+			preparedStatement = newObject ? GenericDatabaseTool.prepareInsert(connection, sql) : connection.prepareStatement(sql);
+			if (binder != null) {
+				binder.bind(preparedStatement, e);
+			}
 			if (newObject) {
-				resultSet = preparedStatement.executeQuery();
-				while(resultSet.next()) {
-					int id = resultSet.getInt("ID");
+				int id = GenericDatabaseTool.executeInsert(preparedStatement, sql);
+				if (id > 0) {
 					e.setID(id);
-					if (logger.isDebugEnabled()) {
-						logger.debug("Stores a object to the database. Sql: " + sql + " ID: " + id);
-					}
-				} 
+				}
+				if (logger.isDebugEnabled()) {
+					logger.debug("Stores a object to the database. Sql: " + sql + " ID: " + id);
+				}
 			} else {
 				preparedStatement.executeUpdate();
 				logger.debug("Updates a object to the database. Sql: " + sql);
@@ -146,7 +289,7 @@ public class DefaultDatabaseTool implements DatabaseTool {
 			logger.error("Something wrong with the update. Sql: " + sql + " Message: "  + e1.getMessage(), e1);
 			throw new SQLError(sql, e1.getMessage(), e1);
 		} finally {
-			GenericDatabaseTool.closeSilent(resultSet, preparedStatement, connection);
+			GenericDatabaseTool.closeSilent(null, preparedStatement, connection);
 		}
 		if (this.isTest) {
 			final long stop = System.currentTimeMillis();
@@ -154,6 +297,184 @@ public class DefaultDatabaseTool implements DatabaseTool {
 		}
 	}
 
+	@Override
+	public void storeObjects(final List<? extends WriteBatch<?>> batches, final int batchSize) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("Batch size must be above 0. Was " + batchSize);
+		}
+		if (batches == null || batches.isEmpty()) {
+			return;
+		}
+		Connection connection = poolManager.getConnection();
+		List<Writeable> inserted = new ArrayList<Writeable>();
+		String sql = null;
+		try {
+			if (connection == null) {
+				throw new SQLException("Got null from connection manager. Possible error with db or all connections used.");
+			}
+			boolean bound = UnitOfWork.isBound(connection);
+			boolean autoCommit = connection.getAutoCommit();
+			if (!bound) {
+				connection.setAutoCommit(false);
+			}
+			try {
+				int statements = 0;
+				for (WriteBatch<?> batch : batches) {
+					if (batch.isRelations()) {
+						sql = batch.toString();
+						statements += this.writeRelations(connection, batch, batchSize);
+						continue;
+					}
+					sql = batch.isInsert() ? SqlGenerator.getInsertTemplate(batch.getType()).getSql() : batch.getSql();
+					statements += batch.isInsert() ? this.insertRows(connection, batch, batchSize, inserted)
+							: this.updateRows(connection, batch, batchSize);
+				}
+				sql = null;
+				if (!bound) {
+					connection.commit();
+				}
+				if (logger.isDebugEnabled()) {
+					logger.debug("Stored " + batches.size() + " batches with " + statements + " statements.");
+				}
+			} catch (SQLException e1) {
+				if (!bound) {
+					GenericDatabaseTool.rollbackSilent(connection);
+				}
+				for (Writeable e : inserted) {
+					e.setID(0);
+				}
+				throw e1;
+			} catch (RuntimeException e1) {
+				if (!bound) {
+					GenericDatabaseTool.rollbackSilent(connection);
+				}
+				for (Writeable e : inserted) {
+					e.setID(0);
+				}
+				throw e1;
+			} finally {
+				if (!bound) {
+					connection.setAutoCommit(autoCommit);
+				}
+			}
+		} catch (SQLException e1) {
+			logger.error("Could not store the objects. Sql: " + sql + " Message: "  + e1.getMessage(), e1);
+			throw new SQLError(sql, e1.getMessage(), e1);
+		} finally {
+			GenericDatabaseTool.closeConnectionSilent(connection);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private int updateRows(final Connection connection, final WriteBatch<?> batch, final int batchSize) throws SQLException {
+		WriteBatch<Writeable> updates = (WriteBatch<Writeable>) batch;
+		return this.executeBatch(connection, updates.getSql(), updates.getBinder(), updates.getObjects(), batchSize);
+	}
+
+	private int executeBatch(final Connection connection, final String sql, final StatementBinder<? super Writeable> binder,
+			final List<? extends Writeable> objects, final int batchSize) throws SQLException {
+		PreparedStatement preparedStatement = null;
+		int statements = 0;
+		try {
+			preparedStatement = connection.prepareStatement(sql);
+			int size = 0;
+			for (Writeable e : objects) {
+				binder.bind(preparedStatement, e);
+				preparedStatement.addBatch();
+				if (++size == batchSize) {
+					preparedStatement.executeBatch();
+					statements++;
+					size = 0;
+				}
+			}
+			if (size > 0) {
+				preparedStatement.executeBatch();
+				statements++;
+			}
+		} finally {
+			GenericDatabaseTool.closeStatementSilent(preparedStatement);
+		}
+		return statements;
+	}
+
+	private int writeRelations(final Connection connection, final WriteBatch<?> batch, final int batchSize) throws SQLException {
+		Statement statement = null;
+		int statements = 0;
+		try {
+			statement = connection.createStatement();
+			int size = 0;
+			for (Writeable e : batch.getObjects()) {
+				List<String> relations;
+				try {
+					relations = SqlGenerator.getManyToManyStatements(e);
+				} catch (InstantiationException e1) {
+					throw new SQLException("Cannot create a instance of the ManyToMany relation object", e1);
+				} catch (IllegalAccessException e1) {
+					throw new SQLException("Cannot accesss the field to the ManyToMany relation object", e1);
+				}
+				for (String relation : relations) {
+					statement.addBatch(relation);
+					if (++size == batchSize) {
+						statement.executeBatch();
+						statements++;
+						size = 0;
+					}
+				}
+			}
+			if (size > 0) {
+				statement.executeBatch();
+				statements++;
+			}
+		} finally {
+			GenericDatabaseTool.closeStatementSilent(statement);
+		}
+		return statements;
+	}
+
+	private int insertRows(final Connection connection, final WriteBatch<?> batch, final int batchSize,
+			final List<Writeable> inserted) throws SQLException {
+		WriteTemplate template = SqlGenerator.getInsertTemplate(batch.getType());
+		List<? extends Writeable> objects = batch.getObjects();
+		if (template.isAssigned()) {
+			return this.executeBatch(connection, template.getSql(), template, objects, batchSize);
+		}
+		int rows = Math.min(batchSize, template.getMaxRows());
+		PreparedStatement preparedStatement = null;
+		int prepared = 0;
+		int statements = 0;
+		try {
+			for (int from = 0; from < objects.size(); from += rows) {
+				List<? extends Writeable> chunk = objects.subList(from, Math.min(from + rows, objects.size()));
+				if (chunk.size() != prepared) {
+					GenericDatabaseTool.closeStatementSilent(preparedStatement);
+					preparedStatement = connection.prepareStatement(SqlGenerator.getInsertRowsSQL(batch.getType(), chunk.size()));
+					prepared = chunk.size();
+				}
+				template.bindRows(preparedStatement, chunk);
+				ResultSet resultSet = preparedStatement.executeQuery();
+				try {
+					int count = 0;
+					while (resultSet.next()) {
+						Writeable e = chunk.get(resultSet.getInt(SqlGenerator.ROW_NUMBER));
+						e.setID(resultSet.getInt("ID"));
+						inserted.add(e);
+						count++;
+					}
+					if (count != chunk.size()) {
+						throw new SQLException("Inserted " + chunk.size() + " " + batch.getType().getSimpleName() 
+								+ " but got " + count + " ids.");
+					}
+				} finally {
+					GenericDatabaseTool.closeResultSetSilent(resultSet);
+				}
+				statements++;
+			}
+		} finally {
+			GenericDatabaseTool.closeStatementSilent(preparedStatement);
+		}
+		return statements;
+	}
+
 	@Override
 	@Nullable
 	public <E extends Retrievable> E getObject(String sql, Class<E> clazz) {
@@ -199,8 +520,8 @@ public class DefaultDatabaseTool implements DatabaseTool {
 	}
 
 	/**
-	 * Implementation of the DatabaseTool read. It is important to know that CachedRowSetImpl() is 
-	 * not the best way to implement it.
+	 * Implementation of the DatabaseTool read. The rows is read into a {@link info.sollie.db.resultset.ColumnarResultSet}, 
+	 * so the whole result is kept in memory. Use {@link #iterate(String, Class, int, Object...)} for large results.
 	 * 
 	 * @see DatabaseTool#read(String)
 	 */
@@ -271,6 +592,15 @@ public class DefaultDatabaseTool implements DatabaseTool {
 	}
 
 	public int write(String sql, Object... objects) {
+		GroupCommit group = this.getGroupCommit();
+		if (group != null) {
+			try {
+				return group.write(sql, objects, objectBinder, false);
+			} catch (SQLException e1) {
+				logger.error("Could not write the statement. " + e1.getMessage());
+				return 0;
+			}
+		}
 		final long start = System.currentTimeMillis();
 		PreparedStatement preparedStatement = null;
 		Connection connection = poolManager.getConnection();
@@ -298,16 +628,20 @@ public class DefaultDatabaseTool implements DatabaseTool {
 
 	public int writeGetID(String sql, Object... objects) {
 		int autonumber = -1;
+		PreparedStatement preparedStatement = null;
+		Connection connection = poolManager.getConnection();
 		try {
-			ResultSet resultSet = this.queryRunner.query(sql + " SELECT SCOPE_IDENTITY()", new CachedResultSetHandler(), objects);
-			if (resultSet != null) {
-				while(resultSet.next()) {
-					autonumber = resultSet.getInt(1);
-				}
+			if (connection == null) {
+				throw new SQLException("Got null from connection manager. Possible error with db or all connections used.");
 			}
+			preparedStatement = GenericDatabaseTool.prepareInsert(connection, sql);
+			objectBinder.bind(preparedStatement, objects);
+			autonumber = GenericDatabaseTool.executeInsert(preparedStatement, sql);
 		} catch (SQLException e1) {
 			logger.error("Could not create a Prepared statement. " + e1.getMessage());
-		} 
+		} finally {
+			GenericDatabaseTool.closeSilent(null, preparedStatement, connection);
+		}
 		return autonumber;
 	}
 
@@ -361,7 +695,91 @@ public class DefaultDatabaseTool implements DatabaseTool {
 		return (result.size() != 0 ? result : Collections.<E>emptyList());
 	}
 
-	
+
+	@Override
+	public <E extends Retrievable> List<E> getObjectsInParallel(final String sql, final Class<E> clazz, final boolean follow,
+			final Object... objects) {
+		List<E> result = Collections.emptyList();
+		try {
+			result = this.queryRunner.query(sql, new ParallelObjectListHandler<E>(clazz, follow, this.getRetriver()), objects);
+		} catch (SQLException e1) {
+			logger.error("Some thing wrong with the SQL query. Message: " + e1.getMessage());
+		} 
+		return (result.size() != 0 ? result : Collections.<E>emptyList());
+	}
+
+	@Override
+	public <E extends Retrievable> List<E> getObjectsJoined(final Class<E> clazz, final List<String> foreignKeys, 
+			final String condition, final Object... objects) {
+		List<Field> fields = new ArrayList<Field>(foreignKeys.size());
+		for (String name : foreignKeys) {
+			fields.add(ClassMappings.get(clazz).getForeignKey(name).getField());
+		}
+		String sql = SqlGenerator.getJoinFetchSQL(clazz, fields);
+		if (condition != null) {
+			sql = sql + " " + condition;
+		}
+		List<E> result = Collections.emptyList();
+		try {
+			result = this.queryRunner.query(sql, new JoinFetchHandler<E>(clazz, fields, this.getRetriver()), objects);
+		} catch (SQLException e1) {
+			logger.error("Some thing wrong with the SQL query. Message: " + e1.getMessage());
+		} 
+		return (result.size() != 0 ? result : Collections.<E>emptyList());
+	}
+
+	@Override
+	public <E extends Retrievable> ResultSetIterator<E> iterate(final String sql, final Class<E> clazz, final int fetchSize,
+			final Object... objects) {
+		if (sql == null) {
+			throw new NullPointerException("SQL cannot be null.");
+		}
+		PreparedStatement preparedStatement = null;
+		ResultSet resultSet = null;
+		Connection connection = poolManager.getConnection();
+		try {
+			if (connection == null) {
+				throw new SQLException("Got null from connection manager. Possible error with db or all connections used.");
+			}
+			preparedStatement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			if (fetchSize > 0) {
+				preparedStatement.setFetchSize(fetchSize);
+			}
+			int index = 1;
+			for (Object object : objects) {
+				preparedStatement.setObject(index, object);
+				index++;
+			}
+			resultSet = preparedStatement.executeQuery();
+			if (logger.isTraceEnabled()) {
+				logger.trace("Streaming objects of type: " + clazz.getSimpleName() + ". Sql: " + sql);
+			}
+			return new ResultSetIterator<E>(sql, clazz, false, this.getRetriver(), resultSet, preparedStatement, connection);
+		} catch (SQLException e1) {
+			logger.error("Could not read the objects. Sql: " + sql + " Message: " + e1.getMessage());
+			GenericDatabaseTool.closeSilent(resultSet, preparedStatement);
+			try {
+				GenericDatabaseTool.closeConnection(connection);
+			} catch (SQLException e2) {
+				// Do nothing. Silent close.
+			}
+			throw new SQLError(sql, e1.getMessage(), e1);
+		}
+	}
+
+	@Override
+	public <E extends Retrievable> Stream<E> stream(final String sql, final Class<E> clazz, final int fetchSize,
+			final Object... objects) {
+		final ResultSetIterator<E> iterator = this.iterate(sql, clazz, fetchSize, objects);
+		Stream<E> stream = StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+		return stream.onClose(new Runnable() {
+			@Override
+			public void run() {
+				iterator.close();
+			}
+		});
+	}
+
 	@Override
 	@Nullable
 	public <E> E getValue(final String sql, final Class<E> clazz, final String column, final Object... objects) {
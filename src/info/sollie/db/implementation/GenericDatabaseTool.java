@@ -10,6 +10,8 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 
+import info.sollie.db.store.UnitOfWork;
+
 /**
  * Generic database tools used in common situations.
  * 
@@ -95,22 +97,78 @@ public class GenericDatabaseTool {
 	}
 
 	/**
-	 * Close a connection silent. If anything is wrong nothing happens.
+	 * Close a connection silent. If anything is wrong nothing happens. The connection of the {@link UnitOfWork} of the
+	 * thread is not closed, since it is closed by the unit of work.
 	 * @param connection to close.
 	 */
 	public static final void closeConnectionSilent(Connection connection) {
-//		Context context = Contexts.getContext(); //XXX:Whole method must be rewritten to interface.
-//		if (context != null && context instanceof PersistentContext) {
-//			PersistentContext persistentContext = (PersistentContext) context;
-//			if (!persistentContext.autoCommit()) {
-//				return; // Skip close connection if not autocommit.
-//			}
-//		}
-//		try {
-//			GenericDatabaseTool.closeConnection(connection);
-//		} catch (SQLException e) {
-//			// Do nothing. Silent close.
-//		}
+		if (UnitOfWork.isBound(connection)) {
+			return; // The connection belongs to the open unit of work, that closes it.
+		}
+		try {
+			GenericDatabaseTool.closeConnection(connection);
+		} catch (SQLException e) {
+			// Do nothing. Silent close.
+		}
+	}
+
+	/**
+	 * Prepare a INSERT that returns the new id. A INSERT that selects the id itself, with SELECT SCOPE_IDENTITY(), is 
+	 * prepared as it is. Else the id is returned as a generated key.
+	 * @param connection to prepare the statement on.
+	 * @param sql the INSERT.
+	 * @return the statement to execute with {@link #executeInsert(PreparedStatement, String)}.
+	 * @throws SQLException error if something went wrong.
+	 */
+	public static final PreparedStatement prepareInsert(Connection connection, String sql) throws SQLException {
+		if (GenericDatabaseTool.selectsID(sql)) {
+			return connection.prepareStatement(sql);
+		}
+		return connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+	}
+
+	/**
+	 * Execute a INSERT from {@link #prepareInsert(Connection, String)} and get the new id.
+	 * @param preparedStatement the INSERT with the parameters set.
+	 * @param sql the INSERT.
+	 * @return the new id or -1 if no id was returned.
+	 * @throws SQLException error if something went wrong.
+	 */
+	public static final int executeInsert(PreparedStatement preparedStatement, String sql) throws SQLException {
+		ResultSet resultSet = null;
+		try {
+			if (GenericDatabaseTool.selectsID(sql)) {
+				resultSet = preparedStatement.executeQuery();
+			} else {
+				preparedStatement.executeUpdate();
+				resultSet = preparedStatement.getGeneratedKeys();
+			}
+			if (resultSet != null && resultSet.next()) {
+				int id = resultSet.getInt(1);
+				return resultSet.wasNull() ? -1 : id;
+			}
+			return -1;
+		} finally {
+			GenericDatabaseTool.closeResultSetSilent(resultSet);
+		}
+	}
+
+	private static boolean selectsID(String sql) {
+		return sql.contains("SCOPE_IDENTITY");
+	}
+
+	/**
+	 * Rollback the transaction of a connection silent. If anything is wrong nothing happens.
+	 * @param connection to rollback.
+	 */
+	public static final void rollbackSilent(Connection connection) {
+		try {
+			if (connection != null) {
+				connection.rollback();
+			}
+		} catch (SQLException e) {
+			// Do nothing. Silent rollback.
+		}
 	}
 
 	/**
@@ -5,6 +5,15 @@ import java.sql.SQLException;
 
 import javax.sql.DataSource;
 
+import info.sollie.db.store.UnitOfWork;
+
+/**
+ * A pool manager that gives the same connection, without autocommit, to every caller on a thread while the 
+ * {@link UnitOfWork} of the thread commits. The unit of work commits and closes the connection.
+ * 
+ * @author Andre Sollie
+ *
+ */
 public class GenericTransactionalPoolManager extends GenericPoolManager {
 	
 
@@ -17,31 +26,24 @@ public class GenericTransactionalPoolManager extends GenericPoolManager {
 	 */
 	@Override
 	public Connection getConnection() {
-//		Context context = Contexts.getContext();
-//		if (context instanceof PersistentContext) {
-//			PersistentContext persistentContext = (PersistentContext) context;
-//			if (!persistentContext.autoCommit()) {
-//				Connection connection = persistentContext.getConnection();
-//				if (connection != null) {
-//					return connection;
-//				} else {
-//					connection = super.getConnection();
-//					if (connection != null) {
-//						try {
-//							connection.setAutoCommit(false);
-//						} catch (SQLException e) {
-//							//Skip.
-//						}
-//					}
-//					persistentContext.setConnection(connection);
-//					return connection;
-//				}
-//			} else {
-//				return super.getConnection(); 
-//			}
-//		} else {
-//			return super.getConnection();
-//		}
+		UnitOfWork unitOfWork = UnitOfWork.current();
+		if (unitOfWork != null && !unitOfWork.autoCommit()) {
+			Connection connection = unitOfWork.getConnection();
+			if (connection != null) {
+				return connection;
+			} else {
+				connection = super.getConnection();
+				if (connection != null) {
+					try {
+						connection.setAutoCommit(false);
+					} catch (SQLException e) {
+						//Skip.
+					}
+				}
+				unitOfWork.setConnection(connection);
+				return connection;
+			}
+		}
 		return super.getConnection();
 	}
 }
@@ -0,0 +1,295 @@
+package info.sollie.db.implementation;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import info.sollie.db.interfaces.ConnectionManager;
+import info.sollie.db.interfaces.StatementBinder;
+import info.sollie.db.interfaces.Writeable;
+import info.sollie.db.mssql.SqlGenerator;
+import info.sollie.db.mssql.WriteTemplate;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Writes statements of many threads together. Callers of the same SQL is put in a group. The first caller of a group
+ * is the leader. It waits until the group before it of the same SQL is written, and meanwhile other callers join the
+ * group. The leader writes the whole group with one connection as one JDBC batch in one transaction, and every
+ * caller returns with its own update count or new id when the group is committed.
+ *
+ * If a group fails, every statement of the group is written again by itself, so only the callers with a statement
+ * that fails gets the error.
+ *
+ * @author Andre Sollie
+ *
+ */
+final class GroupCommit {
+
+	private static final Logger logger = Logger.getLogger(GroupCommit.class);
+
+	private final ConnectionManager poolManager;
+
+	private final int maxGroupSize;
+
+	/** The group of every SQL that callers can join. Guarded by this. */
+	private final Map<String, Group> forming = new HashMap<String, Group>();
+
+	/** SQL that has a group being written. Guarded by this. */
+	private final Set<String> writing = new HashSet<String>();
+
+	/**
+	 * @param poolManager that gives the connections.
+	 * @param maxGroupSize max number of statements in a group.
+	 */
+	GroupCommit(final ConnectionManager poolManager, final int maxGroupSize) {
+		if (maxGroupSize <= 1) {
+			throw new IllegalArgumentException("Max group size must be above 1. Was " + maxGroupSize);
+		}
+		this.poolManager = poolManager;
+		this.maxGroupSize = maxGroupSize;
+	}
+
+	/**
+	 * Write a statement with other callers of the same SQL, and wait until it is committed.
+	 *
+	 * @param sql with ? parameters.
+	 * @param e the values of the parameters.
+	 * @param binder that sets the parameters.
+	 * @param insert true if the SQL is a INSERT.
+	 * @return the update count, or the new id of a INSERT.
+	 * @throws SQLException if the statement could not be written.
+	 */
+	<E> int write(final String sql, final E e, final StatementBinder<? super E> binder, final boolean insert) throws SQLException {
+		Request<E> request = new Request<E>(e, binder);
+		Group group;
+		boolean leader;
+		synchronized (this) {
+			group = this.forming.get(sql);
+			if (group == null) {
+				group = new Group(sql, insert);
+				this.forming.put(sql, group);
+			}
+			group.requests.add(request);
+			leader = group.requests.size() == 1;
+			if (group.requests.size() >= this.maxGroupSize) {
+				this.forming.remove(sql);
+			}
+		}
+		if (leader) {
+			this.lead(group);
+		} else {
+			group.await();
+		}
+		if (request.error != null) {
+			throw request.error;
+		}
+		return request.result;
+	}
+
+	private void lead(final Group group) {
+		boolean interrupted = false;
+		synchronized (this) {
+			while (this.writing.contains(group.sql)) {
+				try {
+					this.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (this.forming.get(group.sql) == group) {
+				this.forming.remove(group.sql);
+			}
+			this.writing.add(group.sql);
+		}
+		try {
+			this.write(group);
+		} finally {
+			synchronized (this) {
+				this.writing.remove(group.sql);
+				this.notifyAll();
+			}
+			group.done();
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void write(final Group group) {
+		if (group.requests.size() > 1) {
+			try {
+				this.writeGroup(group);
+				if (logger.isDebugEnabled()) {
+					logger.debug("Committed " + group.requests.size() + " statements together. Sql: " + group.sql);
+				}
+				return;
+			} catch (SQLException e) {
+				logger.warn("Could not write " + group.requests.size() + " statements together. They is written one by one. "
+						+ e.getMessage());
+			} catch (RuntimeException e) {
+				logger.warn("Could not write " + group.requests.size() + " statements together. They is written one by one. "
+						+ e.getMessage());
+			}
+		}
+		for (Request<?> request : group.requests) {
+			List<Request<?>> single = new ArrayList<Request<?>>(1);
+			single.add(request);
+			try {
+				this.writeGroup(new Group(group.sql, group.insert, single));
+			} catch (SQLException e) {
+				request.error = e;
+			} catch (RuntimeException e) {
+				request.error = new SQLException(e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Write the statements of the group in one transaction, and set the result of every request.
+	 */
+	@SuppressWarnings("unchecked")
+	private void writeGroup(final Group group) throws SQLException {
+		Connection connection = this.poolManager.getConnection();
+		if (connection == null) {
+			throw new SQLException("Got null from connection manager. Possible error with db or all connections used.");
+		}
+		PreparedStatement preparedStatement = null;
+		ResultSet resultSet = null;
+		try {
+			connection.setAutoCommit(false);
+			Request<?> first = group.requests.get(0);
+			if (group.insert && first.binder instanceof WriteTemplate && first.value instanceof Writeable) {
+				WriteTemplate template = (WriteTemplate) first.binder;
+				Class<?> type = first.value.getClass();
+				List<Writeable> rows = new ArrayList<Writeable>(group.requests.size());
+				for (Request<?> request : group.requests) {
+					rows.add((Writeable) request.value);
+				}
+				int size = template.getMaxRows();
+				for (int from = 0; from < rows.size(); from += size) {
+					List<Writeable> chunk = rows.subList(from, Math.min(from + size, rows.size()));
+					preparedStatement = connection.prepareStatement(SqlGenerator.getInsertRowsSQL(type, chunk.size()));
+					template.bindRows(preparedStatement, chunk);
+					resultSet = preparedStatement.executeQuery();
+					int count = 0;
+					while (resultSet.next()) {
+						group.requests.get(from + resultSet.getInt(SqlGenerator.ROW_NUMBER)).result = resultSet.getInt("ID");
+						count++;
+					}
+					if (count != chunk.size()) {
+						throw new SQLException("Inserted " + chunk.size() + " " + type.getSimpleName() 
+								+ " but got " + count + " ids.");
+					}
+					GenericDatabaseTool.closeSilent(resultSet, preparedStatement);
+					resultSet = null;
+					preparedStatement = null;
+				}
+			} else if (group.insert) {
+				preparedStatement = GenericDatabaseTool.prepareInsert(connection, group.sql);
+				for (Request<?> request : group.requests) {
+					((Request<Object>) request).bind(preparedStatement);
+					request.result = GenericDatabaseTool.executeInsert(preparedStatement, group.sql);
+				}
+			} else {
+				preparedStatement = connection.prepareStatement(group.sql);
+				for (Request<?> request : group.requests) {
+					((Request<Object>) request).bind(preparedStatement);
+					preparedStatement.addBatch();
+				}
+				int[] counts = preparedStatement.executeBatch();
+				for (int i = 0; i < counts.length && i < group.requests.size(); i++) {
+					group.requests.get(i).result = counts[i];
+				}
+			}
+			connection.commit();
+		} catch (SQLException e) {
+			GenericDatabaseTool.rollbackSilent(connection);
+			throw e;
+		} catch (RuntimeException e) {
+			GenericDatabaseTool.rollbackSilent(connection);
+			throw e;
+		} finally {
+			GenericDatabaseTool.closeSilent(resultSet, preparedStatement);
+			try {
+				connection.setAutoCommit(true);
+			} catch (SQLException e) {
+				// Skip.
+			}
+			GenericDatabaseTool.closeConnectionSilent(connection);
+		}
+	}
+
+	/**
+	 * A statement of a caller and its result.
+	 */
+	private static final class Request<E> {
+
+		private final E value;
+
+		private final StatementBinder<? super E> binder;
+
+		private int result;
+
+		private SQLException error;
+
+		private Request(final E value, final StatementBinder<? super E> binder) {
+			this.value = value;
+			this.binder = binder;
+		}
+
+		private void bind(final PreparedStatement statement) throws SQLException {
+			this.binder.bind(statement, this.value);
+		}
+	}
+
+	/**
+	 * The statements of the same SQL that is written together.
+	 */
+	private static final class Group {
+
+		private final String sql;
+
+		private final boolean insert;
+
+		private final List<Request<?>> requests;
+
+		private boolean done;
+
+		private Group(final String sql, final boolean insert) {
+			this(sql, insert, new ArrayList<Request<?>>());
+		}
+
+		private Group(final String sql, final boolean insert, final List<Request<?>> requests) {
+			this.sql = sql;
+			this.insert = insert;
+			this.requests = requests;
+		}
+
+		private synchronized void done() {
+			this.done = true;
+			this.notifyAll();
+		}
+
+		private synchronized void await() {
+			boolean interrupted = false;
+			while (!this.done) {
+				try {
+					this.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package info.sollie.db.interfaces;
+
+/**
+ * Keeps the last primary key a chunked job has processed, so the job can continue from there after a failure.
+ *
+ * @see info.sollie.db.store.CheckpointStores
+ */
+public interface CheckpointStore {
+
+	/**
+	 * @param job name of the job.
+	 * @return the last id that was processed, or 0 if the job has no checkpoint.
+	 */
+	public int getCheckpoint(String job);
+
+	/**
+	 * Record that every id up to and including the id is processed.
+	 *
+	 * @param job name of the job.
+	 * @param id the last id that was processed.
+	 */
+	public void saveCheckpoint(String job, int id);
+
+	/**
+	 * Remove the checkpoint. Called when the job is done, so the next run starts from the beginning.
+	 *
+	 * @param job name of the job.
+	 */
+	public void clearCheckpoint(String job);
+
+}
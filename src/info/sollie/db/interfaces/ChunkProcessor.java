@@ -0,0 +1,21 @@
+package info.sollie.db.interfaces;
+
+import java.util.List;
+
+/**
+ * Processes a table one chunk of objects at a time. Used by
+ * {@link info.sollie.db.store.PersistentStore#processInChunks(Class, int, ChunkProcessor)}.
+ *
+ * @param <E> the objects in the chunk.
+ */
+public interface ChunkProcessor<E> {
+
+	/**
+	 * Process a chunk. The chunk is ordered by the primary key. If it throws, the job stops and the
+	 * checkpoint is left at the last chunk that was processed.
+	 *
+	 * @param chunk the objects. Never empty.
+	 */
+	public void process(List<? extends E> chunk);
+
+}
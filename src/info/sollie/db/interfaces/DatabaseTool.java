@@ -5,10 +5,15 @@ package info.sollie.db.interfaces;
 
 import java.sql.ResultSet;
 import java.util.List;
+import java.util.stream.Stream;
 
+import info.sollie.db.FetchMode;
+import info.sollie.db.FetchPlan;
 import info.sollie.db.annotations.ForeignKey;
 import info.sollie.db.annotations.ManyToMany;
 import info.sollie.db.annotations.OneToMany;
+import info.sollie.db.handlers.ResultSetIterator;
+import info.sollie.db.mssql.WriteBatch;
 
 import org.apache.commons.dbutils.QueryRunner;
 
@@ -82,6 +87,18 @@ public interface DatabaseTool {
 	 * @return of all classes that is retrieved.
 	 */
 	public <E extends Retrievable> List<E> getObjects(String sql, Class<E> clazz, boolean follow);
+
+	/**
+	 * Get all objects from the database as {@link #getObjects(String, Class, boolean)}, but the relations is created 
+	 * as the {@link FetchMode} says.
+	 * 
+	 * @param sql to be executed. It must contain the amount ? as the length of the objects.
+	 * @param clazz to be retrieved.
+	 * @param mode how {@link ForeignKey}, {@link OneToMany} and {@link ManyToMany} is created.
+	 * @param objects the parameters.
+	 * @return of all classes that is retrieved.
+	 */
+	public <E extends Retrievable> List<E> getObjects(String sql, Class<E> clazz, FetchMode mode, Object... objects);
 	
 	/**
 	 * Get a single object from the database. It should retrieve all information and put it into the database. It is important
@@ -95,6 +112,56 @@ public interface DatabaseTool {
 	 * @return a instanced object.
 	 */
 	public <E extends Retrievable> E getObject(String sql, Class<E> clazz, boolean follow);
+
+	/**
+	 * Get a single object from the database as {@link #getObject(String, Class, boolean)}, but the relations is 
+	 * created as the {@link FetchMode} says.
+	 * 
+	 * @param sql to be executed. It must contain the amount ? as the length of the objects.
+	 * @param clazz to be retrieved.
+	 * @param mode how {@link ForeignKey}, {@link OneToMany} and {@link ManyToMany} is created.
+	 * @param objects the parameters.
+	 * @return a instanced object.
+	 */
+	public <E extends Retrievable> E getObject(String sql, Class<E> clazz, FetchMode mode, Object... objects);
+
+	/**
+	 * Get a single object from the database, and read the relations in the {@link FetchPlan}. Other relations is 
+	 * not read.
+	 * 
+	 * @param sql to be executed. It must contain the amount ? as the length of the objects.
+	 * @param clazz to be retrieved.
+	 * @param plan of the relations to read.
+	 * @param objects the parameters.
+	 * @return a instanced object.
+	 */
+	public <E extends Retrievable> E getObject(String sql, Class<E> clazz, FetchPlan plan, Object... objects);
+
+	/**
+	 * Get all objects from the database, and read the relations in the {@link FetchPlan} for all the objects at 
+	 * once. Other relations is not read. {@link FetchPlan.Strategy#JOIN} is read as BATCH, since the SQL is not 
+	 * generated.
+	 * 
+	 * @param sql to be executed. It must contain the amount ? as the length of the objects.
+	 * @param clazz to be retrieved.
+	 * @param plan of the relations to read.
+	 * @param objects the parameters.
+	 * @return of all classes that is retrieved.
+	 */
+	public <E extends Retrievable> List<E> getObjects(String sql, Class<E> clazz, FetchPlan plan, Object... objects);
+
+	/**
+	 * Get all objects of a class from the database, and read the relations in the {@link FetchPlan}. The 
+	 * {@link ForeignKey} fields of the class with {@link FetchPlan.Strategy#JOIN} is read with a LEFT JOIN in the 
+	 * same query, see {@link #getObjectsJoined(Class, List, String, Object...)} for the aliases.
+	 * 
+	 * @param clazz to be retrieved.
+	 * @param plan of the relations to read.
+	 * @param condition appended to the SELECT, as "WHERE t0.Status = ? ORDER BY t0.Created". Can be null.
+	 * @param objects the parameters.
+	 * @return of all classes that is retrieved.
+	 */
+	public <E extends Retrievable> List<E> getObjects(Class<E> clazz, FetchPlan plan, String condition, Object... objects);
 	
 	/**
 	 * Get a single object from the database. It should retrieve all information and put it into the database. It is important
@@ -132,6 +199,49 @@ public interface DatabaseTool {
 	 * @return a instanced object.
 	 */
 	public <E extends Writeable> void storeObject(String sql, E e);
+
+	/**
+	 * Write a object to a persistent store with a prepared statement. The parameters of the SQL is set
+	 * by the binder. If the SQL is a INSERT the new id is read as a generated key, or as the first column if the SQL
+	 * selects SCOPE_IDENTITY().
+	 * 
+	 * @param sql with ? parameters.
+	 * @param e the object to store.
+	 * @param binder that sets the parameters from the object. Can be null if the SQL has no parameters.
+	 */
+	public <E extends Writeable> void storeObject(String sql, E e, StatementBinder<? super E> binder);
+
+	/**
+	 * Write objects in batches with one connection in one transaction. The objects to update is added to a JDBC batch,
+	 * that is executed for every batch size objects. The objects to insert is written with batch size rows in every 
+	 * statement, and the new id is set on every object. The ManyToMany relations of a relations batch is written with
+	 * the statements of the objects. If a write fails the transaction is rolled back, the id of 
+	 * the inserted objects is set to 0, and nothing is written. The transaction of a open 
+	 * {@link info.sollie.db.store.UnitOfWork} is committed by the unit of work.
+	 * 
+	 * @param batches the objects and the SQL to write them with, in the order to write them.
+	 * @param batchSize number of objects in every round-trip to the database.
+	 */
+	public void storeObjects(List<? extends WriteBatch<?>> batches, int batchSize);
+
+	/**
+	 * Turn group commit on or off. With group commit, {@link #storeObject(String, Writeable, StatementBinder)} and
+	 * {@link #write(String, Object...)} of many threads with the same SQL is written together as one batch in one 
+	 * transaction. Every caller waits until its statement is committed, and gets its own update count or new id.
+	 * 
+	 * @param maxGroupSize max number of statements that is written together. 1 or less turns group commit off.
+	 */
+	public void setGroupCommit(int maxGroupSize);
+
+	/**
+	 * Set a single object from the values of a query with parameters.
+	 * 
+	 * @param sql to be executed. It must contain the amount ? as the length of the objects.
+	 * @param e the object to set the values into.
+	 * @param follow complex objects as {@link ForeignKey}, {@link OneToMany} and {@link ManyToMany} 
+	 * @param objects the parameters.
+	 */
+	public <E extends Retrievable> void setObject(String sql, E e, boolean follow, Object... objects);
 	
 	/**
 	 * This will remove a object from the database. 
@@ -181,6 +291,58 @@ public interface DatabaseTool {
 
 	public <E extends Retrievable> List<E> getObjects(String sql, Class<E> class1, Object... objects);
 
+	/**
+	 * Get all objects from the database as {@link #getObjects(String, Class, Object...)}, but the rows is mapped to
+	 * objects in parallel while the next rows is read. The objects is in the same order as the rows. Use it for
+	 * large result sets, small result sets is mapped on the calling thread.
+	 * 
+	 * @param sql to be executed. It must contain the amount ? as the length of the objects.
+	 * @param clazz to be retrieved.
+	 * @param follow complex objects as {@link ForeignKey}, {@link OneToMany} and {@link ManyToMany} 
+	 * @param objects the parameters.
+	 * @return of all classes that is retrieved.
+	 */
+	public <E extends Retrievable> List<E> getObjectsInParallel(String sql, Class<E> clazz, boolean follow, Object... objects);
+
+	/**
+	 * Get objects together with the objects of some {@link ForeignKey} fields with one query. The tables of the 
+	 * fields is joined with LEFT JOIN, so the foreign objects is not read with a query for every row. The main table
+	 * has the alias t0, and the joined tables t1, t2 and so on in the order of the fields. Other relations is not followed.
+	 * 
+	 * @param clazz to be retrieved.
+	 * @param foreignKeys names of the ForeignKey fields to join.
+	 * @param condition appended to the SELECT, as "WHERE t0.Status = ? ORDER BY t0.Created". Can be null.
+	 * @param objects the parameters.
+	 * @return of all classes that is retrieved.
+	 */
+	public <E extends Retrievable> List<E> getObjectsJoined(Class<E> clazz, List<String> foreignKeys, String condition, Object... objects);
+
+	/**
+	 * Iterate over the objects of a query without reading them into a list. The rows is read from a forward only,
+	 * read only result set and a object is created when it is needed. Complex objects is not followed.
+	 * 
+	 * The iterator keeps the connection until the last object is read or it is closed. Always close it.
+	 * 
+	 * @param sql to be executed. It must contain the amount ? as the length of the objects.
+	 * @param clazz to be retrieved.
+	 * @param fetchSize number of rows the driver should read at a time. 0 to use the default of the driver.
+	 * @param objects the parameters.
+	 * @return a iterator over the objects.
+	 */
+	public <E extends Retrievable> ResultSetIterator<E> iterate(String sql, Class<E> clazz, int fetchSize, Object... objects);
+
+	/**
+	 * Stream the objects of a query. Works as {@link #iterate(String, Class, int, Object...)}. The connection is
+	 * given back when the stream is closed, so use it in a try-with-resources.
+	 * 
+	 * @param sql to be executed. It must contain the amount ? as the length of the objects.
+	 * @param clazz to be retrieved.
+	 * @param fetchSize number of rows the driver should read at a time. 0 to use the default of the driver.
+	 * @param objects the parameters.
+	 * @return a sequential stream of the objects.
+	 */
+	public <E extends Retrievable> Stream<E> stream(String sql, Class<E> clazz, int fetchSize, Object... objects);
+
 	public <E> E getValue(final String sql, final Class<E> clazz, final String column, final Object... objects);
 	
 	public List<Object> getValues(final String sql, final Object... objects);
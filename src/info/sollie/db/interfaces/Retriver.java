@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.sql.SQLException;
+import java.util.List;
 
 /**
  * Interface for a class that is to be a database retriver. It must be able to 
@@ -22,6 +23,32 @@ public interface Retriver {
 	 * @throws InstantiationException 
 	 */
 	public <E> void createObjectForManyToManyRelation(E e, Field field, Annotation annotation) throws InstantiationException, IllegalAccessException;
+
+	/**
+	 * Create object for many to many relations for every object in a list. The relation is loaded for all the 
+	 * objects at once through the connecting table. A object that is related to more than one of the objects is
+	 * the same instance in every list.
+	 * 
+	 * @param <E> that is retrievable.
+	 * @param list of objects that owns the relation.
+	 * @param field that contains the relation.
+	 * @param annotation of the field.
+	 * @throws IllegalAccessException
+	 */
+	public <E extends Retrievable> void createObjectsForManyToManyRelation(List<E> list, Field field, Annotation annotation) throws IllegalAccessException;
+
+	/**
+	 * Set a list that reads a one to many or many to many relation the first time it is used. If the field cannot
+	 * contain the list, the relation is read now.
+	 * 
+	 * @param <E> that is retrievable.
+	 * @param e the object that owns the relation.
+	 * @param field that contains the relation.
+	 * @param annotation of the field.
+	 * @throws InstantiationException
+	 * @throws IllegalAccessException
+	 */
+	public <E extends Retrievable> void createLazyRelation(E e, Field field, Annotation annotation) throws InstantiationException, IllegalAccessException;
 	
 	/**
 	 * Create object for one to many relations. 
@@ -34,6 +61,18 @@ public interface Retriver {
 	 * @throws IllegalAccessException
 	 */
 	public <E> void createObjectForOneToManyRelation(E e, Field field,	Annotation annotation) throws InstantiationException, IllegalAccessException;
+
+	/**
+	 * Create object for one to many relations for every object in a list. The relation is loaded for all the 
+	 * objects at once, instead of one query for every object.
+	 * 
+	 * @param <E> that is retrievable.
+	 * @param list of objects that owns the relation.
+	 * @param field that contains the relation.
+	 * @param annotation of the field.
+	 * @throws IllegalAccessException
+	 */
+	public <E extends Retrievable> void createObjectsForOneToManyRelation(List<E> list, Field field, Annotation annotation) throws IllegalAccessException;
 	
 	/**
 	 * Set objects that are as ForeignKey in the database. It will not follow these objects an create the complex objects here. It means
@@ -48,6 +87,18 @@ public interface Retriver {
 	 * @throws InstantiationException
 	 */
 	public <E extends Retrievable> Object setForeignObject(Field field, Object object, E e, boolean follow) throws IllegalAccessException, InstantiationException;
+
+	/**
+	 * Load the foreign objects of a field for every object in a list. The objects must have the foreign object set 
+	 * with only the ID, as {@link #setForeignObject(Field, Object, Retrievable, boolean)} does when it does not follow. 
+	 * Every referenced object is loaded once and the same instance is set into every object that references it.
+	 * 
+	 * @param <E> that is retrievable.
+	 * @param field that is a foreign key.
+	 * @param list of objects to set the field in.
+	 * @throws IllegalAccessException
+	 */
+	public <E extends Retrievable> void setForeignObjects(Field field, List<E> list) throws IllegalAccessException;
 	
 	/**
 	 * @param <E>
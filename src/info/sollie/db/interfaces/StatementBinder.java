@@ -0,0 +1,22 @@
+package info.sollie.db.interfaces;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Binds the values of a object to the parameters of a prepared statement.
+ *
+ * @param <E> the object to bind.
+ */
+public interface StatementBinder<E> {
+
+	/**
+	 * Set the parameters of the statement from the object.
+	 *
+	 * @param statement with ? parameters.
+	 * @param e the object that contains the values.
+	 * @throws SQLException if a parameter could not be set.
+	 */
+	public void bind(PreparedStatement statement, E e) throws SQLException;
+
+}
@@ -0,0 +1,61 @@
+package info.sollie.db.mapping;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import info.sollie.db.interfaces.Retrievable;
+import info.sollie.db.interfaces.Retriver;
+
+/**
+ * A {@link Retriver} that sets the fields through the {@link FieldAccessor} of the column. {@link FieldMapping} uses
+ * these methods when the retriver implements them, so the accessor is looked up once for every column and primitive
+ * fields can be set without boxing. Other retrivers is called with the {@link java.lang.reflect.Field}.
+ *
+ */
+public interface AccessorRetriver extends Retriver {
+
+	/**
+	 * As {@link Retriver#setForeignObject(java.lang.reflect.Field, Object, Retrievable, boolean)}.
+	 */
+	public <E extends Retrievable> Object setForeignObject(FieldAccessor accessor, Object object, E e, boolean follow) throws IllegalAccessException, InstantiationException;
+
+	/**
+	 * As {@link Retriver#setBigInt(java.lang.reflect.Field, Object, Object)}.
+	 */
+	public <E> Object setBigInt(FieldAccessor accessor, Object object, E e) throws IllegalAccessException;
+
+	/**
+	 * As {@link Retriver#setBoolean(java.lang.reflect.Field, Object, Object)}.
+	 */
+	public <E> Object setBoolean(FieldAccessor accessor, Object object, E e) throws IllegalAccessException;
+
+	/**
+	 * As {@link Retriver#setClob(java.lang.reflect.Field, Object, Object)}.
+	 */
+	public <E> Object setClob(FieldAccessor accessor, Object object, E e) throws IOException, SQLException, IllegalAccessException;
+
+	/**
+	 * As {@link Retriver#setVarchar(java.lang.reflect.Field, Object, Object)}.
+	 */
+	public <E> Object setVarchar(FieldAccessor accessor, Object object, E e) throws IllegalAccessException;
+
+	/**
+	 * As {@link Retriver#setTimeStamp(java.lang.reflect.Field, Object, Object)}.
+	 */
+	public <E> Object setTimeStamp(FieldAccessor accessor, Object object, E e) throws IllegalAccessException;
+
+	/**
+	 * As {@link Retriver#setNumericAndDecimal(java.lang.reflect.Field, Object, Object)}.
+	 */
+	public <E> Object setNumericAndDecimal(FieldAccessor accessor, Object object, E e) throws IllegalAccessException;
+
+	/**
+	 * As {@link Retriver#setDouble(java.lang.reflect.Field, Object, Object)}.
+	 */
+	public <E> Object setDouble(FieldAccessor accessor, Object object, E e) throws IllegalAccessException;
+
+	/**
+	 * As {@link Retriver#setInteger(java.lang.reflect.Field, Object, Object)}.
+	 */
+	public <E> Object setInteger(FieldAccessor accessor, Object object, E e) throws IllegalAccessException;
+}
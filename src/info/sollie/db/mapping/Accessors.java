@@ -0,0 +1,163 @@
+package info.sollie.db.mapping;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Thread safe registry of {@link FieldAccessor} and {@link Instantiator}. They are made the first time a
+ * field or class is used, and replaces {@link Field#set(Object, Object)} and {@link Class#newInstance()}
+ * when objects is created from the database.
+ *
+ */
+public final class Accessors {
+
+	private static final Logger logger = Logger.getLogger(Accessors.class);
+
+	private static final ConcurrentMap<Field, FieldAccessor> accessors = new ConcurrentHashMap<Field, FieldAccessor>();
+
+	private static final ConcurrentMap<Class<?>, Instantiator<?>> instantiators = new ConcurrentHashMap<Class<?>, Instantiator<?>>();
+
+	/** Static method factory */
+	private Accessors() {
+	}
+
+	/**
+	 * Get the accessor of a field.
+	 *
+	 * @param field to get the accessor for.
+	 * @return the accessor.
+	 * @throws IllegalAccessException if the field cannot be accessed.
+	 */
+	public static FieldAccessor get(final Field field) throws IllegalAccessException {
+		FieldAccessor accessor = accessors.get(field);
+		if (accessor == null) {
+			accessor = new FieldAccessor(field);
+			FieldAccessor existing = accessors.putIfAbsent(field, accessor);
+			if (existing != null) {
+				accessor = existing;
+			}
+		}
+		return accessor;
+	}
+
+	/**
+	 * Get the instantiator of a class. It calls the default constructor of the class.
+	 *
+	 * @param clazz to create instances of.
+	 * @return the instantiator.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E> Instantiator<E> instantiator(final Class<E> clazz) {
+		if (clazz == null) {
+			throw new IllegalArgumentException("Class cannot be null");
+		}
+		Instantiator<E> instantiator = (Instantiator<E>) instantiators.get(clazz);
+		if (instantiator == null) {
+			instantiator = Accessors.createInstantiator(clazz);
+			Instantiator<E> existing = (Instantiator<E>) instantiators.putIfAbsent(clazz, instantiator);
+			if (existing != null) {
+				instantiator = existing;
+			}
+		}
+		return instantiator;
+	}
+
+	/**
+	 * Create a new instance of a class with the default constructor.
+	 *
+	 * @param clazz to create a instance of.
+	 * @return the new instance.
+	 */
+	public static <E> E newInstance(final Class<E> clazz) throws InstantiationException, IllegalAccessException {
+		return Accessors.instantiator(clazz).newInstance();
+	}
+
+	private static <E> Instantiator<E> createInstantiator(final Class<E> clazz) {
+		if (clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers()) || clazz.isPrimitive() || clazz.isArray()) {
+			return new FailingInstantiator<E>("Class is not a concrete class: " + clazz.getName());
+		}
+		Constructor<E> constructor;
+		try {
+			constructor = clazz.getDeclaredConstructor();
+		} catch (NoSuchMethodException e) {
+			return new FailingInstantiator<E>("Class has no default constructor: " + clazz.getName());
+		}
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		if (Modifier.isPublic(clazz.getModifiers()) && Modifier.isPublic(constructor.getModifiers())) {
+			try {
+				MethodHandle handle = lookup.findConstructor(clazz, MethodType.methodType(void.class));
+				CallSite site = LambdaMetafactory.metafactory(lookup, "newInstance", MethodType.methodType(Instantiator.class),
+						MethodType.methodType(Object.class), handle, MethodType.methodType(clazz));
+				@SuppressWarnings("unchecked")
+				Instantiator<E> instantiator = (Instantiator<E>) site.getTarget().invoke();
+				return instantiator;
+			} catch (Throwable e) {
+				logger.debug("Could not create a lambda constructor for " + clazz.getName() + ". Will use a method handle.", e);
+			}
+		}
+		try {
+			constructor.setAccessible(true);
+			MethodHandle handle = lookup.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+			return new HandleInstantiator<E>(handle);
+		} catch (IllegalAccessException e) {
+			return new FailingInstantiator<E>("Cannot access the constructor of " + clazz.getName());
+		} catch (RuntimeException e) {
+			return new FailingInstantiator<E>("Cannot access the constructor of " + clazz.getName() + ". " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Instantiator that calls a constructor through a method handle. Used if the class or the constructor is not public.
+	 */
+	private static final class HandleInstantiator<E> implements Instantiator<E> {
+
+		private final MethodHandle handle;
+
+		private HandleInstantiator(final MethodHandle handle) {
+			this.handle = handle;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public E newInstance() throws InstantiationException {
+			try {
+				return (E) (Object) this.handle.invokeExact();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				InstantiationException exception = new InstantiationException(e.getMessage());
+				exception.initCause(e);
+				throw exception;
+			}
+		}
+	}
+
+	/**
+	 * Instantiator for classes that cannot be created.
+	 */
+	private static final class FailingInstantiator<E> implements Instantiator<E> {
+
+		private final String message;
+
+		private FailingInstantiator(final String message) {
+			this.message = message;
+		}
+
+		@Override
+		public E newInstance() throws InstantiationException {
+			throw new InstantiationException(this.message);
+		}
+	}
+}
@@ -0,0 +1,222 @@
+package info.sollie.db.mapping;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import info.sollie.db.Nullable;
+import info.sollie.db.annotations.ManyToMany;
+import info.sollie.db.annotations.OneToMany;
+
+/**
+ * Reflection metadata for a class that is read from the database. It is resolved once per class and
+ * keeps a {@link RowPlan} for every result set shape that has been mapped into the class.
+ *
+ * Use {@link ClassMappings#get(Class)} to get the mapping of a class.
+ *
+ */
+public final class ClassMapping<E> {
+
+	/** Max number of different result set shapes to keep plans for. */
+	private static final int MAX_PLANS = 64;
+
+	private final Class<E> type;
+
+	/** Column name in lower case to the field. First match in the class hierarchy wins. */
+	private final Map<String, FieldMapping> columns;
+
+	/** Every database field in the class hierarchy. */
+	private final List<FieldMapping> fields;
+
+	/** Fields with {@link OneToMany} or {@link ManyToMany} relations. */
+	private final List<RelationMapping> relations;
+
+	private final ConcurrentMap<String, RowPlan> plans = new ConcurrentHashMap<String, RowPlan>();
+
+	ClassMapping(final Class<E> type) {
+		this.type = type;
+		Map<String, FieldMapping> columns = new HashMap<String, FieldMapping>();
+		List<FieldMapping> fields = new ArrayList<FieldMapping>();
+		Class<?> clazz = type;
+		while (clazz != null && !clazz.equals(Object.class)) {
+			for (Field field : clazz.getDeclaredFields()) {
+				FieldMapping mapping = new FieldMapping(field);
+				ClassMapping.putIfAbsent(columns, field.getName(), mapping);
+				if (mapping.getType() != null) {
+					ClassMapping.putIfAbsent(columns, mapping.getColumnName(), mapping);
+					fields.add(mapping);
+				}
+			}
+			clazz = clazz.getSuperclass();
+		}
+		this.columns = columns;
+		this.fields = Collections.unmodifiableList(fields);
+		this.relations = Collections.unmodifiableList(ClassMapping.findRelations(type));
+	}
+
+	private static void putIfAbsent(final Map<String, FieldMapping> columns, final String name, final FieldMapping mapping) {
+		String key = name.toLowerCase(Locale.ENGLISH);
+		if (!columns.containsKey(key)) {
+			columns.put(key, mapping);
+		}
+	}
+
+	private static List<RelationMapping> findRelations(final Class<?> type) {
+		List<RelationMapping> result = new ArrayList<RelationMapping>();
+		for (Field field : type.getDeclaredFields()) {
+			if (field.getType().equals(List.class)) {
+				for (Annotation annotation : field.getAnnotations()) {
+					if (annotation instanceof OneToMany || annotation instanceof ManyToMany) {
+						field.setAccessible(true);
+						result.add(new RelationMapping(field, annotation));
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get the plan for a result set. Plans is cached on the names and SQL types of the columns, so it is
+	 * only resolved the first time a shape is seen. The SQL types decides which columns is read with
+	 * typed getters.
+	 *
+	 * @param metaData of the result set.
+	 * @return the plan for mapping rows into this class.
+	 * @throws SQLException if the meta data could not be read.
+	 */
+	public RowPlan getPlan(final ResultSetMetaData metaData) throws SQLException {
+		return this.getPlan(metaData, 1, metaData.getColumnCount());
+	}
+
+	/**
+	 * Get the plan for a part of a result set, as {@link #getPlan(ResultSetMetaData)}. The columns outside the part
+	 * is not bound. Used when a row contains more than one object, as in a join.
+	 *
+	 * @param metaData of the result set.
+	 * @param from first column of the part. Starts at 1.
+	 * @param to last column of the part.
+	 * @return the plan for mapping the part of the rows into this class.
+	 * @throws SQLException if the meta data could not be read.
+	 */
+	public RowPlan getPlan(final ResultSetMetaData metaData, final int from, final int to) throws SQLException {
+		int columnCount = metaData.getColumnCount();
+		String[] names = new String[columnCount];
+		int[] types = new int[columnCount];
+		for (int i = from; i <= to; i++) {
+			names[i - 1] = metaData.getColumnName(i);
+			types[i - 1] = metaData.getColumnType(i);
+		}
+		return this.getPlan(names, types);
+	}
+
+	/**
+	 * Get the plan for a list of column names. Every value is read as a object and converted by the retriver.
+	 *
+	 * @param names of the columns. Index 0 is column 1.
+	 * @return the plan for mapping rows into this class.
+	 */
+	public RowPlan getPlan(final String[] names) {
+		return this.getPlan(names, null);
+	}
+
+	private RowPlan getPlan(final String[] names, final int[] types) {
+		StringBuilder key = new StringBuilder(names.length * 16);
+		for (int i = 0; i < names.length; i++) {
+			key.append(names[i]);
+			if (types != null) {
+				key.append(':').append(types[i]);
+			}
+			key.append(',');
+		}
+		String shape = key.toString();
+		RowPlan plan = this.plans.get(shape);
+		if (plan == null) {
+			FieldMapping[] bindings = new FieldMapping[names.length];
+			ColumnReader[] readers = new ColumnReader[names.length];
+			for (int i = 0; i < names.length; i++) {
+				bindings[i] = this.getColumn(names[i]);
+				if (bindings[i] != null && types != null) {
+					readers[i] = ColumnReader.of(bindings[i], types[i]);
+				}
+			}
+			plan = new RowPlan(bindings, readers);
+			if (this.plans.size() < MAX_PLANS) {
+				RowPlan existing = this.plans.putIfAbsent(shape, plan);
+				if (existing != null) {
+					plan = existing;
+				}
+			}
+		}
+		return plan;
+	}
+
+	/**
+	 * @param columnName name of the column. Not case sensitive.
+	 * @return the field that the column is set into or null if no field match.
+	 */
+	@Nullable
+	public FieldMapping getColumn(final String columnName) {
+		if (columnName == null) {
+			return null;
+		}
+		return this.columns.get(columnName.toLowerCase(Locale.ENGLISH));
+	}
+
+	/**
+	 * @param name of a {@link info.sollie.db.annotations.ForeignKey} field or its column. Not case sensitive.
+	 * @return the field.
+	 * @throws IllegalArgumentException if the class has no foreign key with the name.
+	 */
+	public FieldMapping getForeignKey(final String name) {
+		FieldMapping mapping = this.getColumn(name);
+		if (mapping == null || mapping.getType() != ColumnType.FOREIGN_KEY) {
+			throw new IllegalArgumentException(name + " is not a ForeignKey field of " + this.type.getSimpleName());
+		}
+		return mapping;
+	}
+
+	/**
+	 * @param name of a {@link OneToMany} or {@link ManyToMany} field.
+	 * @return the relation or null if the class has no relation with the name.
+	 */
+	@Nullable
+	public RelationMapping getRelation(final String name) {
+		for (RelationMapping relation : this.relations) {
+			if (relation.getField().getName().equals(name)) {
+				return relation;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the class.
+	 */
+	public Class<E> getType() {
+		return this.type;
+	}
+
+	/**
+	 * @return every field with a database annotation in the class and the super classes.
+	 */
+	public List<FieldMapping> getFields() {
+		return this.fields;
+	}
+
+	/**
+	 * @return the fields with {@link OneToMany} and {@link ManyToMany} relations.
+	 */
+	public List<RelationMapping> getRelations() {
+		return this.relations;
+	}
+}
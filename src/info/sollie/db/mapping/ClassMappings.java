@@ -0,0 +1,40 @@
+package info.sollie.db.mapping;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread safe registry of {@link ClassMapping}. The reflection of a class is only done the first time
+ * the class is used.
+ *
+ */
+public final class ClassMappings {
+
+	private static final ConcurrentMap<Class<?>, ClassMapping<?>> mappings = new ConcurrentHashMap<Class<?>, ClassMapping<?>>();
+
+	/** Static method factory */
+	private ClassMappings() {
+	}
+
+	/**
+	 * Get the mapping of a class.
+	 *
+	 * @param clazz to get the mapping for.
+	 * @return the mapping. Never null.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E> ClassMapping<E> get(final Class<E> clazz) {
+		if (clazz == null) {
+			throw new IllegalArgumentException("Class cannot be null");
+		}
+		ClassMapping<E> mapping = (ClassMapping<E>) mappings.get(clazz);
+		if (mapping == null) {
+			mapping = new ClassMapping<E>(clazz);
+			ClassMapping<E> existing = (ClassMapping<E>) mappings.putIfAbsent(clazz, mapping);
+			if (existing != null) {
+				mapping = existing;
+			}
+		}
+		return mapping;
+	}
+}
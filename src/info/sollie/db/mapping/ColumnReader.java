@@ -0,0 +1,212 @@
+package info.sollie.db.mapping;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import info.sollie.db.Nullable;
+
+/**
+ * Reads a column with a typed getter and sets it into a field without going through
+ * {@link ResultSet#getObject(int)}. The reader is chosen once per column when the {@link RowPlan} is made,
+ * from the annotation and type of the field and the SQL type of the column. Primitive columns is set
+ * without boxing.
+ *
+ * Null values is checked with {@link ResultSet#wasNull()}. The field gets the default value where the
+ * {@link info.sollie.db.interfaces.Retriver} sets one, and is left as it is where null cannot be set.
+ *
+ */
+enum ColumnReader {
+
+	/** int field from a integer column. Null is 0. */
+	INT {
+		@Override
+		void read(final ResultSet resultSet, final int column, final FieldAccessor accessor, final Object target)
+				throws SQLException, IllegalAccessException {
+			accessor.setInt(target, resultSet.getInt(column));
+		}
+	},
+
+	/** int field from a bigint column. Null leaves the field as it is. */
+	LONG_AS_INT {
+		@Override
+		void read(final ResultSet resultSet, final int column, final FieldAccessor accessor, final Object target)
+				throws SQLException, IllegalAccessException {
+			long value = resultSet.getLong(column);
+			if (!resultSet.wasNull()) {
+				accessor.setInt(target, (int) value);
+			}
+		}
+	},
+
+	/** long field from a bigint column. Null leaves the field as it is. */
+	LONG {
+		@Override
+		void read(final ResultSet resultSet, final int column, final FieldAccessor accessor, final Object target)
+				throws SQLException, IllegalAccessException {
+			long value = resultSet.getLong(column);
+			if (!resultSet.wasNull()) {
+				accessor.setLong(target, value);
+			}
+		}
+	},
+
+	/** double field from a float or decimal column. Null is 0. */
+	DOUBLE {
+		@Override
+		void read(final ResultSet resultSet, final int column, final FieldAccessor accessor, final Object target)
+				throws SQLException, IllegalAccessException {
+			accessor.setDouble(target, resultSet.getDouble(column));
+		}
+	},
+
+	/** double field from a numeric or real column. Null leaves the field as it is. */
+	NULLABLE_DOUBLE {
+		@Override
+		void read(final ResultSet resultSet, final int column, final FieldAccessor accessor, final Object target)
+				throws SQLException, IllegalAccessException {
+			double value = resultSet.getDouble(column);
+			if (!resultSet.wasNull()) {
+				accessor.setDouble(target, value);
+			}
+		}
+	},
+
+	/** float field from a real column. Null leaves the field as it is. */
+	FLOAT {
+		@Override
+		void read(final ResultSet resultSet, final int column, final FieldAccessor accessor, final Object target)
+				throws SQLException, IllegalAccessException {
+			float value = resultSet.getFloat(column);
+			if (!resultSet.wasNull()) {
+				accessor.setFloat(target, value);
+			}
+		}
+	},
+
+	/** boolean field from a bit column. Null is false. */
+	BOOLEAN {
+		@Override
+		void read(final ResultSet resultSet, final int column, final FieldAccessor accessor, final Object target)
+				throws SQLException, IllegalAccessException {
+			accessor.setBoolean(target, resultSet.getBoolean(column));
+		}
+	},
+
+	/** boolean field from a integer column where 1 is true. Null is false. */
+	INT_AS_BOOLEAN {
+		@Override
+		void read(final ResultSet resultSet, final int column, final FieldAccessor accessor, final Object target)
+				throws SQLException, IllegalAccessException {
+			accessor.setBoolean(target, resultSet.getInt(column) == 1);
+		}
+	},
+
+	/** String field from a character column. */
+	STRING {
+		@Override
+		void read(final ResultSet resultSet, final int column, final FieldAccessor accessor, final Object target)
+				throws SQLException, IllegalAccessException {
+			accessor.set(target, resultSet.getString(column));
+		}
+	},
+
+	/** Date or Timestamp field from a timestamp column. */
+	TIMESTAMP {
+		@Override
+		void read(final ResultSet resultSet, final int column, final FieldAccessor accessor, final Object target)
+				throws SQLException, IllegalAccessException {
+			accessor.set(target, resultSet.getTimestamp(column));
+		}
+	};
+
+	/**
+	 * Read the column of the current row and set it into the field.
+	 *
+	 * @param resultSet positioned at the row.
+	 * @param column index starting at 1.
+	 * @param accessor of the field.
+	 * @param target the object that contains the field.
+	 */
+	abstract void read(ResultSet resultSet, int column, FieldAccessor accessor, Object target)
+			throws SQLException, IllegalAccessException;
+
+	/**
+	 * Choose the reader of a column.
+	 *
+	 * @param mapping of the field.
+	 * @param sqlType the {@link Types} of the column.
+	 * @return the reader or null if the value must be converted by the retriver.
+	 */
+	@Nullable
+	static ColumnReader of(final FieldMapping mapping, final int sqlType) {
+		ColumnType columnType = mapping.getType();
+		if (columnType == null || mapping.getAccessor() == null) {
+			return null;
+		}
+		Class<?> type = mapping.getField().getType();
+		switch (columnType) {
+		case INTEGER:
+			if (type == int.class && ColumnReader.isInteger(sqlType)) {
+				return INT;
+			} else if (type == boolean.class && ColumnReader.isInteger(sqlType)) {
+				return INT_AS_BOOLEAN;
+			}
+			return null;
+		case BIGINT:
+			if (type == long.class && ColumnReader.isInteger(sqlType)) {
+				return LONG;
+			} else if (type == int.class && ColumnReader.isInteger(sqlType)) {
+				return LONG_AS_INT;
+			}
+			return null;
+		case DOUBLE:
+			if (type == double.class && ColumnReader.isNumber(sqlType)) {
+				return DOUBLE;
+			}
+			return null;
+		case NUMERIC:
+		case REAL:
+			if (type == double.class && ColumnReader.isNumber(sqlType)) {
+				return NULLABLE_DOUBLE;
+			} else if (type == float.class && columnType == ColumnType.REAL && ColumnReader.isNumber(sqlType)) {
+				return FLOAT;
+			}
+			return null;
+		case BOOLEAN:
+			if (type == boolean.class && (sqlType == Types.BIT || sqlType == Types.BOOLEAN)) {
+				return BOOLEAN;
+			} else if (type == boolean.class && ColumnReader.isInteger(sqlType)) {
+				return INT_AS_BOOLEAN;
+			}
+			return null;
+		case VARCHAR:
+		case CLOB:
+			if (type == String.class && ColumnReader.isCharacter(sqlType)) {
+				return STRING;
+			}
+			return null;
+		case TIMESTAMP:
+			if ((type == java.util.Date.class || type == java.sql.Timestamp.class) && sqlType == Types.TIMESTAMP) {
+				return TIMESTAMP;
+			}
+			return null;
+		default:
+			return null;
+		}
+	}
+
+	private static boolean isInteger(final int sqlType) {
+		return sqlType == Types.INTEGER || sqlType == Types.SMALLINT || sqlType == Types.TINYINT || sqlType == Types.BIGINT;
+	}
+
+	private static boolean isNumber(final int sqlType) {
+		return ColumnReader.isInteger(sqlType) || sqlType == Types.DOUBLE || sqlType == Types.FLOAT || sqlType == Types.REAL
+				|| sqlType == Types.NUMERIC || sqlType == Types.DECIMAL;
+	}
+
+	private static boolean isCharacter(final int sqlType) {
+		return sqlType == Types.CHAR || sqlType == Types.VARCHAR || sqlType == Types.LONGVARCHAR || sqlType == Types.NCHAR
+				|| sqlType == Types.NVARCHAR || sqlType == Types.LONGNVARCHAR;
+	}
+}
@@ -0,0 +1,84 @@
+package info.sollie.db.mapping;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+
+import info.sollie.db.Nullable;
+import info.sollie.db.annotations.BigInt;
+import info.sollie.db.annotations.Clob;
+import info.sollie.db.annotations.DBBoolean;
+import info.sollie.db.annotations.DBDouble;
+import info.sollie.db.annotations.DBInteger;
+import info.sollie.db.annotations.Decimal;
+import info.sollie.db.annotations.ForeignKey;
+import info.sollie.db.annotations.Numeric;
+import info.sollie.db.annotations.Real;
+import info.sollie.db.annotations.Timestamp;
+import info.sollie.db.annotations.Varchar;
+
+/**
+ * The kind of database column a field is annotated as. Decides which {@link info.sollie.db.interfaces.Retriver}
+ * conversion is used when a value is set into the field.
+ *
+ */
+public enum ColumnType {
+	INTEGER,
+	DOUBLE,
+	REAL,
+	NUMERIC,
+	TIMESTAMP,
+	VARCHAR,
+	CLOB,
+	BOOLEAN,
+	BIGINT,
+	FOREIGN_KEY;
+
+	/**
+	 * Get the column type of a annotation.
+	 *
+	 * @param annotation to check.
+	 * @return the column type or null if it is not a database annotation.
+	 */
+	@Nullable
+	public static ColumnType of(final Annotation annotation) {
+		if (annotation instanceof DBInteger) {
+			return INTEGER;
+		} else if (annotation instanceof DBDouble) {
+			return DOUBLE;
+		} else if (annotation instanceof Real) {
+			return REAL;
+		} else if (annotation instanceof Numeric || annotation instanceof Decimal) {
+			return NUMERIC;
+		} else if (annotation instanceof Timestamp) {
+			return TIMESTAMP;
+		} else if (annotation instanceof Varchar) {
+			return VARCHAR;
+		} else if (annotation instanceof Clob) {
+			return CLOB;
+		} else if (annotation instanceof DBBoolean) {
+			return BOOLEAN;
+		} else if (annotation instanceof BigInt) {
+			return BIGINT;
+		} else if (annotation instanceof ForeignKey) {
+			return FOREIGN_KEY;
+		}
+		return null;
+	}
+
+	/**
+	 * Get the column type of a field. The first database annotation on the field is used.
+	 *
+	 * @param field to check.
+	 * @return the column type or null if the field is not a database field.
+	 */
+	@Nullable
+	public static ColumnType of(final Field field) {
+		for (Annotation annotation : field.getDeclaredAnnotations()) {
+			ColumnType type = ColumnType.of(annotation);
+			if (type != null) {
+				return type;
+			}
+		}
+		return null;
+	}
+}
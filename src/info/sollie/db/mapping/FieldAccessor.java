@@ -0,0 +1,221 @@
+package info.sollie.db.mapping;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Reads and writes a field with method handles. The handles is made once for every field and is typed
+ * so that int, long, double, float and boolean fields can be set without boxing.
+ *
+ * Use {@link Accessors#get(Field)} to get the accessor of a field.
+ *
+ */
+public final class FieldAccessor {
+
+	private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+
+	private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private final Field field;
+
+	private final Class<?> type;
+
+	private final MethodHandle getter;
+
+	private final MethodHandle setter;
+
+	/** Setter without boxing. Only set if the field is of the same primitive type. */
+	private final MethodHandle primitiveSetter;
+
+	FieldAccessor(final Field field) throws IllegalAccessException {
+		field.setAccessible(true);
+		this.field = field;
+		this.type = field.getType();
+		if (Modifier.isStatic(field.getModifiers())) {
+			this.getter = null;
+			this.setter = null;
+			this.primitiveSetter = null;
+		} else {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			this.getter = lookup.unreflectGetter(field).asType(GETTER);
+			MethodHandle exact = lookup.unreflectSetter(field);
+			this.setter = exact.asType(SETTER);
+			if (this.type.isPrimitive()) {
+				this.primitiveSetter = exact.asType(MethodType.methodType(void.class, Object.class, this.type));
+			} else {
+				this.primitiveSetter = null;
+			}
+		}
+	}
+
+	/**
+	 * Get the value of the field.
+	 *
+	 * @param target the object that contains the field.
+	 * @return the value. Primitive values is boxed.
+	 */
+	public Object get(final Object target) throws IllegalAccessException {
+		if (this.getter == null) {
+			return this.field.get(target);
+		}
+		try {
+			return (Object) this.getter.invokeExact(target);
+		} catch (ClassCastException e) {
+			throw new IllegalArgumentException("Can not get field " + this.field.getName() + " from " + target, e);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Set the value of the field. Primitive fields is unboxed.
+	 *
+	 * @param target the object that contains the field.
+	 * @param value to set.
+	 * @throws IllegalArgumentException if the value does not match the type of the field.
+	 */
+	public void set(final Object target, final Object value) throws IllegalAccessException {
+		if (this.setter == null) {
+			this.field.set(target, value);
+			return;
+		}
+		try {
+			this.setter.invokeExact(target, value);
+		} catch (ClassCastException e) {
+			throw this.illegalValue(value, e);
+		} catch (NullPointerException e) {
+			if (target == null) {
+				throw e;
+			}
+			throw this.illegalValue(value, e);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Set a int without boxing if the field is a int.
+	 */
+	public void setInt(final Object target, final int value) throws IllegalAccessException {
+		if (this.type != int.class || this.primitiveSetter == null) {
+			this.set(target, Integer.valueOf(value));
+			return;
+		}
+		try {
+			this.primitiveSetter.invokeExact(target, value);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Set a long without boxing if the field is a long.
+	 */
+	public void setLong(final Object target, final long value) throws IllegalAccessException {
+		if (this.type != long.class || this.primitiveSetter == null) {
+			this.set(target, Long.valueOf(value));
+			return;
+		}
+		try {
+			this.primitiveSetter.invokeExact(target, value);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Set a double without boxing if the field is a double.
+	 */
+	public void setDouble(final Object target, final double value) throws IllegalAccessException {
+		if (this.type != double.class || this.primitiveSetter == null) {
+			this.set(target, Double.valueOf(value));
+			return;
+		}
+		try {
+			this.primitiveSetter.invokeExact(target, value);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Set a float without boxing if the field is a float.
+	 */
+	public void setFloat(final Object target, final float value) throws IllegalAccessException {
+		if (this.type != float.class || this.primitiveSetter == null) {
+			this.set(target, Float.valueOf(value));
+			return;
+		}
+		try {
+			this.primitiveSetter.invokeExact(target, value);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Set a boolean without boxing if the field is a boolean.
+	 */
+	public void setBoolean(final Object target, final boolean value) throws IllegalAccessException {
+		if (this.type != boolean.class || this.primitiveSetter == null) {
+			this.set(target, Boolean.valueOf(value));
+			return;
+		}
+		try {
+			this.primitiveSetter.invokeExact(target, value);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private IllegalArgumentException illegalValue(final Object value, final RuntimeException cause) {
+		String valueType = value == null ? "null" : value.getClass().getName();
+		return new IllegalArgumentException("Can not set " + this.type.getName() + " field " + this.field.getName() + " to "
+				+ valueType, cause);
+	}
+
+	/**
+	 * @return the field.
+	 */
+	public Field getField() {
+		return this.field;
+	}
+
+	/**
+	 * @return the type of the field.
+	 */
+	public Class<?> getType() {
+		return this.type;
+	}
+}
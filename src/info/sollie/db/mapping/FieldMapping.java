@@ -0,0 +1,244 @@
+package info.sollie.db.mapping;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import info.sollie.db.Nullable;
+import info.sollie.db.annotations.ForeignKey;
+import info.sollie.db.interfaces.Retrievable;
+import info.sollie.db.interfaces.Retriver;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A resolved binding between a column and a field in a class. The field is made accessible and the
+ * annotation is resolved once, so setting a value does no annotation scanning.
+ *
+ */
+public final class FieldMapping {
+
+	private static final Logger logger = Logger.getLogger(FieldMapping.class);
+
+	private final Field field;
+
+	private final ColumnType type;
+
+	private final String columnName;
+
+	private final FieldAccessor accessor;
+
+	public FieldMapping(final Field field) {
+		field.setAccessible(true);
+		this.field = field;
+		FieldAccessor accessor = null;
+		try {
+			accessor = Accessors.get(field);
+		} catch (IllegalAccessException e) {
+			logger.debug("Could not create a accessor for " + field.getName() + ". Will use reflection.", e);
+		}
+		this.accessor = accessor;
+		this.type = ColumnType.of(field);
+		ForeignKey foreignKey = field.getAnnotation(ForeignKey.class);
+		if (this.type == ColumnType.FOREIGN_KEY && foreignKey != null) {
+			this.columnName = foreignKey.id();
+		} else {
+			this.columnName = field.getName();
+		}
+	}
+
+	/**
+	 * Set a value from the database into the field. The value is converted by the retriver based on the
+	 * annotation of the field. Fields that is not a database field is not touched. Errors is logged and
+	 * the field is left as it is.
+	 *
+	 * @param retriver that converts the value.
+	 * @param object the value from the database.
+	 * @param e the object that contains the field.
+	 * @param follow complex objects.
+	 */
+	public <E extends Retrievable> void set(final Retriver retriver, final Object object, final E e, final boolean follow) {
+		if (this.type == null) {
+			return;
+		}
+		try {
+			this.convert(retriver, object, e, follow);
+		} catch (SecurityException e1) {
+			logger.error("Some fields does not have access.", e1);
+		} catch (IllegalArgumentException e1) {
+			logger.error("IllegalArgument. Message: " + e1.getMessage());
+		} catch (IllegalAccessException e1) {
+			logger.error("Cannot access the field. Message: " + e1.getMessage());
+		} catch (IOException e1) {
+			logger.error("Some IO exception when creating objects", e1);
+		} catch (SQLException e1) {
+			logger.error("Error with retriving the object from SQL. Message: " + e1.getMessage());
+		} catch (InstantiationException e1) {
+			logger.error("Could not instaniate class.", e1);
+		}
+	}
+
+	/**
+	 * Read a column with a typed getter and set it into the field. Errors is logged and the field is left
+	 * as it is.
+	 *
+	 * @param reader chosen for the column.
+	 * @param resultSet positioned at the row.
+	 * @param column index starting at 1.
+	 * @param e the object that contains the field.
+	 */
+	void read(final ColumnReader reader, final ResultSet resultSet, final int column, final Object e) {
+		try {
+			reader.read(resultSet, column, this.accessor, e);
+		} catch (IllegalArgumentException e1) {
+			logger.error("IllegalArgument. Message: " + e1.getMessage());
+		} catch (IllegalAccessException e1) {
+			logger.error("Cannot access the field. Message: " + e1.getMessage());
+		} catch (SQLException e1) {
+			logger.error("Error with retriving the object from SQL. Message: " + e1.getMessage());
+		}
+	}
+
+	private <E extends Retrievable> void convert(final Retriver retriver, final Object object, final E e, final boolean follow)
+			throws IllegalAccessException, IOException, SQLException, InstantiationException {
+		if (!(retriver instanceof AccessorRetriver)) {
+			this.convert(retriver, object, e, follow, this.field);
+			return;
+		}
+		AccessorRetriver accessorRetriver = (AccessorRetriver) retriver;
+		FieldAccessor accessor = this.accessor != null ? this.accessor : Accessors.get(this.field);
+		switch (this.type) {
+		case INTEGER:
+			accessorRetriver.setInteger(accessor, object, e);
+			break;
+		case DOUBLE:
+			accessorRetriver.setDouble(accessor, object, e);
+			break;
+		case REAL:
+			if (object instanceof Float) {
+				accessor.setFloat(e, ((Float) object).floatValue());
+			} else {
+				accessor.set(e, object);
+			}
+			break;
+		case NUMERIC:
+			accessorRetriver.setNumericAndDecimal(accessor, object, e);
+			break;
+		case TIMESTAMP:
+			accessorRetriver.setTimeStamp(accessor, object, e);
+			break;
+		case VARCHAR:
+			accessorRetriver.setVarchar(accessor, object, e);
+			break;
+		case CLOB:
+			accessorRetriver.setClob(accessor, object, e);
+			break;
+		case BOOLEAN:
+			accessorRetriver.setBoolean(accessor, object, e);
+			break;
+		case BIGINT:
+			accessorRetriver.setBigInt(accessor, object, e);
+			break;
+		case FOREIGN_KEY:
+			accessorRetriver.setForeignObject(accessor, object, e, follow);
+			break;
+		}
+	}
+
+	/**
+	 * Convert with a retriver that sets the fields by the {@link Field}.
+	 */
+	private <E extends Retrievable> void convert(final Retriver retriver, final Object object, final E e, final boolean follow,
+			final Field field) throws IllegalAccessException, IOException, SQLException, InstantiationException {
+		switch (this.type) {
+		case INTEGER:
+			retriver.setInteger(field, object, e);
+			break;
+		case DOUBLE:
+			retriver.setDouble(field, object, e);
+			break;
+		case REAL:
+			this.setValue(e, object);
+			break;
+		case NUMERIC:
+			retriver.setNumericAndDecimal(field, object, e);
+			break;
+		case TIMESTAMP:
+			retriver.setTimeStamp(field, object, e);
+			break;
+		case VARCHAR:
+			retriver.setVarchar(field, object, e);
+			break;
+		case CLOB:
+			retriver.setClob(field, object, e);
+			break;
+		case BOOLEAN:
+			retriver.setBoolean(field, object, e);
+			break;
+		case BIGINT:
+			retriver.setBigInt(field, object, e);
+			break;
+		case FOREIGN_KEY:
+			retriver.setForeignObject(field, object, e, follow);
+			break;
+		}
+	}
+
+	/**
+	 * Set a value into the field without any conversion.
+	 *
+	 * @param target the object that contains the field.
+	 * @param value to set.
+	 */
+	public void setValue(final Object target, final Object value) throws IllegalAccessException {
+		if (this.accessor != null) {
+			this.accessor.set(target, value);
+		} else {
+			this.field.set(target, value);
+		}
+	}
+
+	/**
+	 * Get the value of the field.
+	 *
+	 * @param target the object that contains the field.
+	 * @return the value of the field.
+	 */
+	public Object getValue(final Object target) throws IllegalAccessException {
+		if (this.accessor != null) {
+			return this.accessor.get(target);
+		}
+		return this.field.get(target);
+	}
+
+	/**
+	 * @return the accessor of the field or null if the field only can be used with reflection.
+	 */
+	@Nullable
+	public FieldAccessor getAccessor() {
+		return this.accessor;
+	}
+
+	/**
+	 * @return the field. It is accessible.
+	 */
+	public Field getField() {
+		return this.field;
+	}
+
+	/**
+	 * @return the column type or null if the field is not a database field.
+	 */
+	@Nullable
+	public ColumnType getType() {
+		return this.type;
+	}
+
+	/**
+	 * @return the name of the column in the database. For foreign keys it is the id of the {@link ForeignKey}.
+	 */
+	public String getColumnName() {
+		return this.columnName;
+	}
+}
@@ -0,0 +1,241 @@
+package info.sollie.db.mapping;
+
+import java.lang.reflect.Field;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import info.sollie.db.interfaces.Retriver;
+import info.sollie.db.interfaces.StatementBinder;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Base class for mappings that is generated at compile time by {@link info.sollie.db.processor.PersistenceProcessor}.
+ * A generated mapping reads and writes the fields of a class without reflection and contains the SQL for the
+ * class. Use {@link GeneratedMappings#get(Class)} to find the mapping of a class.
+ *
+ * @param <E> the class that is mapped.
+ */
+public abstract class GeneratedMapping<E> {
+
+	private static final Logger logger = Logger.getLogger(GeneratedMapping.class);
+
+	/** Code for a column that match a field that is not a database field. */
+	protected static final int IGNORED = 0;
+
+	private final Class<E> type;
+
+	private final String tableName;
+
+	private final String idName;
+
+	private final String selectSql;
+
+	private final String insertSql;
+
+	private final String updateSql;
+
+	private final String deleteSql;
+
+	/** Column name in lower case to the code of the field. */
+	private final Map<String, Integer> columns = new HashMap<String, Integer>();
+
+	private final StatementBinder<E> insertBinder = new StatementBinder<E>() {
+		@Override
+		public void bind(final PreparedStatement statement, final E e) throws SQLException {
+			GeneratedMapping.this.bindInsert(statement, e);
+		}
+	};
+
+	private final StatementBinder<E> updateBinder = new StatementBinder<E>() {
+		@Override
+		public void bind(final PreparedStatement statement, final E e) throws SQLException {
+			GeneratedMapping.this.bindUpdate(statement, e);
+		}
+	};
+
+	protected GeneratedMapping(final Class<E> type, final String tableName, final String idName, final String selectSql,
+			final String insertSql, final String updateSql, final String deleteSql) {
+		this.type = type;
+		this.tableName = tableName;
+		this.idName = idName;
+		this.selectSql = selectSql;
+		this.insertSql = insertSql;
+		this.updateSql = updateSql;
+		this.deleteSql = deleteSql;
+	}
+
+	/**
+	 * Register a column. The first column registered for a name is used.
+	 *
+	 * @param name of the column. Not case sensitive.
+	 * @param code of the field in {@link #populate(ResultSet, int[], Object, boolean, Retriver)}.
+	 */
+	protected final void column(final String name, final int code) {
+		String key = name.toLowerCase(Locale.ENGLISH);
+		if (!this.columns.containsKey(key)) {
+			this.columns.put(key, Integer.valueOf(code));
+		}
+	}
+
+	/**
+	 * Find the field code of every column in a result set.
+	 *
+	 * @param metaData of the result set.
+	 * @return the code of every column. Index 0 is column 1.
+	 * @throws SQLException if the meta data could not be read.
+	 */
+	public final int[] prepare(final ResultSetMetaData metaData) throws SQLException {
+		int[] result = new int[metaData.getColumnCount()];
+		for (int i = 0; i < result.length; i++) {
+			Integer code = this.columns.get(metaData.getColumnName(i + 1).toLowerCase(Locale.ENGLISH));
+			result[i] = code == null ? IGNORED : code.intValue();
+		}
+		return result;
+	}
+
+	/**
+	 * @return a new instance of the class.
+	 */
+	public abstract E newInstance();
+
+	/**
+	 * Set the columns of the current row into the object.
+	 *
+	 * @param resultSet positioned at the row.
+	 * @param columns the codes from {@link #prepare(ResultSetMetaData)}.
+	 * @param e the object to set the values into.
+	 * @param follow complex objects.
+	 * @param retriver used for foreign keys and values that needs conversion.
+	 */
+	public abstract void populate(ResultSet resultSet, int[] columns, E e, boolean follow, Retriver retriver);
+
+	/**
+	 * Bind the parameters of {@link #getInsertSql()}.
+	 */
+	public abstract void bindInsert(PreparedStatement statement, E e) throws SQLException;
+
+	/**
+	 * Bind the parameters of {@link #getUpdateSql()}. The id is the last parameter.
+	 */
+	public abstract void bindUpdate(PreparedStatement statement, E e) throws SQLException;
+
+	/**
+	 * Log a value that could not be set. The field is left as it is, as for objects mapped with reflection.
+	 */
+	protected final void failed(final String field, final Exception e) {
+		logger.error("Could not set the field " + field + " of " + this.type.getSimpleName() + ". Message: " + e.getMessage());
+	}
+
+	/**
+	 * Get the reflection mapping of a field. Used for fields that is converted by the {@link Retriver}.
+	 */
+	protected static FieldMapping field(final Class<?> clazz, final String name) {
+		return new FieldMapping(GeneratedMapping.declaredField(clazz, name));
+	}
+
+	/**
+	 * Get the accessor of a field. Used for fields that the generated class cannot access directly.
+	 */
+	protected static FieldAccessor accessor(final Class<?> clazz, final String name) {
+		try {
+			return Accessors.get(GeneratedMapping.declaredField(clazz, name));
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Cannot access the field " + name + " in " + clazz.getName(), e);
+		}
+	}
+
+	/**
+	 * Get a value through a accessor while binding parameters.
+	 */
+	protected static Object value(final FieldAccessor accessor, final Object e) throws SQLException {
+		try {
+			return accessor.get(e);
+		} catch (IllegalAccessException e1) {
+			throw new SQLException("Cannot access the field " + accessor.getField().getName(), e1);
+		}
+	}
+
+	/**
+	 * Convert a String from the database to a enum. Null is kept as null.
+	 */
+	protected static <T extends Enum<T>> T enumValue(final Class<T> type, final String value) {
+		return value == null ? null : Enum.valueOf(type, value);
+	}
+
+	private static Field declaredField(final Class<?> clazz, final String name) {
+		try {
+			return clazz.getDeclaredField(name);
+		} catch (NoSuchFieldException e) {
+			throw new IllegalStateException("Generated mapping does not match " + clazz.getName() + ". Missing field " + name, e);
+		}
+	}
+
+	/**
+	 * @return the class that is mapped.
+	 */
+	public final Class<E> getType() {
+		return this.type;
+	}
+
+	/**
+	 * @return name of the table.
+	 */
+	public final String getTableName() {
+		return this.tableName;
+	}
+
+	/**
+	 * @return name of the primary key column.
+	 */
+	public final String getIdName() {
+		return this.idName;
+	}
+
+	/**
+	 * @return SELECT with the id as the only parameter.
+	 */
+	public final String getSelectSql() {
+		return this.selectSql;
+	}
+
+	/**
+	 * @return INSERT with every column except the primary key as parameters. The new id is a generated key.
+	 */
+	public final String getInsertSql() {
+		return this.insertSql;
+	}
+
+	/**
+	 * @return UPDATE with every column except the primary key as parameters, and the id as the last parameter.
+	 */
+	public final String getUpdateSql() {
+		return this.updateSql;
+	}
+
+	/**
+	 * @return DELETE with the id as the only parameter.
+	 */
+	public final String getDeleteSql() {
+		return this.deleteSql;
+	}
+
+	/**
+	 * @return binder for {@link #getInsertSql()}.
+	 */
+	public final StatementBinder<E> getInsertBinder() {
+		return this.insertBinder;
+	}
+
+	/**
+	 * @return binder for {@link #getUpdateSql()}.
+	 */
+	public final StatementBinder<E> getUpdateBinder() {
+		return this.updateBinder;
+	}
+}
@@ -0,0 +1,97 @@
+package info.sollie.db.mapping;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import info.sollie.db.Nullable;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Finds the {@link GeneratedMapping} of a class. The mapping is generated by
+ * {@link info.sollie.db.processor.PersistenceProcessor} into the same package as the class and is named
+ * after the class with the suffix _Mapping, e.g. Order_Mapping or Outer_Inner_Mapping for nested classes.
+ * If no mapping is generated the caller should fall back to reflection.
+ *
+ */
+public final class GeneratedMappings {
+
+	private static final Logger logger = Logger.getLogger(GeneratedMappings.class);
+
+	/** Suffix of the generated classes. */
+	public static final String SUFFIX = "_Mapping";
+
+	/** Marker for classes without a generated mapping. */
+	private static final Object NONE = new Object();
+
+	private static final ConcurrentMap<Class<?>, Object> mappings = new ConcurrentHashMap<Class<?>, Object>();
+
+	/** Static method factory */
+	private GeneratedMappings() {
+	}
+
+	/**
+	 * Get the generated mapping of a class.
+	 *
+	 * @param clazz that is mapped.
+	 * @return the generated mapping or null if the class has no generated mapping.
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	public static <E> GeneratedMapping<E> get(final Class<E> clazz) {
+		if (clazz == null) {
+			return null;
+		}
+		Object mapping = mappings.get(clazz);
+		if (mapping == null) {
+			mapping = GeneratedMappings.load(clazz);
+			Object existing = mappings.putIfAbsent(clazz, mapping);
+			if (existing != null) {
+				mapping = existing;
+			}
+		}
+		return mapping == NONE ? null : (GeneratedMapping<E>) mapping;
+	}
+
+	/**
+	 * @param className binary name of the class.
+	 * @return the binary name of the generated mapping class.
+	 */
+	public static String getMappingName(final String className) {
+		int index = className.lastIndexOf('.');
+		String packageName = index < 0 ? "" : className.substring(0, index + 1);
+		return packageName + className.substring(index + 1).replace('$', '_') + SUFFIX;
+	}
+
+	private static Object load(final Class<?> clazz) {
+		ClassLoader classLoader = clazz.getClassLoader();
+		if (classLoader == null) {
+			return NONE;
+		}
+		try {
+			Class<?> mappingClass = Class.forName(GeneratedMappings.getMappingName(clazz.getName()), true, classLoader);
+			if (!GeneratedMapping.class.isAssignableFrom(mappingClass)) {
+				return NONE;
+			}
+			GeneratedMapping<?> mapping = (GeneratedMapping<?>) Accessors.newInstance(mappingClass);
+			if (!clazz.equals(mapping.getType())) {
+				return NONE;
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Using generated mapping for " + clazz.getName());
+			}
+			return mapping;
+		} catch (ClassNotFoundException e) {
+			return NONE;
+		} catch (LinkageError e) {
+			logger.warn("Could not load the generated mapping of " + clazz.getName() + ". Will use reflection.", e);
+		} catch (InstantiationException e) {
+			logger.warn("Could not create the generated mapping of " + clazz.getName() + ". Will use reflection.", e);
+		} catch (IllegalAccessException e) {
+			logger.warn("Could not access the generated mapping of " + clazz.getName() + ". Will use reflection.", e);
+		} catch (IllegalStateException e) {
+			logger.warn("Generated mapping of " + clazz.getName() + " is out of date. Will use reflection.", e);
+		}
+		return NONE;
+	}
+}
@@ -0,0 +1,19 @@
+package info.sollie.db.mapping;
+
+/**
+ * Creates new instances of a class with the default constructor.
+ *
+ * Use {@link Accessors#instantiator(Class)} to get the instantiator of a class.
+ *
+ * @param <E> the class to create.
+ */
+public interface Instantiator<E> {
+
+	/**
+	 * @return a new instance.
+	 * @throws InstantiationException if the class could not be created.
+	 * @throws IllegalAccessException if the constructor is not accessible.
+	 */
+	public E newInstance() throws InstantiationException, IllegalAccessException;
+
+}
@@ -0,0 +1,95 @@
+package info.sollie.db.mapping;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import info.sollie.db.errors.SQLError;
+
+/**
+ * A list that is read the first time it is used. Used for relations that is read with 
+ * {@link info.sollie.db.FetchMode#LAZY}. After the list is read it works as a {@link ArrayList}.
+ *
+ * @param <E> the objects in the list.
+ */
+public final class LazyList<E> extends AbstractList<E> implements Serializable {
+
+	private static final long serialVersionUID = -2419016286316442871L;
+
+	private transient Callable<List<E>> loader;
+
+	private transient volatile List<E> list;
+
+	/**
+	 * @param loader that reads the list. It is called at most once.
+	 */
+	public LazyList(final Callable<List<E>> loader) {
+		this.loader = loader;
+	}
+
+	/**
+	 * @return true if the list is read.
+	 */
+	public boolean isLoaded() {
+		return this.list != null;
+	}
+
+	private List<E> list() {
+		List<E> result = this.list;
+		if (result == null) {
+			synchronized (this) {
+				result = this.list;
+				if (result == null) {
+					try {
+						result = new ArrayList<E>(this.loader.call());
+					} catch (RuntimeException e) {
+						throw e;
+					} catch (Exception e) {
+						throw new SQLError("Could not read the lazy list. " + e.getMessage(), e);
+					}
+					this.list = result;
+					this.loader = null;
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public E get(final int index) {
+		return this.list().get(index);
+	}
+
+	@Override
+	public int size() {
+		return this.list().size();
+	}
+
+	@Override
+	public E set(final int index, final E element) {
+		return this.list().set(index, element);
+	}
+
+	@Override
+	public void add(final int index, final E element) {
+		this.list().add(index, element);
+		this.modCount++;
+	}
+
+	@Override
+	public E remove(final int index) {
+		E result = this.list().remove(index);
+		this.modCount++;
+		return result;
+	}
+
+	/**
+	 * The list is read before it is serialized, and is serialized as a {@link ArrayList}.
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		return new ArrayList<E>(this.list());
+	}
+}
@@ -0,0 +1,112 @@
+package info.sollie.db.mapping;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import info.sollie.db.interfaces.Writeable;
+
+import org.joda.time.LocalDate;
+import org.joda.time.LocalDateTime;
+import org.joda.time.base.BaseSingleFieldPeriod;
+
+/**
+ * Set field values as typed parameters to a prepared statement. The conversions is the same as the
+ * ones used when SQL is written with values, but nothing is escaped or formatted as text.
+ *
+ */
+public final class Parameters {
+
+	/** Static method factory */
+	private Parameters() {
+	}
+
+	/**
+	 * Set a value as a parameter.
+	 *
+	 * @param statement to set the parameter in.
+	 * @param index of the parameter. Starts at 1.
+	 * @param type the column type of the field.
+	 * @param value of the field. Can be null.
+	 * @throws SQLException if the parameter could not be set.
+	 */
+	public static void bind(final PreparedStatement statement, final int index, final ColumnType type, final Object value)
+			throws SQLException {
+		if (value == null) {
+			statement.setNull(index, Parameters.getSqlType(type));
+			return;
+		}
+		switch (type) {
+		case TIMESTAMP:
+			if (value instanceof LocalDateTime) {
+				statement.setTimestamp(index, new java.sql.Timestamp(((LocalDateTime) value).toDate().getTime()));
+			} else if (value instanceof LocalDate) {
+				statement.setDate(index, new java.sql.Date(((LocalDate) value).toDate().getTime()));
+			} else if (value instanceof java.util.Date) {
+				statement.setTimestamp(index, new java.sql.Timestamp(((java.util.Date) value).getTime()));
+			} else {
+				statement.setObject(index, value);
+			}
+			break;
+		case VARCHAR:
+			if (value instanceof BaseSingleFieldPeriod) {
+				statement.setString(index, String.valueOf(((BaseSingleFieldPeriod) value).getValue(0)));
+			} else {
+				statement.setString(index, value.toString());
+			}
+			break;
+		case CLOB:
+			statement.setString(index, value.toString());
+			break;
+		case INTEGER:
+			if (value instanceof Boolean) {
+				statement.setInt(index, ((Boolean) value).booleanValue() ? 1 : 0);
+			} else {
+				statement.setObject(index, value);
+			}
+			break;
+		case BOOLEAN:
+			statement.setBoolean(index, ((Boolean) value).booleanValue());
+			break;
+		case FOREIGN_KEY:
+			String id = ((Writeable) value).getID();
+			if (id == null || id.isEmpty()) {
+				statement.setNull(index, Types.INTEGER);
+			} else {
+				statement.setInt(index, Integer.parseInt(id));
+			}
+			break;
+		default:
+			statement.setObject(index, value);
+			break;
+		}
+	}
+
+	/**
+	 * @param type of the column.
+	 * @return the {@link Types} used for null values of the column type.
+	 */
+	public static int getSqlType(final ColumnType type) {
+		switch (type) {
+		case INTEGER:
+		case FOREIGN_KEY:
+			return Types.INTEGER;
+		case BIGINT:
+			return Types.BIGINT;
+		case DOUBLE:
+			return Types.DOUBLE;
+		case REAL:
+			return Types.REAL;
+		case NUMERIC:
+			return Types.NUMERIC;
+		case TIMESTAMP:
+			return Types.TIMESTAMP;
+		case BOOLEAN:
+			return Types.BIT;
+		case CLOB:
+			return Types.CLOB;
+		default:
+			return Types.VARCHAR;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package info.sollie.db.mapping;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+/**
+ * A {@link info.sollie.db.annotations.OneToMany} or {@link info.sollie.db.annotations.ManyToMany} relation
+ * field. The field is accessible.
+ *
+ */
+public final class RelationMapping {
+
+	private final Field field;
+
+	private final Annotation annotation;
+
+	/** Class of the objects in the list. Null if the list has no class argument. */
+	private final Class<?> elementType;
+
+	RelationMapping(final Field field, final Annotation annotation) {
+		this.field = field;
+		this.annotation = annotation;
+		Class<?> elementType = null;
+		if (field.getGenericType() instanceof ParameterizedType) {
+			for (Type type : ((ParameterizedType) field.getGenericType()).getActualTypeArguments()) {
+				if (type instanceof Class) {
+					elementType = (Class<?>) type;
+				}
+			}
+		}
+		this.elementType = elementType;
+	}
+
+	/**
+	 * @return the field that contains the list of related objects.
+	 */
+	public Field getField() {
+		return this.field;
+	}
+
+	/**
+	 * @return the relation annotation of the field.
+	 */
+	public Annotation getAnnotation() {
+		return this.annotation;
+	}
+
+	/**
+	 * @return the class of the related objects or null if the list has no class argument.
+	 */
+	public Class<?> getElementType() {
+		return this.elementType;
+	}
+}
@@ -0,0 +1,69 @@
+package info.sollie.db.mapping;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import info.sollie.db.interfaces.Retrievable;
+import info.sollie.db.interfaces.Retriver;
+
+/**
+ * Compiled plan for mapping rows of a result set with a given shape into a class. The columns are
+ * bound to fields by index, so no column names are compared when a row is mapped. Columns that has a
+ * {@link ColumnReader} is read with a typed getter, the rest is read as objects and converted by the
+ * {@link Retriver}.
+ *
+ */
+public final class RowPlan {
+
+	/** Binding for every column. Index 0 is column 1. Null if the column has no field. */
+	private final FieldMapping[] bindings;
+
+	/** Typed reader for every column. Null if the value is converted by the retriver. */
+	private final ColumnReader[] readers;
+
+	RowPlan(final FieldMapping[] bindings, final ColumnReader[] readers) {
+		this.bindings = bindings;
+		this.readers = readers;
+	}
+
+	/**
+	 * Set every bound column of the current row into the object.
+	 *
+	 * @param resultSet positioned at the row to map.
+	 * @param e the object to set the values into.
+	 * @param follow complex objects.
+	 * @param retriver that converts the values.
+	 * @throws SQLException if the value could not be read from the result set.
+	 */
+	public <E extends Retrievable> void populate(final ResultSet resultSet, final E e, final boolean follow, final Retriver retriver)
+			throws SQLException {
+		for (int i = 0; i < this.bindings.length; i++) {
+			FieldMapping binding = this.bindings[i];
+			if (binding == null || binding.getType() == null) {
+				continue;
+			}
+			ColumnReader reader = this.readers[i];
+			if (reader != null) {
+				binding.read(reader, resultSet, i + 1, e);
+			} else {
+				Object object = resultSet.getObject(i + 1);
+				binding.set(retriver, object, e, follow);
+			}
+		}
+	}
+
+	/**
+	 * @return number of columns in the result set this plan was made for.
+	 */
+	public int getColumnCount() {
+		return this.bindings.length;
+	}
+
+	/**
+	 * @param column index starting at 1.
+	 * @return the binding of the column or null if the column has no field.
+	 */
+	public FieldMapping getBinding(final int column) {
+		return this.bindings[column - 1];
+	}
+}
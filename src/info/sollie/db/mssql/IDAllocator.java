@@ -0,0 +1,201 @@
+package info.sollie.db.mssql;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import info.sollie.db.DatabaseTools;
+import info.sollie.db.Nullable;
+import info.sollie.db.Persistence;
+import info.sollie.db.annotations.AllocatedID;
+import info.sollie.db.errors.SQLError;
+import info.sollie.db.interfaces.Writeable;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.apache.log4j.Logger;
+
+/**
+ * Gives ids to new objects of a class with {@link AllocatedID} before they is inserted, so objects that references
+ * each other can be inserted in the same batch. A block of ids is reserved in the database with one statement on a
+ * connection of its own, and the ids of the block is given out from memory without locks. A new block is reserved
+ * when the block is used. Ids of a block that is not used is lost when the JVM stops.
+ *
+ * @author Andre Sollie
+ *
+ */
+public final class IDAllocator {
+
+	private static final Logger logger = Logger.getLogger(IDAllocator.class);
+
+	/** Allocators by class. Classes without the annotation has {@link #NONE}. */
+	private static final ConcurrentMap<Class<?>, IDAllocator> allocators = new ConcurrentHashMap<Class<?>, IDAllocator>();
+
+	private static final IDAllocator NONE = new IDAllocator(null, null, 0, null, null);
+
+	private static final ResultSetHandler<Long> firstColumn = new ResultSetHandler<Long>() {
+		@Override
+		public Long handle(final ResultSet resultSet) throws SQLException {
+			if (resultSet.next()) {
+				long value = resultSet.getLong(1);
+				return resultSet.wasNull() ? null : Long.valueOf(value);
+			}
+			return null;
+		}
+	};
+
+	private final Class<?> type;
+
+	private final String sql;
+
+	private final int blockSize;
+
+	/** Creates the row of the class in the allocation table. */
+	private final String createSql;
+
+	private final String name;
+
+	private volatile Block block = new Block(0, 0);
+
+	private IDAllocator(final Class<?> type, final String sql, final int blockSize, final String createSql, final String name) {
+		this.type = type;
+		this.sql = sql;
+		this.blockSize = blockSize;
+		this.createSql = createSql;
+		this.name = name;
+	}
+
+	/**
+	 * @param clazz of the objects.
+	 * @return the allocator of the class or null if the class has no {@link AllocatedID}.
+	 */
+	@Nullable
+	public static IDAllocator get(final Class<?> clazz) {
+		IDAllocator result = allocators.get(clazz);
+		if (result == null) {
+			result = IDAllocator.create(clazz);
+			IDAllocator existing = allocators.putIfAbsent(clazz, result);
+			if (existing != null) {
+				result = existing;
+			}
+		}
+		return result == NONE ? null : result;
+	}
+
+	/**
+	 * @return true if new objects of the class gets a id before they is inserted.
+	 */
+	public static boolean isAllocated(final Class<?> clazz) {
+		return clazz.isAnnotationPresent(AllocatedID.class);
+	}
+
+	/**
+	 * Give a new object a id if the class has {@link AllocatedID} and the object has no id.
+	 *
+	 * @param e the object.
+	 * @return true if the object got a id.
+	 */
+	public static boolean assign(final Writeable e) {
+		if (!(e instanceof Persistence) || ((Persistence<?>) e).isAllocated()) {
+			return false;
+		}
+		IDAllocator allocator = IDAllocator.get(e.getClass());
+		if (allocator == null || !SqlGenerator.isNew(e)) {
+			return false;
+		}
+		e.setID(allocator.next());
+		((Persistence<?>) e).setAllocated(true);
+		return true;
+	}
+
+	/**
+	 * @return the next id of the class.
+	 */
+	public int next() {
+		while (true) {
+			Block current = this.block;
+			long id = current.next.getAndIncrement();
+			if (id < current.end) {
+				return (int) id;
+			}
+			synchronized (this) {
+				if (this.block == current) {
+					long first = this.reserve();
+					this.block = new Block(first, first + this.blockSize);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the first id of a new block.
+	 */
+	private long reserve() {
+		QueryRunner queryRunner = DatabaseTools.getMssqlDatabaseTool().getQueryRunner();
+		try {
+			Long first = queryRunner.query(this.sql, firstColumn, this.parameters());
+			if (first == null && this.createSql != null) {
+				try {
+					queryRunner.update(this.createSql, this.name);
+					logger.info("Created the id allocation of " + this.name);
+				} catch (SQLException e) {
+					// Created by another thread.
+				}
+				first = queryRunner.query(this.sql, firstColumn, this.parameters());
+			}
+			if (first == null) {
+				throw new SQLException("Got no id block for " + this.type.getSimpleName());
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Reserved the ids " + first + " to " + (first + this.blockSize - 1) + " for " + this.type.getSimpleName());
+			}
+			return first.longValue();
+		} catch (SQLException e) {
+			logger.error("Could not reserve ids for " + this.type.getSimpleName() + ". " + e.getMessage());
+			throw new SQLError(this.sql, e.getMessage(), e);
+		}
+	}
+
+	private Object[] parameters() {
+		return this.createSql == null ? new Object[0] : new Object[] { Integer.valueOf(this.blockSize), this.name };
+	}
+
+	private static IDAllocator create(final Class<?> clazz) {
+		AllocatedID allocated = clazz.getAnnotation(AllocatedID.class);
+		if (allocated == null) {
+			return NONE;
+		}
+		if (allocated.blockSize() <= 0) {
+			throw new IllegalArgumentException("Block size of " + clazz.getSimpleName() + " must be above 0. Was " + allocated.blockSize());
+		}
+		String sep = " ";
+		String name = SqlGenerator.getDatabaseName(clazz);
+		if (allocated.sequence().length() > 0) {
+			String sql = Syntax.SELECT + sep + "NEXT VALUE FOR [" + allocated.sequence() + "]";
+			return new IDAllocator(clazz, sql, allocated.blockSize(), null, name);
+		}
+		String table = "[" + allocated.table() + "]";
+		String sql = Syntax.UPDATE + sep + table + sep + Syntax.SET + " NextID=NextID+? OUTPUT DELETED.NextID " 
+				+ Syntax.WHERE + " Name=?";
+		String createSql = Syntax.INSERT + sep + Syntax.INTO + sep + table + " (Name, NextID) " + Syntax.SELECT 
+				+ " ?, ISNULL(MAX(" + SqlGenerator.getIDName(clazz) + "), 0) + 1 " + Syntax.FROM + " [" + name + "]";
+		return new IDAllocator(clazz, sql, allocated.blockSize(), createSql, name);
+	}
+
+	/**
+	 * A block of ids. The ids from next until end is not given out.
+	 */
+	private static final class Block {
+
+		private final AtomicLong next;
+
+		private final long end;
+
+		private Block(final long first, final long end) {
+			this.next = new AtomicLong(first);
+			this.end = end;
+		}
+	}
+}
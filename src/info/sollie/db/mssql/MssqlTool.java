@@ -7,7 +7,14 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 import javax.sql.rowset.serial.SerialClob;
 
@@ -16,9 +23,14 @@ import info.sollie.db.DatabaseUtils;
 import info.sollie.db.Nullable;
 import info.sollie.db.annotations.ManyToMany;
 import info.sollie.db.annotations.OneToMany;
+import info.sollie.db.handlers.GroupedObjectListHandler;
 import info.sollie.db.implementation.DefaultDatabaseTool;
 import info.sollie.db.interfaces.Retrievable;
-import info.sollie.db.interfaces.Retriver;
+import info.sollie.db.mapping.AccessorRetriver;
+import info.sollie.db.mapping.Accessors;
+import info.sollie.db.mapping.FieldAccessor;
+import info.sollie.db.mapping.LazyList;
+import info.sollie.db.store.IdentityMap;
 
 import org.apache.log4j.Logger;
 import org.joda.time.Days;
@@ -35,7 +47,7 @@ import org.joda.time.Minutes;
  * @param <E> the object to get from the database.
  */
 //@Immutable
-public class MssqlTool implements Retriver {
+public class MssqlTool implements AccessorRetriver {
 
 	private static final MssqlTool instance = new MssqlTool();
 
@@ -52,80 +64,172 @@ public class MssqlTool implements Retriver {
 	/** Log what errors and other useful things about this class */
 	private final static Logger logger = Logger.getLogger(MssqlTool.class); 
 
+	@Override
+	public <E extends Retrievable> Object setForeignObject(Field field, Object object, E e, boolean follow) throws IllegalAccessException, InstantiationException {
+		return this.setForeignObject(Accessors.get(field), object, e, follow);
+	}
+
 	/**
 	 * Set objects that are as ForeignKey in the database. It will not follow these objects an create the complex objects here. It means
 	 * that other ForeignKey, OneToMany and ManyToMany relations will not be created.
 	 * 
 	 * @param <E> that is retrievable.
-	 * @param field to be retrieved.
+	 * @param accessor of the field to be retrieved.
 	 * @param object that is the object to be retrieved.
 	 * @param e the field to be set.
 	 * @return a retrieved object.
 	 * @throws IllegalAccessException
 	 * @throws InstantiationException
 	 */
-	public <E extends Retrievable> Object setForeignObject(Field field, Object object, E e, boolean follow) throws IllegalAccessException, InstantiationException {
+	public <E extends Retrievable> Object setForeignObject(FieldAccessor accessor, Object object, E e, boolean follow) throws IllegalAccessException, InstantiationException {
 		@SuppressWarnings("unchecked")
-		Object fobject = this.createInstance((Class<? extends Retrievable>) field.getType());
+		Object fobject = this.createInstance((Class<? extends Retrievable>) accessor.getType());
 		Retrievable retrivable = (Retrievable) fobject;
 		if (object instanceof Long) {
 			object = ((Long) object).intValue(); 
 		}
+		IdentityMap identities = IdentityMap.current();
+		if (identities != null && object != null) {
+			@SuppressWarnings("unchecked")
+			Retrievable known = identities.get((Class<? extends Retrievable>) accessor.getType(), ((Integer) object).intValue());
+			if (known != null) {
+				accessor.set(e, known);
+				return e;
+			}
+		}
 		if (retrivable != null && object != null) {
 			retrivable.setID((Integer) object);
 			if (follow) {
 				retrivable.populateObject(false);
 			}
 			object = fobject;
-			field.set(e, object);
+			accessor.set(e, object);
 		}
 		return e;
 	}
 
+	@Override
+	public <E extends Retrievable> void setForeignObjects(Field field, List<E> list) throws IllegalAccessException {
+		FieldAccessor accessor = Accessors.get(field);
+		IdentityMap identities = IdentityMap.current();
+		Map<Integer, List<E>> referencing = new LinkedHashMap<Integer, List<E>>();
+		for (E e : list) {
+			Retrievable foreign = (Retrievable) accessor.get(e);
+			if (foreign != null) {
+				Integer id = Integer.valueOf(foreign.getID());
+				Retrievable known = identities != null ? identities.get(foreign.getClass(), id.intValue()) : null;
+				if (known != null) {
+					if (known != foreign) {
+						accessor.set(e, known);
+					}
+					continue;
+				}
+				List<E> objects = referencing.get(id);
+				if (objects == null) {
+					objects = new ArrayList<E>(2);
+					referencing.put(id, objects);
+				}
+				objects.add(e);
+			}
+		}
+		if (referencing.isEmpty()) {
+			return;
+		}
+		@SuppressWarnings("unchecked")
+		Class<Retrievable> clazz = (Class<Retrievable>) field.getType();
+		List<Integer> ids = new ArrayList<Integer>(referencing.keySet());
+		for (int from = 0; from < ids.size(); from += SqlGenerator.MAX_IN_SIZE) {
+			List<Integer> chunk = ids.subList(from, Math.min(from + SqlGenerator.MAX_IN_SIZE, ids.size()));
+			String sql = SqlGenerator.getInStatement(clazz, chunk.size());
+			for (Retrievable foreign : DefaultDatabaseTool.getInstance().getObjects(sql, clazz, chunk.toArray())) {
+				List<E> objects = referencing.remove(Integer.valueOf(foreign.getID()));
+				if (objects != null) {
+					for (E e : objects) {
+						accessor.set(e, foreign);
+					}
+				}
+			}
+		}
+		// Not found in the database. The objects that references the same ID shares the first one, that only has the ID.
+		for (List<E> objects : referencing.values()) {
+			Object foreign = accessor.get(objects.get(0));
+			for (E e : objects) {
+				accessor.set(e, foreign);
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Loaded " + ids.size() + " " + clazz.getSimpleName() + " for " + list.size() + " objects in " 
+					+ ((ids.size() + SqlGenerator.MAX_IN_SIZE - 1) / SqlGenerator.MAX_IN_SIZE) + " queries.");
+		}
+	}
+
+	@Override
+	public <E> Object setBigInt(Field field, Object object, E e) throws IllegalAccessException {
+		return this.setBigInt(Accessors.get(field), object, e);
+	}
+
 	/**
 	 * @param <E>
-	 * @param field
+	 * @param accessor
 	 * @param object
 	 * @param e
 	 * @return
 	 * @throws IllegalAccessException
 	 */
-	public <E> Object setBigInt(Field field, Object object, E e) throws IllegalAccessException {
-		if ((field.getType().equals(int.class) || field.getType().equals(Integer.class)) && object instanceof Long) {
-			object = ((Long) object).intValue(); 
-		} else if (field.getType().equals(String.class) && object instanceof Long) {
+	public <E> Object setBigInt(FieldAccessor accessor, Object object, E e) throws IllegalAccessException {
+		Class<?> type = accessor.getType();
+		if ((type == int.class || type == Integer.class) && object instanceof Long) {
+			accessor.setInt(e, ((Long) object).intValue());
+			return object;
+		} else if (type == long.class && object instanceof Long) {
+			accessor.setLong(e, ((Long) object).longValue());
+			return object;
+		} else if (type == String.class && object instanceof Long) {
 			object = String.valueOf(((Long) object));
 		}
-		field.set(e, object);
+		accessor.set(e, object);
 		return object;
 	}
 
+	@Override
+	public <E> Object setBoolean(Field field, Object object, E e) throws IllegalAccessException {
+		return this.setBoolean(Accessors.get(field), object, e);
+	}
+
 	/**
 	 * Set the boolean field. 
 	 * 
 	 * @param <E>
-	 * @param field 
+	 * @param accessor 
 	 * @param object
 	 * @param e
 	 * @return
 	 * @throws IllegalAccessException
 	 */
-	public <E> Object setBoolean(Field field, Object object, E e)
+	public <E> Object setBoolean(FieldAccessor accessor, Object object, E e)
 			throws IllegalAccessException {
 		if (object instanceof Integer) {
-			object = (((Integer) object) == 1 ? true : false); 
+			accessor.setBoolean(e, ((Integer) object).intValue() == 1);
 		} else if (object == null) {
-			object = false;
+			accessor.setBoolean(e, false);
+		} else if (object instanceof Boolean) {
+			accessor.setBoolean(e, ((Boolean) object).booleanValue());
+		} else {
+			accessor.set(e, object);
 		}
-		field.set(e, object);
 		return object;
 	}
 
+	@Override
+	public <E> Object setClob(Field field, Object object, E e) throws IOException, SQLException, IllegalAccessException {
+		return this.setClob(Accessors.get(field), object, e);
+	}
+
 	/**
 	 * Set the clob field.
 	 * 
 	 * @param <E>
-	 * @param field
+	 * @param accessor
 	 * @param object
 	 * @param e
 	 * @return
@@ -133,8 +237,8 @@ public class MssqlTool implements Retriver {
 	 * @throws SQLException
 	 * @throws IllegalAccessException
 	 */
-	public <E> Object setClob(Field field, Object object, E e)	throws IOException, SQLException, IllegalAccessException {
-		if(field.getType().equals(String.class)) {
+	public <E> Object setClob(FieldAccessor accessor, Object object, E e)	throws IOException, SQLException, IllegalAccessException {
+		if(accessor.getType().equals(String.class)) {
 //			if (object instanceof ClobImpl) {
 //				ClobImpl clobImpl = (ClobImpl) object;
 //				byte[] bytes = new byte[clobImpl.getAsciiStream().available()];
@@ -148,34 +252,40 @@ public class MssqlTool implements Retriver {
 				object = new String(bytes);
 			}
 		} 
-		field.set(e, object);
+		accessor.set(e, object);
 		return object;
 	}
 
 
+	@Override
+	public <E> Object setVarchar(Field field, Object object, E e) throws IllegalAccessException {
+		return this.setVarchar(Accessors.get(field), object, e);
+	}
+
 	/**
 	 * Set a varchar object.
 	 * 
 	 * @param <E>
-	 * @param field
+	 * @param accessor
 	 * @param object
 	 * @param e
 	 * @throws IllegalAccessException
 	 */
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
-	public <E> Object setVarchar(Field field, Object object, E e)
+	public <E> Object setVarchar(FieldAccessor accessor, Object object, E e)
 			throws IllegalAccessException {
+		Class<?> type = accessor.getType();
 		if (object instanceof Long || object instanceof Integer || object instanceof Double){
 			object = String.valueOf(object);
 			//joda time periods.
-		} else if (field.getType().equals(Minutes.class)) {
+		} else if (type.equals(Minutes.class)) {
 			String value = ((String) object).trim();
 			object = Minutes.minutes(Integer.valueOf(value));
-		} else if (field.getType().equals(Hours.class)) {
+		} else if (type.equals(Hours.class)) {
 			String value = ((String) object).trim();
 			object = Hours.hours(Integer.valueOf(value));
-		} else if (field.getType().equals(Days.class)) {
+		} else if (type.equals(Days.class)) {
 			String value = ((String) object).trim();
 			object = Days.days(Integer.valueOf(value));
 		}  else if (object instanceof BigDecimal) {
@@ -203,33 +313,39 @@ public class MssqlTool implements Retriver {
 			} catch (SQLException e1) {
 				logger.error("Cannot convert clob to String. Error was ", e1);
 			}
-		} else if (field.getType().isEnum() && object instanceof String) {
-			Class<? extends Enum> enumClass = (Class<? extends Enum>) field.getType();
+		} else if (type.isEnum() && object instanceof String) {
+			Class<? extends Enum> enumClass = (Class<? extends Enum>) type;
 			String stringValue = (String) object; 
 			object = Enum.valueOf(enumClass, stringValue);
 		}
-		field.set(e, object);
+		accessor.set(e, object);
 		return object;
 	}
 
+	@Override
+	public <E> Object setTimeStamp(Field field, Object object, E e) throws IllegalAccessException {
+		return this.setTimeStamp(Accessors.get(field), object, e);
+	}
+
 	/**
 	 * Set a timestamp object.
 	 * 
 	 * @param <E>
-	 * @param field
+	 * @param accessor
 	 * @param object
 	 * @param e
 	 * @return
 	 * @throws IllegalAccessException
 	 */
-	public <E> Object setTimeStamp(Field field, Object object, E e) throws IllegalAccessException {
-		if (object instanceof String && field.getType().equals(LocalDate.class)) {
+	public <E> Object setTimeStamp(FieldAccessor accessor, Object object, E e) throws IllegalAccessException {
+		Class<?> type = accessor.getType();
+		if (object instanceof String && type.equals(LocalDate.class)) {
 			object = new LocalDate(DatabaseUtils.formatDate((String) object, "yy-MM-dd"));
 
 		} else if (object instanceof String) {
 			object = DatabaseUtils.formatDate((String) object, "yy-MM-dd HH:mm:ss");
 
-		} else if (field.getType().equals(LocalDate.class)) {
+		} else if (type.equals(LocalDate.class)) {
 			java.sql.Timestamp timeStamp = (java.sql.Timestamp) object;
 			if (timeStamp != null) {
 				String time = timeStamp.toString();
@@ -239,7 +355,7 @@ public class MssqlTool implements Retriver {
 					logger.debug("Could not get the date. ");
 				}
 			}
-		} else if (field.getType().equals(LocalDateTime.class)) {
+		} else if (type.equals(LocalDateTime.class)) {
 			java.sql.Timestamp timeStamp = (java.sql.Timestamp) object;
 			if (timeStamp != null) {
 				String time = timeStamp.toString();
@@ -252,50 +368,213 @@ public class MssqlTool implements Retriver {
 
 		} 
 
-		field.set(e, object);
+		accessor.set(e, object);
 		return object;
 	}
 
+	@Override
+	public <E> Object setNumericAndDecimal(Field field, Object object, E e) throws IllegalAccessException {
+		return this.setNumericAndDecimal(Accessors.get(field), object, e);
+	}
+
 	/**
 	 * @param <E>
-	 * @param field
+	 * @param accessor
 	 * @param object
 	 * @param e
 	 * @return
 	 * @throws IllegalAccessException
 	 */
-	public <E> Object setNumericAndDecimal(Field field, Object object, E e)
+	public <E> Object setNumericAndDecimal(FieldAccessor accessor, Object object, E e)
 			throws IllegalAccessException {
-		if (field.getType().equals(double.class) && object instanceof BigDecimal) {
-			object = ((BigDecimal) object).doubleValue();
+		if (accessor.getType() == double.class && object instanceof BigDecimal) {
+			accessor.setDouble(e, ((BigDecimal) object).doubleValue());
+			return object;
 		} 
-		field.set(e, object);
+		accessor.set(e, object);
 		return object;
 	}
 
+	@Override
+	public <E> Object setDouble(Field field, Object object, E e) throws IllegalAccessException {
+		return this.setDouble(Accessors.get(field), object, e);
+	}
+
 	/**
 	 * @param <E>
-	 * @param field
+	 * @param accessor
 	 * @param object
 	 * @param e
 	 * @return
 	 * @throws IllegalAccessException
 	 */
-	public <E> Object setDouble(Field field, Object object, E e) throws IllegalAccessException {
-		if (object instanceof BigDecimal && (field.getType().equals(Long.class) || field.getType().equals(long.class))) {
-			object = ((BigDecimal) object).longValue();
+	public <E> Object setDouble(FieldAccessor accessor, Object object, E e) throws IllegalAccessException {
+		Class<?> type = accessor.getType();
+		if (object instanceof BigDecimal && (type == Long.class || type == long.class)) {
+			accessor.setLong(e, ((BigDecimal) object).longValue());
 		} else if (object instanceof BigDecimal) {
-			object = ((BigDecimal) object).doubleValue();
-		} else if (field.getType().equals(String.class)) {
+			accessor.setDouble(e, ((BigDecimal) object).doubleValue());
+		} else if (type == String.class) {
 			object = String.valueOf(object);
-		} 
-		if (object == null) {
-			object = 0;
+			accessor.set(e, object);
+		} else if (object instanceof Double) {
+			accessor.setDouble(e, ((Double) object).doubleValue());
+		} else if (object == null) {
+			MssqlTool.setZero(accessor, e);
+		} else {
+			accessor.set(e, object);
 		}
-		field.set(e, object);
 		return object;
 	}
 
+	/**
+	 * Create the one to many relation of every object in the list, with one query for every 
+	 * {@link SqlGenerator#MAX_IN_SIZE} objects.
+	 * 
+	 * @param list of objects that owns the relation.
+	 * @param field that contains the relation.
+	 * @param annotation of the field.
+	 * @throws IllegalAccessException 
+	 */
+	@Override
+	public <E extends Retrievable> void createObjectsForOneToManyRelation(List<E> list, Field field, Annotation annotation) 
+	throws IllegalAccessException {
+		Class<Retrievable> clazz = MssqlTool.getListClass(field);
+		if (clazz == null || list.isEmpty()) {
+			return;
+		}
+		OneToMany oneToMany = (OneToMany) annotation;
+		GroupedObjectListHandler<Retrievable> handler = new GroupedObjectListHandler<Retrievable>(clazz, oneToMany.id(), false, this);
+		List<Integer> ids = MssqlTool.getIDs(list);
+		Map<Integer, List<Retrievable>> children = new HashMap<Integer, List<Retrievable>>();
+		for (int from = 0; from < ids.size(); from += SqlGenerator.MAX_IN_SIZE) {
+			List<Integer> chunk = ids.subList(from, Math.min(from + SqlGenerator.MAX_IN_SIZE, ids.size()));
+			String sql = SqlGenerator.getOneToManyInStatement(clazz, oneToMany.id(), chunk.size());
+			if (!this.queryGroups(sql, handler, chunk, children)) {
+				logger.error("Could not get the OneToMany relation " + field.getName());
+				return;
+			}
+		}
+		this.setGroups(list, field, children);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Loaded " + field.getName() + " for " + list.size() + " objects in " 
+					+ ((ids.size() + SqlGenerator.MAX_IN_SIZE - 1) / SqlGenerator.MAX_IN_SIZE) + " queries.");
+		}
+	}
+
+	@Override
+	public <E extends Retrievable> void createObjectsForManyToManyRelation(List<E> list, Field field, Annotation annotation) 
+	throws IllegalAccessException {
+		Class<Retrievable> clazz = MssqlTool.getListClass(field);
+		if (clazz == null || list.isEmpty()) {
+			return;
+		}
+		GroupedObjectListHandler<Retrievable> handler = new GroupedObjectListHandler<Retrievable>(clazz, 
+				SqlGenerator.RELATION_OWNER_ID, false, this, true);
+		List<Integer> ids = MssqlTool.getIDs(list);
+		Map<Integer, List<Retrievable>> children = new HashMap<Integer, List<Retrievable>>();
+		for (int from = 0; from < ids.size(); from += SqlGenerator.MAX_IN_SIZE) {
+			List<Integer> chunk = ids.subList(from, Math.min(from + SqlGenerator.MAX_IN_SIZE, ids.size()));
+			String sql = SqlGenerator.getManyToManyInStatement(clazz, list.get(0).getClass(), chunk.size());
+			if (!this.queryGroups(sql, handler, chunk, children)) {
+				logger.error("Could not get the ManyToMany relation " + field.getName());
+				return;
+			}
+		}
+		this.setGroups(list, field, children);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Loaded " + field.getName() + " for " + list.size() + " objects in " 
+					+ ((ids.size() + SqlGenerator.MAX_IN_SIZE - 1) / SqlGenerator.MAX_IN_SIZE) + " queries.");
+		}
+	}
+
+	@Override
+	public <E extends Retrievable> void createLazyRelation(final E e, Field field, final Annotation annotation) 
+	throws InstantiationException, IllegalAccessException {
+		final Class<Retrievable> clazz = MssqlTool.getListClass(field);
+		if (clazz == null) {
+			return;
+		}
+		if (!field.getType().isAssignableFrom(LazyList.class)) {
+			if (annotation instanceof OneToMany) {
+				this.createObjectForOneToManyRelation(e, field, annotation);
+			} else if (annotation instanceof ManyToMany) {
+				this.createObjectForManyToManyRelation(e, field, annotation);
+			}
+			return;
+		}
+		final String sql;
+		if (annotation instanceof OneToMany) {
+			sql = SqlGenerator.getOneToManyInStatement(clazz, ((OneToMany) annotation).id(), 1);
+		} else if (annotation instanceof ManyToMany) {
+			sql = SqlGenerator.getManyToManyInStatement(clazz, e.getClass(), 1);
+		} else {
+			return;
+		}
+		Accessors.get(field).set(e, new LazyList<Retrievable>(new Callable<List<Retrievable>>() {
+			@Override
+			public List<Retrievable> call() {
+				return DefaultDatabaseTool.getInstance().getObjects(sql, clazz, Integer.valueOf(e.getID()));
+			}
+		}));
+	}
+
+	/**
+	 * Run a query for a chunk of IDs and add the groups to the result.
+	 * 
+	 * @return false if the query failed.
+	 */
+	private boolean queryGroups(String sql, GroupedObjectListHandler<Retrievable> handler, List<Integer> ids, 
+			Map<Integer, List<Retrievable>> result) {
+		try {
+			result.putAll(DefaultDatabaseTool.getInstance().getQueryRunner().query(sql, handler, ids.toArray()));
+			return true;
+		} catch (SQLException e) {
+			logger.error("Some thing wrong with the SQL query. Message: " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Set the group of every object into the field. Every object gets its own list, also when it has no group.
+	 */
+	private <E extends Retrievable> void setGroups(List<E> list, Field field, Map<Integer, List<Retrievable>> groups) 
+	throws IllegalAccessException {
+		FieldAccessor accessor = Accessors.get(field);
+		for (E e : list) {
+			List<Retrievable> objects = groups.get(Integer.valueOf(e.getID()));
+			accessor.set(e, objects != null ? new ArrayList<Retrievable>(objects) : new ArrayList<Retrievable>(0));
+		}
+	}
+
+	/**
+	 * @return the different IDs of the objects in the list.
+	 */
+	private static <E extends Retrievable> List<Integer> getIDs(List<E> list) {
+		Set<Integer> ids = new LinkedHashSet<Integer>();
+		for (E e : list) {
+			ids.add(Integer.valueOf(e.getID()));
+		}
+		return new ArrayList<Integer>(ids);
+	}
+
+	/**
+	 * @return the class of the objects in a List field. Null if it is not a List of a class.
+	 */
+	@SuppressWarnings("unchecked")
+	@Nullable
+	private static Class<Retrievable> getListClass(Field field) {
+		Type type = field.getGenericType();
+		if (type instanceof ParameterizedType) {
+			for (Type clazz : ((ParameterizedType) type).getActualTypeArguments()) {
+				if (clazz instanceof Class) {
+					return (Class<Retrievable>) clazz;
+				}
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * @param annotation
 	 * @throws IllegalAccessException 
@@ -309,11 +588,11 @@ public class MssqlTool implements Retriver {
 			for (Type clazz : pType.getActualTypeArguments()) {
 				if (clazz instanceof Class) {
 					@SuppressWarnings("unchecked")
-					Retrievable object = (Retrievable) ((Class<Retrievable>) clazz).newInstance();
+					Retrievable object = Accessors.newInstance((Class<Retrievable>) clazz);
 					String sql = SqlGenerator.getManyToManyRetrivableByTableAndID(object, manyToMany.id(),
 							Integer.valueOf(((Retrievable)e).getID()), (Retrievable) e);
 					List<?> list = (List<?>) DefaultDatabaseTool.getInstance().getObjects(sql, object.getClass(), false);
-					field.set(e, list);
+					Accessors.get(field).set(e, list);
 				}
 			}
 		}
@@ -336,10 +615,10 @@ public class MssqlTool implements Retriver {
 			for (Type clazz : pType.getActualTypeArguments()) {
 				if (clazz instanceof Class) {
 					@SuppressWarnings("unchecked")
-					Retrievable object = (Retrievable) ((Class<Retrievable>) clazz).newInstance();
+					Retrievable object = Accessors.newInstance((Class<Retrievable>) clazz);
 					String sql = SqlGenerator.getRetrivableByTableAndID(object, oneToMany.id(), Integer.valueOf(((Retrievable)e).getID()));
 					List<?> list = (List<?>) DefaultDatabaseTool.getInstance().getObjects(sql, object.getClass(), false);
-					field.set(e, list);
+					Accessors.get(field).set(e, list);
 				}
 			}
 		}
@@ -347,25 +626,53 @@ public class MssqlTool implements Retriver {
 
 	@Override
 	public <E> Object setInteger(Field field, Object object, E e) throws IllegalAccessException {
+		return this.setInteger(Accessors.get(field), object, e);
+	}
+
+	@Override
+	public <E> Object setInteger(FieldAccessor accessor, Object object, E e) throws IllegalAccessException {
+		Class<?> type = accessor.getType();
 		if (object instanceof BigDecimal) {
-			object = ((BigDecimal) object).intValue();
+			accessor.setInt(e, ((BigDecimal) object).intValue());
 
-		} else if (field.getType().equals(boolean.class)) {
-			object = ((Integer)object == 1);
+		} else if (type == boolean.class) {
+			accessor.setBoolean(e, ((Integer) object).intValue() == 1);
 
-		} else if (field.getType().equals(String.class)) {
+		} else if (type == String.class) {
 			object = String.valueOf(object);
+			accessor.set(e, object);
 
 		} else if (object instanceof Long) {
-			object =((Long) object).intValue();
+			accessor.setInt(e, ((Long) object).intValue());
+
+		} else if (object instanceof Integer) {
+			accessor.setInt(e, ((Integer) object).intValue());
 
 		} else if (object == null) {
-			object = 0;
+			MssqlTool.setZero(accessor, e);
+
+		} else {
+			accessor.set(e, object);
 		}
-		field.set(e, object);
 		return object;
 	}
 
+	/**
+	 * Set 0 into a number field, without boxing if the field is primitive.
+	 */
+	private static void setZero(FieldAccessor accessor, Object e) throws IllegalAccessException {
+		Class<?> type = accessor.getType();
+		if (type == long.class || type == Long.class) {
+			accessor.setLong(e, 0L);
+		} else if (type == double.class || type == Double.class) {
+			accessor.setDouble(e, 0d);
+		} else if (type == float.class || type == Float.class) {
+			accessor.setFloat(e, 0f);
+		} else {
+			accessor.setInt(e, 0);
+		}
+	}
+
 	@Override
 	public String getDateTimeFormat() {
 		return "yyyy-MM-dd HH:mm:ss";
@@ -378,7 +685,7 @@ public class MssqlTool implements Retriver {
 		}
 		E e = null;
 		try {
-			e = clazz.newInstance();
+			e = Accessors.newInstance(clazz);
 		} catch (IllegalAccessException e1) {
 			logger.error("Could not create a new instance of class :" + clazz.getSimpleName() , e1);
 		} catch (InstantiationException e1) {
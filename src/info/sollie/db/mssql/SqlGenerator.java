@@ -5,15 +5,24 @@ package info.sollie.db.mssql;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import info.sollie.db.Nullable;
+import info.sollie.db.Persistence;
 import info.sollie.db.annotations.BigInt;
 import info.sollie.db.annotations.Clob;
 import info.sollie.db.annotations.DBBoolean;
@@ -30,6 +39,10 @@ import info.sollie.db.annotations.Timestamp;
 import info.sollie.db.annotations.Varchar;
 import info.sollie.db.interfaces.Retrievable;
 import info.sollie.db.interfaces.Writeable;
+import info.sollie.db.mapping.Accessors;
+import info.sollie.db.mapping.ClassMappings;
+import info.sollie.db.mapping.FieldMapping;
+import info.sollie.db.mapping.LazyList;
 
 import org.apache.log4j.Logger;
 import org.joda.time.Days;
@@ -56,6 +69,40 @@ public final class SqlGenerator {
 	public static final String DATO_TIME_FORMAT = "yyyy-MM-dd HH:mm:ss.SSS";
 	public static final String DATO_FORMAT = "yyyy-MM-dd";
 
+	/** Max number of parameters in a IN statement. MSSQL allows about 2100 parameters in a statement. */
+	public static final int MAX_IN_SIZE = 1000;
+
+	/** INSERT templates by class. Kept for the life of the JVM. */
+	private static final ConcurrentMap<Class<?>, WriteTemplate> insertTemplates = new ConcurrentHashMap<Class<?>, WriteTemplate>();
+
+	/** UPDATE templates by class. Kept for the life of the JVM. */
+	private static final ConcurrentMap<Class<?>, WriteTemplate> updateTemplates = new ConcurrentHashMap<Class<?>, WriteTemplate>();
+
+	/** Max number of parameters of a statement. Sql server allows 2100. */
+	public static final int MAX_PARAMETERS = 2000;
+
+	/** Column with the number of the row in {@link #getInsertRowsSQL(Class, int)}. */
+	public static final String ROW_NUMBER = "RowNumber";
+
+	/** DELETE templates by class. Kept for the life of the JVM. */
+	private static final ConcurrentMap<Class<?>, WriteTemplate> deleteTemplates = new ConcurrentHashMap<Class<?>, WriteTemplate>();
+
+	/** UPDATE templates for some of the columns, by class and the changed columns. */
+	private static final ConcurrentMap<Class<?>, ConcurrentMap<String, WriteTemplate>> dirtyTemplates = 
+		new ConcurrentHashMap<Class<?>, ConcurrentMap<String, WriteTemplate>>();
+
+	/** Max number of templates for some of the columns to keep for a class. */
+	private static final int MAX_DIRTY_TEMPLATES = 64;
+
+	/** Alias of the main table in {@link #getJoinFetchSQL(Class, List)}. The joined tables is t1, t2 and so on. */
+	public static final String JOIN_ALIAS = "t";
+
+	/** Label of the column that starts the columns of a joined table in {@link #getJoinFetchSQL(Class, List)}. */
+	public static final String JOIN_SEPARATOR = "JoinFetch";
+
+	/** Label of the column with the ID of the owner in {@link #getManyToManyInStatement(Class, Class, int)}. */
+	public static final String RELATION_OWNER_ID = "RelationOwnerID";
+
 	/**
 	 * Static method factory
 	 */
@@ -123,14 +170,270 @@ public final class SqlGenerator {
 		return result;
 	}
 
-	public static final <E extends Writeable> String writeSql(final E e) {
-		StringBuffer result = new StringBuffer(400);
-		Writeable w = (Writeable) e;
+	/**
+	 * @return true if the object is not stored yet and must be inserted. Objects without a id above 0 is new, and
+	 * objects with a id from {@link IDAllocator} that is not inserted.
+	 */
+	public static final boolean isNew(final Writeable w) {
+		if (w instanceof Persistence && ((Persistence<?>) w).isAllocated()) {
+			return true;
+		}
 		int id = 0;
 		if(w.getID() != null && w.getID().length() > 0) {
 			id = Integer.valueOf(w.getID());
 		}
-		if (id > 0) {
+		return id <= 0;
+	}
+
+	/**
+	 * Get the INSERT or UPDATE template for a object, as {@link #writeSql(Writeable)} decides. Store the object by 
+	 * executing the SQL of the template with the template as binder.
+	 * 
+	 * @param w the object to store.
+	 * @return the cached template of the class.
+	 */
+	public static final WriteTemplate getWriteTemplate(final Writeable w) {
+		return SqlGenerator.isNew(w) ? SqlGenerator.getInsertTemplate(w.getClass()) : SqlGenerator.getUpdateTemplate(w.getClass());
+	}
+
+	/**
+	 * @param clazz to insert.
+	 * @return INSERT with every column except the primary key as parameters. The new id is a generated key.
+	 */
+	public static final WriteTemplate getInsertTemplate(final Class<?> clazz) {
+		WriteTemplate result = insertTemplates.get(clazz);
+		if (result == null) {
+			List<FieldMapping> columns = SqlGenerator.getWriteColumns(clazz);
+			boolean assigned = IDAllocator.isAllocated(clazz);
+			StringBuilder sql = new StringBuilder(256);
+			sql.append(Syntax.INSERT).append(sep).append(Syntax.INTO).append(sep);
+			sql.append("[").append(SqlGenerator.getDatabaseName(clazz)).append("]").append(sep);
+			if (assigned) {
+				StringBuilder values = new StringBuilder("?");
+				sql.append("(").append(SqlGenerator.getIDName(clazz));
+				for (FieldMapping column : columns) {
+					sql.append(", ").append(column.getColumnName());
+					values.append(", ?");
+				}
+				sql.append(")").append(sep).append(Syntax.VALUES).append(" (").append(values).append(")");
+			} else if (columns.isEmpty()) {
+				sql.append("DEFAULT").append(sep).append(Syntax.VALUES);
+			} else {
+				StringBuilder values = new StringBuilder(columns.size() * 3);
+				sql.append("(");
+				for (int i = 0; i < columns.size(); i++) {
+					if (i > 0) {
+						sql.append(", ");
+						values.append(", ");
+					}
+					sql.append(columns.get(i).getColumnName());
+					values.append("?");
+				}
+				sql.append(")").append(sep).append(Syntax.VALUES).append(" (").append(values).append(")");
+			}
+			result = new WriteTemplate(sql.toString(), columns, false, assigned);
+			WriteTemplate existing = insertTemplates.putIfAbsent(clazz, result);
+			if (existing != null) {
+				result = existing;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param clazz to update.
+	 * @return UPDATE with every column except the primary key as parameters, and the id as the last parameter.
+	 */
+	public static final WriteTemplate getUpdateTemplate(final Class<?> clazz) {
+		WriteTemplate result = updateTemplates.get(clazz);
+		if (result == null) {
+			List<FieldMapping> columns = SqlGenerator.getWriteColumns(clazz);
+			if (columns.isEmpty()) {
+				throw new IllegalArgumentException(clazz.getSimpleName() + " has no columns to update.");
+			}
+			result = SqlGenerator.getUpdateTemplate(clazz, columns);
+			WriteTemplate existing = updateTemplates.putIfAbsent(clazz, result);
+			if (existing != null) {
+				result = existing;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get a INSERT of many rows, that selects the number of every row and the new id. The row number is used to
+	 * set the id, since the order of a OUTPUT is not the order of the rows. The parameters is bound by 
+	 * {@link WriteTemplate#bindRows(java.sql.PreparedStatement, List)}.
+	 * 
+	 * <pre>
+	 * MERGE INTO [W] USING (VALUES (?, ?, 0), (?, ?, 1)) AS source (name, active, RowNumber) ON 1=0 
+	 * WHEN NOT MATCHED THEN INSERT (name, active) VALUES (source.name, source.active) 
+	 * OUTPUT source.RowNumber, INSERTED.WID AS ID;
+	 * </pre>
+	 * 
+	 * @param clazz of the objects.
+	 * @param rows number of objects. Not more than {@link WriteTemplate#getMaxRows()}.
+	 * @return SQL with ? parameters for every column of every row.
+	 */
+	public static final String getInsertRowsSQL(final Class<?> clazz, final int rows) {
+		if (rows <= 0) {
+			throw new IllegalArgumentException("Number of rows must be above 0. Was " + rows);
+		}
+		List<FieldMapping> columns = SqlGenerator.getInsertTemplate(clazz).getColumns();
+		StringBuilder names = new StringBuilder(columns.size() * 16);
+		StringBuilder values = new StringBuilder(columns.size() * 24);
+		StringBuilder row = new StringBuilder(columns.size() * 3);
+		for (FieldMapping column : columns) {
+			names.append(column.getColumnName()).append(", ");
+			if (values.length() > 0) {
+				values.append(", ");
+			}
+			values.append("source.").append(column.getColumnName());
+			row.append("?, ");
+		}
+		StringBuilder sql = new StringBuilder(128 + rows * (row.length() + 10) + names.length() * 2 + values.length());
+		sql.append("MERGE").append(sep).append(Syntax.INTO).append(sep);
+		sql.append("[").append(SqlGenerator.getDatabaseName(clazz)).append("]").append(sep);
+		sql.append("USING (").append(Syntax.VALUES).append(sep);
+		for (int i = 0; i < rows; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append("(").append(row).append(i).append(")");
+		}
+		sql.append(")").append(sep).append(Syntax.AS).append(sep).append("source (").append(names).append(ROW_NUMBER).append(")");
+		sql.append(sep).append(Syntax.ON).append(sep).append("1=0").append(sep);
+		sql.append("WHEN NOT MATCHED THEN").append(sep).append(Syntax.INSERT).append(sep);
+		if (columns.isEmpty()) {
+			sql.append("DEFAULT").append(sep).append(Syntax.VALUES);
+		} else {
+			sql.append("(").append(names.substring(0, names.length() - 2)).append(")").append(sep);
+			sql.append(Syntax.VALUES).append(" (").append(values).append(")");
+		}
+		sql.append(sep).append("OUTPUT source.").append(ROW_NUMBER).append(", INSERTED.").append(SqlGenerator.getIDName(clazz));
+		sql.append(sep).append(Syntax.AS).append(sep).append("ID;");
+		return sql.toString();
+	}
+
+	/**
+	 * Get the cached DELETE with the id as the only parameter.
+	 * 
+	 * @param clazz of the object.
+	 * @return DELETE FROM [TABLE] WHERE ID=?
+	 */
+	public static final WriteTemplate getDeleteTemplate(final Class<?> clazz) {
+		WriteTemplate result = deleteTemplates.get(clazz);
+		if (result == null) {
+			StringBuilder sql = new StringBuilder(64);
+			sql.append(Syntax.DELETE).append(sep).append(Syntax.FROM).append(sep);
+			sql.append("[").append(SqlGenerator.getDatabaseName(clazz)).append("]").append(sep);
+			sql.append(Syntax.WHERE).append(sep).append(SqlGenerator.getIDName(clazz)).append("=?");
+			result = new WriteTemplate(sql.toString(), Collections.<FieldMapping>emptyList(), true);
+			WriteTemplate existing = deleteTemplates.putIfAbsent(clazz, result);
+			if (existing != null) {
+				result = existing;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get a UPDATE of the columns that is changed since the snapshot was taken.
+	 * 
+	 * @param w the object to update.
+	 * @param snapshot from {@link #snapshot(Writeable)} when the object was read or stored.
+	 * @return UPDATE with the changed columns as parameters and the id as the last, or null if no column is changed.
+	 */
+	@Nullable
+	public static final WriteTemplate getDirtyTemplate(final Writeable w, final Object[] snapshot) {
+		Class<?> clazz = w.getClass();
+		WriteTemplate all = SqlGenerator.getUpdateTemplate(clazz);
+		Object[] values = all.snapshot(w);
+		if (snapshot == null || snapshot.length != values.length) {
+			return all;
+		}
+		BitSet changed = new BitSet(values.length);
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] == null ? snapshot[i] != null : !values[i].equals(snapshot[i])) {
+				changed.set(i);
+			}
+		}
+		if (changed.isEmpty()) {
+			return null;
+		} else if (changed.cardinality() == values.length) {
+			return all;
+		}
+		ConcurrentMap<String, WriteTemplate> templates = dirtyTemplates.get(clazz);
+		if (templates == null) {
+			templates = new ConcurrentHashMap<String, WriteTemplate>();
+			ConcurrentMap<String, WriteTemplate> existing = dirtyTemplates.putIfAbsent(clazz, templates);
+			if (existing != null) {
+				templates = existing;
+			}
+		}
+		String key = changed.toString();
+		WriteTemplate result = templates.get(key);
+		if (result == null) {
+			List<FieldMapping> columns = new ArrayList<FieldMapping>(changed.cardinality());
+			for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+				columns.add(all.getColumns().get(i));
+			}
+			result = SqlGenerator.getUpdateTemplate(clazz, columns);
+			if (templates.size() < MAX_DIRTY_TEMPLATES) {
+				templates.putIfAbsent(key, result);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get the values of a object that is compared by {@link #getDirtyTemplate(Writeable, Object[])}.
+	 * 
+	 * @param w the object.
+	 * @return the values of every column except the primary key.
+	 */
+	public static final Object[] snapshot(final Writeable w) {
+		return SqlGenerator.getInsertTemplate(w.getClass()).snapshot(w);
+	}
+
+	private static WriteTemplate getUpdateTemplate(final Class<?> clazz, final List<FieldMapping> columns) {
+		StringBuilder sql = new StringBuilder(256);
+		sql.append(Syntax.UPDATE).append(sep).append("[").append(SqlGenerator.getDatabaseName(clazz)).append("]").append(sep);
+		sql.append(Syntax.SET).append(sep);
+		for (int i = 0; i < columns.size(); i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(columns.get(i).getColumnName()).append("=?");
+		}
+		sql.append(sep).append(Syntax.WHERE).append(sep).append(SqlGenerator.getIDName(clazz)).append("=?");
+		return new WriteTemplate(sql.toString(), columns, true);
+	}
+
+	/**
+	 * @return the database fields of the class except the primary key. A column is only written once.
+	 */
+	private static List<FieldMapping> getWriteColumns(final Class<?> clazz) {
+		String primaryKey = SqlGenerator.getIDName(clazz);
+		Set<String> names = new HashSet<String>();
+		List<FieldMapping> result = new ArrayList<FieldMapping>();
+		for (FieldMapping mapping : ClassMappings.get(clazz).getFields()) {
+			String name = mapping.getColumnName().toLowerCase(Locale.ENGLISH);
+			if (!primaryKey.equalsIgnoreCase(name) && names.add(name)) {
+				result.add(mapping);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get a INSERT or UPDATE with the values of the object written in the SQL. Use {@link #getWriteTemplate(Writeable)}
+	 * to store objects with parameters.
+	 */
+	public static final <E extends Writeable> String writeSql(final E e) {
+		StringBuffer result = new StringBuffer(400);
+		Writeable w = (Writeable) e;
+		if (!SqlGenerator.isNew(w)) {
 			result.append(SqlGenerator.updateWritable(w));
 		} else {
 			// new object
@@ -176,9 +479,7 @@ public final class SqlGenerator {
 		result.append(Syntax.INSERT).append(sep).append(Syntax.INTO).append(sep);
 		result.append("[").append(SqlGenerator.getDatabaseName(w.getClass())).append("]");
 		result.append(values[0]).append(sep);
-		result.append(Syntax.VALUES).append(values[1]).append(sep);
-		result.append(Syntax.SELECT).append(sep).append(Syntax.SCOPE_IDENTITY).append("()").append(sep).append(Syntax.AS);
-		result.append(sep).append("ID");;
+		result.append(Syntax.VALUES).append(values[1]);
 		return result.toString();
 	}
 
@@ -276,7 +577,6 @@ public final class SqlGenerator {
 	 */
 	private static void addField(final Writeable w,	Map<String, String> list, Field[] fiels) {
 		for (Field field : fiels) {
-			field.setAccessible(true);
 			for (Annotation annotation : field.getAnnotations()) {
 				if (SqlGenerator.isDatabaseAnnotation((annotation))) {
 					try {
@@ -284,7 +584,7 @@ public final class SqlGenerator {
 						if (annotation instanceof ForeignKey) {
 							columnName = ((ForeignKey) annotation).id();
 						}
-						list.put(columnName, SqlGenerator.fieldToSQL(field.get(w), annotation));
+						list.put(columnName, SqlGenerator.fieldToSQL(Accessors.get(field).get(w), annotation));
 					} catch (Exception e) {
 						logger.trace("Not possible to create a sql name value par", e);
 					}
@@ -447,6 +747,24 @@ public final class SqlGenerator {
 		}
 	}
 
+	/**
+	 * Get a SELECT TOP (?) * FROM [TABLE] WHERE ID &gt; ? ORDER BY ID ASC clause. Used to read a table one
+	 * chunk at a time. The first parameter is the size of the chunk and the second is the last id of the
+	 * previous chunk.
+	 * 
+	 * @param clazz class that will be the table name.
+	 * @return the sql.
+	 */
+	public static final String getChunkSQL(final Class<? extends Retrievable> clazz) {
+		String idName = SqlGenerator.getIDName(clazz);
+		StringBuffer result = new StringBuffer(256);
+		result.append(Syntax.SELECT).append(sep).append("TOP (?) *").append(sep).append(Syntax.FROM).append(sep);
+		result.append("[").append(SqlGenerator.getDatabaseName(clazz)).append("]").append(sep);
+		result.append(Syntax.WHERE).append(sep).append(idName).append(" > ?").append(sep);
+		result.append(Syntax.ORDER).append(sep).append(Syntax.BY).append(sep).append(idName).append(" ASC");
+		return result.toString();
+	}
+
 	private static String getAllSQL(Class<? extends Retrievable> clazz) {
 		StringBuffer result = new StringBuffer(256);
 		result.append(Syntax.SELECT).append(sep).append("*").append(sep).append(Syntax.FROM).append(sep);
@@ -468,6 +786,23 @@ public final class SqlGenerator {
 		return result.toString();
 	}
 
+	/**
+	 * Get the objects of a OneToMany relation for many owners. The IDs of the owners is the parameters.
+	 * 
+	 * @param clazz of the objects in the relation.
+	 * @param idName of the column that references the owner.
+	 * @param size number of owners.
+	 * @return SELECT with the objects ordered as {@link #getRetrivableByTableAndID(Retrievable, String, int)}.
+	 */
+	public static final String getOneToManyInStatement(final Class<?> clazz, final String idName, final int size) {
+		StringBuilder result = new StringBuilder(128);
+		result.append(Syntax.SELECT).append(" * ");
+		result.append(Syntax.FROM).append(sep).append("[").append(SqlGenerator.getDatabaseName(clazz)).append("] ");
+		result.append(Syntax.WHERE).append(sep).append(idName).append(SqlGenerator.getInByLength(size)).append(sep);
+		result.append(Syntax.ORDER).append(sep).append(Syntax.BY).append(sep).append(getIDName(clazz)).append(sep).append(Syntax.DESC);
+		return result.toString();
+	}
+
 	public static String getManyToManyRetrivableByTableAndID(Retrievable resultObject, String id, Integer objectID, Retrievable originalObject) {
 		String resultClass = SqlGenerator.getDatabaseName(resultObject.getClass());
 		String resultID = getIDName(resultObject.getClass());
@@ -486,35 +821,104 @@ public final class SqlGenerator {
 		return result.toString();
 	}
 
+	/**
+	 * Get the objects of a ManyToMany relation for many owners with one join against the connecting table. The IDs 
+	 * of the owners is the parameters. Every row contains the columns of the result class and the ID of the owner 
+	 * as {@link #RELATION_OWNER_ID}. A object that belongs to more than one owner is returned once for every owner.
+	 * 
+	 * @param resultClass class of the objects in the relation.
+	 * @param originalClass class of the owners.
+	 * @param size number of owners.
+	 * @return SELECT with the objects ordered as {@link #getManyToManyRetrivableByTableAndID(Retrievable, String, Integer, Retrievable)}.
+	 */
+	public static String getManyToManyInStatement(final Class<?> resultClass, final Class<?> originalClass, final int size) {
+		String resultTable = SqlGenerator.getDatabaseName(resultClass);
+		String resultID = getIDName(resultClass);
+		String originalID = getIDName(originalClass);
+		String connectingClass = SqlGenerator.getConnectingManyToMayClass(resultTable, SqlGenerator.getDatabaseName(originalClass));
+		StringBuilder result = new StringBuilder(256);
+		result.append(Syntax.SELECT).append(sep).append(resultTable).append(".*, ").append(connectingClass).append(".").append(originalID);
+		result.append(sep).append(Syntax.AS).append(sep).append(RELATION_OWNER_ID).append(sep);
+		result.append(Syntax.FROM).append(sep).append("[").append(resultTable).append("]").append(sep);
+		result.append(Syntax.INNER).append(sep).append(Syntax.JOIN).append(sep).append("[").append(connectingClass).append("]").append(sep);
+		result.append(Syntax.ON).append(sep).append(resultTable).append(".").append(resultID).append("=").append(connectingClass);
+		result.append(".").append(resultID).append(sep);
+		result.append(Syntax.WHERE).append(sep).append(connectingClass).append(".").append(originalID).append(SqlGenerator.getInByLength(size)).append(sep);
+		result.append(Syntax.ORDER).append(sep).append(Syntax.BY).append(sep).append(resultTable).append(".").append(resultID);
+		result.append(sep).append(Syntax.DESC);
+		return result.toString();
+	}
+
+	/**
+	 * Get the objects of a class together with the objects of some of the {@link ForeignKey} fields with one 
+	 * LEFT JOIN for every field. The main table has the alias t0 and the table of the n-th field has the alias tn.
+	 * The columns of every joined table starts after a empty column labeled {@link #JOIN_SEPARATOR} and n, so the 
+	 * row can be split even if the tables has columns with the same name. A WHERE or ORDER BY can be appended. 
+	 * 
+	 * @param clazz of the main objects.
+	 * @param foreignKeys fields of the class to join.
+	 * @return SELECT with the main table and the joined tables.
+	 */
+	public static String getJoinFetchSQL(final Class<?> clazz, final List<Field> foreignKeys) {
+		StringBuilder columns = new StringBuilder(128);
+		StringBuilder joins = new StringBuilder(128);
+		columns.append(Syntax.SELECT).append(sep).append(JOIN_ALIAS).append("0.*");
+		joins.append(Syntax.FROM).append(sep).append("[").append(SqlGenerator.getDatabaseName(clazz)).append("]").append(sep);
+		joins.append(JOIN_ALIAS).append("0");
+		int alias = 1;
+		for (Field field : foreignKeys) {
+			String table = JOIN_ALIAS + alias;
+			columns.append(", NULL").append(sep).append(Syntax.AS).append(sep).append(JOIN_SEPARATOR).append(alias);
+			columns.append(", ").append(table).append(".*");
+			joins.append(sep).append(Syntax.LEFT).append(sep).append(Syntax.JOIN).append(sep);
+			joins.append("[").append(SqlGenerator.getDatabaseName(field.getType())).append("]").append(sep).append(table).append(sep);
+			joins.append(Syntax.ON).append(sep).append(table).append(".").append(SqlGenerator.getIDName(field.getType())).append("=");
+			joins.append(JOIN_ALIAS).append("0.").append(new FieldMapping(field).getColumnName());
+			alias++;
+		}
+		return columns.append(sep).append(joins).toString();
+	}
+
+	/**
+	 * @deprecated SQL Server allows at most 1000 rows in one VALUES, and the INSERT has all the objects of the relation.
+	 * Use {@link #getManyToManyStatements(Writeable)}, that writes at most {@link #MAX_IN_SIZE} rows in every INSERT.
+	 */
+	@Deprecated
+	@SuppressWarnings("unchecked")
 	public final static String getManyToManyWriteSQL(final Writeable main, final Field field, final ManyToMany manyToMany, final Retrievable retriveable) {
-		String resultClass = SqlGenerator.getDatabaseName(main.getClass());
-		String resultID = getIDName(main.getClass());
-		String originalClass = SqlGenerator.getDatabaseName(retriveable.getClass());
-		String originalID = getIDName(retriveable.getClass());
-		String connectingClass = SqlGenerator.getConnectingManyToMayClass(resultClass, originalClass);
-		LocalDateTime now = new LocalDateTime();
-		//		String sql = SqlGenerator.getManyToManyRetrivableByTableAndID(object, manyToMany.id(),
-		//				Integer.valueOf(((Retrievable)e).getID()), (Retrievable) e);
-		StringBuffer result = new StringBuffer(128);
-		result.append(Syntax.INSERT).append(sep).append(Syntax.INTO).append(sep).append("[").append(connectingClass).append("]").append(sep);
-		result.append("(").append(resultID).append(", ").append(originalID).append(", ").append("Created").append(")").append(sep);
-		result.append(Syntax.VALUES);
 		try {
 			List<Retrievable> values = (List<Retrievable>) field.get(main);
 			if (values != null && values.size() > 0) {
-				for (Retrievable value : values) {
-					String id = value.getID();
-					result.append(" (").append(main.getID()).append(",").append(id).append(",").append("'");
-					result.append(now.toString(MssqlTool.getInstance().getDateTimeFormat())).append("'").append("),");
-				}
-				result.deleteCharAt(result.length() - 1);
-			} else return "";
+				return SqlGenerator.getManyToManyInsertSQL(main, retriveable, values, new LocalDateTime());
+			}
 		} catch (IllegalArgumentException e) {
 			logger.error("Error getting the field value of ManyToMany relation.", e);
 		} catch (IllegalAccessException e) {
 			logger.error("Field with ManyToMany relation was not allowed to be accessed.", e);
 		}
+		return "";
+	}
 
+	/**
+	 * @return INSERT of a row in the connecting table for every object in values.
+	 */
+	private static String getManyToManyInsertSQL(final Writeable main, final Retrievable retriveable,
+			final List<Retrievable> values, final LocalDateTime now) {
+		String resultClass = SqlGenerator.getDatabaseName(main.getClass());
+		String resultID = getIDName(main.getClass());
+		String originalClass = SqlGenerator.getDatabaseName(retriveable.getClass());
+		String originalID = getIDName(retriveable.getClass());
+		String connectingClass = SqlGenerator.getConnectingManyToMayClass(resultClass, originalClass);
+		String created = now.toString(MssqlTool.getInstance().getDateTimeFormat());
+		StringBuilder result = new StringBuilder(64 + values.size() * 40);
+		result.append(Syntax.INSERT).append(sep).append(Syntax.INTO).append(sep).append("[").append(connectingClass).append("]").append(sep);
+		result.append("(").append(resultID).append(", ").append(originalID).append(", ").append("Created").append(")").append(sep);
+		result.append(Syntax.VALUES);
+		for (Retrievable value : values) {
+			result.append(" (").append(main.getID()).append(",").append(value.getID()).append(",").append("'");
+			result.append(created).append("'").append("),");
+		}
+		result.deleteCharAt(result.length() - 1);
 		return result.toString();
 	}
 	
@@ -530,6 +934,63 @@ public final class SqlGenerator {
 		return sql.toString();
 	}
 
+	/**
+	 * @return true if the class has a List field with {@link ManyToMany}.
+	 */
+	public static boolean hasManyToMany(final Class<?> clazz) {
+		for (Field field : clazz.getDeclaredFields()) {
+			if (field.getType().equals(List.class) && field.isAnnotationPresent(ManyToMany.class)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the statements that writes the ManyToMany relations of a object. For every relation that is set, the rows
+	 * of the object in the connecting table is deleted and the objects of the relation is inserted, with at most 
+	 * {@link #MAX_IN_SIZE} rows in every INSERT. A relation that is null, or a {@link LazyList} that is not read, is 
+	 * not changed since the object was read and is not written.
+	 *
+	 * @param main the object. It must have its id.
+	 * @return the DELETE and INSERTs of every relation, or a empty list if there is nothing to write.
+	 * @throws InstantiationException if a object of the relation could not be created.
+	 * @throws IllegalAccessException if a field of a relation could not be accessed.
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<String> getManyToManyStatements(final Writeable main) throws InstantiationException, IllegalAccessException {
+		List<String> result = new ArrayList<String>(2);
+		LocalDateTime now = null;
+		for (Field field : main.getClass().getDeclaredFields()) {
+			ManyToMany manyToMany = field.getAnnotation(ManyToMany.class);
+			if (manyToMany == null || !field.getType().equals(List.class)) {
+				continue;
+			}
+			field.setAccessible(true);
+			List<Retrievable> values = (List<Retrievable>) field.get(main);
+			if (values == null || values instanceof LazyList && !((LazyList<?>) values).isLoaded()) {
+				continue;
+			}
+			Type type = field.getGenericType();
+			if (type instanceof ParameterizedType) {
+				for (Type clazz : ((ParameterizedType) type).getActualTypeArguments()) {
+					if (clazz instanceof Class) {
+						Retrievable relationObject = Accessors.newInstance((Class<Retrievable>) clazz);
+						result.add(SqlGenerator.getManyToManyDeleteRefSQL(main, field, manyToMany, relationObject));
+						if (now == null) {
+							now = new LocalDateTime();
+						}
+						for (int from = 0; from < values.size(); from += MAX_IN_SIZE) {
+							List<Retrievable> chunk = values.subList(from, Math.min(from + MAX_IN_SIZE, values.size()));
+							result.add(SqlGenerator.getManyToManyInsertSQL(main, relationObject, chunk, now));
+						}
+					}
+				}
+			}
+		}
+		return result;
+	}
+
 	private static String getConnectingManyToMayClass(final String resultClass, final String originalClass) {
 		if (resultClass.compareTo(originalClass) < 0) {
 			return resultClass + "_" + originalClass;
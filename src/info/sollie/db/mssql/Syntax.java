@@ -17,6 +17,6 @@ public enum Syntax {
     ID,
     SCOPE_IDENTITY,
     AS, 
-    DELETE, DESC, INNER, JOIN, ON, IN;
+    DELETE, DESC, INNER, LEFT, JOIN, ON, IN;
 
 }
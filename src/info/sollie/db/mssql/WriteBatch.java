@@ -0,0 +1,193 @@
+package info.sollie.db.mssql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import info.sollie.db.Persistence;
+import info.sollie.db.interfaces.StatementBinder;
+import info.sollie.db.interfaces.Writeable;
+import info.sollie.db.mapping.GeneratedMapping;
+import info.sollie.db.mapping.GeneratedMappings;
+
+/**
+ * Objects of one class that is written with the same SQL in
+ * {@link info.sollie.db.interfaces.DatabaseTool#storeObjects(List, int)}. Objects to update is bound one by one to
+ * the UPDATE or DELETE and added to a JDBC batch. Objects to insert is written many rows in every statement with
+ * {@link SqlGenerator#getInsertRowsSQL(Class, int)}, so the new id of every row is returned. The ManyToMany relations
+ * of stored objects is written with the statements of {@link SqlGenerator#getManyToManyStatements(Writeable)}.
+ *
+ * @author Andre Sollie
+ *
+ * @param <E> the objects to write.
+ */
+public final class WriteBatch<E extends Writeable> {
+
+	private final Class<?> type;
+
+	/** The UPDATE. Null for inserts. */
+	private final String sql;
+
+	private final StatementBinder<? super E> binder;
+
+	private final List<E> objects;
+
+	/** Writes the ManyToMany relations of the objects. */
+	private final boolean relations;
+
+	private WriteBatch(final Class<?> type, final String sql, final StatementBinder<? super E> binder, final List<E> objects) {
+		this(type, sql, binder, objects, false);
+	}
+
+	private WriteBatch(final Class<?> type, final String sql, final StatementBinder<? super E> binder, final List<E> objects,
+			final boolean relations) {
+		this.type = type;
+		this.sql = sql;
+		this.binder = binder;
+		this.objects = Collections.unmodifiableList(objects);
+		this.relations = relations;
+	}
+
+	/**
+	 * @param type of the objects.
+	 * @param objects to insert. The id is set on every object when it is written.
+	 */
+	public static <E extends Writeable> WriteBatch<E> inserts(final Class<?> type, final List<E> objects) {
+		return new WriteBatch<E>(type, null, SqlGenerator.getInsertTemplate(type), objects);
+	}
+
+	/**
+	 * @param type of the objects.
+	 * @param sql UPDATE with ? parameters.
+	 * @param binder that sets the parameters from a object.
+	 * @param objects to update.
+	 */
+	public static <E extends Writeable> WriteBatch<E> updates(final Class<?> type, final String sql,
+			final StatementBinder<? super E> binder, final List<E> objects) {
+		if (sql == null || binder == null) {
+			throw new IllegalArgumentException("SQL and binder cannot be null");
+		}
+		return new WriteBatch<E>(type, sql, binder, objects);
+	}
+
+	/**
+	 * @param type of the objects.
+	 * @param objects to delete.
+	 */
+	public static <E extends Writeable> WriteBatch<E> deletes(final Class<?> type, final List<E> objects) {
+		WriteTemplate template = SqlGenerator.getDeleteTemplate(type);
+		return new WriteBatch<E>(type, template.getSql(), template, objects);
+	}
+
+	/**
+	 * @param type of the objects.
+	 * @param objects that is stored, to write the ManyToMany relations of. They must have their id when the batch is 
+	 * written, so the batch is written after the objects.
+	 */
+	public static <E extends Writeable> WriteBatch<E> relations(final Class<?> type, final List<E> objects) {
+		return new WriteBatch<E>(type, null, null, objects, true);
+	}
+
+	/**
+	 * Group objects to store by class for inserts and by class and UPDATE for updates. The batches is in the order of the 
+	 * first object of every batch. A object that is not changed since it was read is not in any batch.
+	 *
+	 * @param objects to store.
+	 * @return the batches to write.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E extends Writeable> List<WriteBatch<E>> group(final List<E> objects) {
+		Map<Object, List<E>> groups = new LinkedHashMap<Object, List<E>>();
+		List<WriteBatch<E>> result = new ArrayList<WriteBatch<E>>();
+		for (E object : objects) {
+			if (object == null) {
+				continue;
+			}
+			Class<?> clazz = object.getClass();
+			IDAllocator.assign(object);
+			boolean insert = SqlGenerator.isNew(object);
+			String sql = null;
+			StatementBinder<? super E> binder = null;
+			if (!insert) {
+				GeneratedMapping<E> mapping = (GeneratedMapping<E>) GeneratedMappings.get(clazz);
+				Object[] snapshot = object instanceof Persistence ? ((Persistence<?>) object).getSnapshot() : null;
+				if (snapshot != null) {
+					WriteTemplate template = SqlGenerator.getDirtyTemplate(object, snapshot);
+					if (template == null) {
+						continue;
+					}
+					sql = template.getSql();
+					binder = template;
+				} else if (mapping != null) {
+					sql = mapping.getUpdateSql();
+					binder = mapping.getUpdateBinder();
+				} else {
+					WriteTemplate template = SqlGenerator.getUpdateTemplate(clazz);
+					sql = template.getSql();
+					binder = template;
+				}
+			}
+			Object key = insert ? clazz : Arrays.<Object>asList(clazz, sql);
+			List<E> group = groups.get(key);
+			if (group == null) {
+				group = new ArrayList<E>();
+				groups.put(key, group);
+				result.add(insert ? WriteBatch.inserts(clazz, group) : WriteBatch.updates(clazz, sql, binder, group));
+			}
+			group.add(object);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the class of the objects.
+	 */
+	public Class<?> getType() {
+		return this.type;
+	}
+
+	/**
+	 * @return true if the objects is inserted.
+	 */
+	public boolean isInsert() {
+		return this.sql == null && !this.relations;
+	}
+
+	/**
+	 * @return true if the ManyToMany relations of the objects is written.
+	 */
+	public boolean isRelations() {
+		return this.relations;
+	}
+
+	/**
+	 * @return the UPDATE or DELETE, or null for inserts and relations.
+	 */
+	public String getSql() {
+		return this.sql;
+	}
+
+	/**
+	 * @return the binder of a UPDATE or DELETE, or the {@link WriteTemplate} of the INSERT for inserts. Null for 
+	 * relations.
+	 */
+	public StatementBinder<? super E> getBinder() {
+		return this.binder;
+	}
+
+	/**
+	 * @return the objects to write.
+	 */
+	public List<E> getObjects() {
+		return this.objects;
+	}
+
+	@Override
+	public String toString() {
+		String operation = this.relations ? "ManyToMany" : this.isInsert() ? "INSERT" : this.sql;
+		return operation + " of " + this.objects.size() + " " + this.type.getSimpleName();
+	}
+}
@@ -0,0 +1,155 @@
+package info.sollie.db.mssql;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+import info.sollie.db.interfaces.StatementBinder;
+import info.sollie.db.interfaces.Writeable;
+import info.sollie.db.mapping.FieldMapping;
+import info.sollie.db.mapping.Parameters;
+
+/**
+ * A INSERT or UPDATE with ? parameters for a class, and the binder that sets the values of a object as typed
+ * parameters. A template is made once for every class and operation by {@link SqlGenerator}, so storing a object
+ * does not build any SQL, and the server can reuse the plan of the statement.
+ *
+ * @author Andre Sollie
+ *
+ */
+public final class WriteTemplate implements StatementBinder<Writeable> {
+
+	private final String sql;
+
+	/** The fields in the order of the parameters. */
+	private final List<FieldMapping> columns;
+
+	/** The id is bound as the last parameter. */
+	private final boolean update;
+
+	/** A INSERT with the id from {@link IDAllocator} as the first parameter. */
+	private final boolean assigned;
+
+	WriteTemplate(final String sql, final List<FieldMapping> columns, final boolean update) {
+		this(sql, columns, update, false);
+	}
+
+	WriteTemplate(final String sql, final List<FieldMapping> columns, final boolean update, final boolean assigned) {
+		this.sql = sql;
+		this.columns = Collections.unmodifiableList(columns);
+		this.update = update;
+		this.assigned = assigned;
+	}
+
+	@Override
+	public void bind(final PreparedStatement statement, final Writeable e) throws SQLException {
+		int index = 1;
+		if (this.assigned) {
+			statement.setInt(index++, Integer.parseInt(e.getID()));
+		}
+		for (FieldMapping column : this.columns) {
+			Object value;
+			try {
+				value = column.getValue(e);
+			} catch (IllegalAccessException e1) {
+				throw new SQLException("Cannot access the field " + column.getField().getName(), e1);
+			}
+			Parameters.bind(statement, index++, column.getType(), value);
+		}
+		if (this.update) {
+			statement.setInt(index, Integer.parseInt(e.getID()));
+		}
+	}
+
+	/**
+	 * Set the parameters of a statement from {@link SqlGenerator#getInsertRowsSQL(Class, int)}. The columns of every
+	 * row follows the columns of the row before.
+	 *
+	 * @param statement with ? parameters for every row.
+	 * @param rows the objects.
+	 * @throws SQLException if a parameter could not be set.
+	 */
+	public void bindRows(final PreparedStatement statement, final List<? extends Writeable> rows) throws SQLException {
+		int index = 1;
+		for (Writeable e : rows) {
+			for (FieldMapping column : this.columns) {
+				Object value;
+				try {
+					value = column.getValue(e);
+				} catch (IllegalAccessException e1) {
+					throw new SQLException("Cannot access the field " + column.getField().getName(), e1);
+				}
+				Parameters.bind(statement, index++, column.getType(), value);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of rows of a INSERT that is inside the limits of parameters and rows of a statement.
+	 */
+	public int getMaxRows() {
+		return Math.min(SqlGenerator.MAX_IN_SIZE, SqlGenerator.MAX_PARAMETERS / Math.max(1, this.columns.size()));
+	}
+
+	/**
+	 * Get the values of the columns, as they are compared by {@link SqlGenerator#getDirtyTemplate(Writeable, Object[])}.
+	 * A foreign object is kept as its ID and a date as its time, so later changes to the objects is seen.
+	 *
+	 * @param e the object.
+	 * @return the values in the order of the parameters.
+	 */
+	public Object[] snapshot(final Writeable e) {
+		Object[] result = new Object[this.columns.size()];
+		for (int i = 0; i < result.length; i++) {
+			FieldMapping column = this.columns.get(i);
+			Object value;
+			try {
+				value = column.getValue(e);
+			} catch (IllegalAccessException e1) {
+				throw new IllegalStateException("Cannot access the field " + column.getField().getName(), e1);
+			}
+			if (value instanceof Writeable) {
+				value = ((Writeable) value).getID();
+			} else if (value instanceof java.util.Date) {
+				value = Long.valueOf(((java.util.Date) value).getTime());
+			}
+			result[i] = value;
+		}
+		return result;
+	}
+
+	/**
+	 * @return the SQL with ? parameters. The new id of a INSERT is a generated key.
+	 */
+	public String getSql() {
+		return this.sql;
+	}
+
+	/**
+	 * @return the fields in the order of the parameters.
+	 */
+	public List<FieldMapping> getColumns() {
+		return this.columns;
+	}
+
+	/**
+	 * @return true if it is a INSERT with the id from {@link IDAllocator} as the first parameter. It returns no new id
+	 * and can be written as a JDBC batch.
+	 */
+	public boolean isAssigned() {
+		return this.assigned;
+	}
+
+	/**
+	 * @return true if it is a UPDATE, where the id is the last parameter.
+	 */
+	public boolean isUpdate() {
+		return this.update;
+	}
+
+	@Override
+	public String toString() {
+		return this.sql;
+	}
+}
@@ -0,0 +1,598 @@
+package info.sollie.db.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+import info.sollie.db.annotations.ForeignKey;
+import info.sollie.db.annotations.PrimaryKey;
+import info.sollie.db.annotations.TableName;
+
+/**
+ * Annotation processor that generates a {@link info.sollie.db.mapping.GeneratedMapping} for every concrete
+ * subclass of {@link info.sollie.db.Persistence}. The generated class maps rows with typed getters and
+ * binds inserts and updates as parameters without reflection, and contains the SQL of the class.
+ *
+ * The processor is optional. Enable it with javac -processor info.sollie.db.processor.PersistenceProcessor.
+ * Classes without a generated mapping is mapped with reflection.
+ *
+ * The processor runs for sources with the entity annotations and claims them, so javac does not warn that no
+ * processor claimed them. Every entity of a round with one of the annotations is generated.
+ *
+ */
+@SupportedAnnotationTypes({
+	"info.sollie.db.annotations.TableName",
+	"info.sollie.db.annotations.PrimaryKey",
+	"info.sollie.db.annotations.AllocatedID",
+	"info.sollie.db.annotations.BigInt",
+	"info.sollie.db.annotations.Clob",
+	"info.sollie.db.annotations.DBBoolean",
+	"info.sollie.db.annotations.DBDouble",
+	"info.sollie.db.annotations.DBInteger",
+	"info.sollie.db.annotations.Decimal",
+	"info.sollie.db.annotations.ForeignKey",
+	"info.sollie.db.annotations.ManyToMany",
+	"info.sollie.db.annotations.Numeric",
+	"info.sollie.db.annotations.OneToMany",
+	"info.sollie.db.annotations.Real",
+	"info.sollie.db.annotations.Timestamp",
+	"info.sollie.db.annotations.Unique",
+	"info.sollie.db.annotations.Varchar" })
+public class PersistenceProcessor extends AbstractProcessor {
+
+	private static final String PERSISTENCE = "info.sollie.db.Persistence";
+
+	private static final String ANNOTATIONS = "info.sollie.db.annotations.";
+
+	private static final String MAPPING = "info.sollie.db.mapping.";
+
+	/** Classes that already have a generated mapping. */
+	private final Set<String> generated = new HashSet<String>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+		TypeElement persistence = this.processingEnv.getElementUtils().getTypeElement(PERSISTENCE);
+		if (persistence == null) {
+			return !annotations.isEmpty();
+		}
+		List<TypeElement> types = new ArrayList<TypeElement>();
+		for (Element element : roundEnv.getRootElements()) {
+			this.findTypes(element, types);
+		}
+		TypeMirror persistenceType = this.processingEnv.getTypeUtils().erasure(persistence.asType());
+		for (TypeElement type : types) {
+			if (this.isEntity(type, persistenceType) && this.generated.add(type.getQualifiedName().toString())) {
+				this.generate(type);
+			}
+		}
+		return !annotations.isEmpty();
+	}
+
+	private void findTypes(final Element element, final List<TypeElement> types) {
+		if (element.getKind() == ElementKind.CLASS) {
+			TypeElement type = (TypeElement) element;
+			types.add(type);
+			for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+				this.findTypes(nested, types);
+			}
+		}
+	}
+
+	private boolean isEntity(final TypeElement type, final TypeMirror persistenceType) {
+		Set<Modifier> modifiers = type.getModifiers();
+		if (modifiers.contains(Modifier.ABSTRACT) || modifiers.contains(Modifier.PRIVATE)) {
+			return false;
+		}
+		if (type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC)) {
+			return false;
+		}
+		if (type.getNestingKind() != NestingKind.TOP_LEVEL && type.getNestingKind() != NestingKind.MEMBER) {
+			return false;
+		}
+		if (!this.processingEnv.getTypeUtils().isSubtype(this.processingEnv.getTypeUtils().erasure(type.asType()), persistenceType)) {
+			return false;
+		}
+		if (!type.getTypeParameters().isEmpty()) {
+			this.note(type, "Generic classes is mapped with reflection.");
+			return false;
+		}
+		return true;
+	}
+
+	private void generate(final TypeElement type) {
+		EntityModel model = new EntityModel(type);
+		String packageName = this.getPackage(type).getQualifiedName().toString();
+		String simpleName = this.getBinaryName(type).substring(packageName.isEmpty() ? 0 : packageName.length() + 1);
+		String mappingName = simpleName.replace('$', '_') + "_Mapping";
+		String qualifiedName = packageName.isEmpty() ? mappingName : packageName + "." + mappingName;
+		try {
+			JavaFileObject file = this.processingEnv.getFiler().createSourceFile(qualifiedName, type);
+			Writer writer = file.openWriter();
+			try {
+				writer.write(new SourceWriter(model, packageName, mappingName).write());
+			} finally {
+				writer.close();
+			}
+		} catch (IOException e) {
+			this.processingEnv.getMessager().printMessage(Kind.ERROR, "Could not write " + qualifiedName + ": " + e.getMessage(), type);
+		}
+	}
+
+	private PackageElement getPackage(final Element element) {
+		Element current = element;
+		while (current.getKind() != ElementKind.PACKAGE) {
+			current = current.getEnclosingElement();
+		}
+		return (PackageElement) current;
+	}
+
+	private String getBinaryName(final TypeElement type) {
+		return this.processingEnv.getElementUtils().getBinaryName(type).toString();
+	}
+
+	private void note(final Element element, final String message) {
+		this.processingEnv.getMessager().printMessage(Kind.NOTE, message, element);
+	}
+
+	/**
+	 * The database fields and SQL of a class.
+	 */
+	private final class EntityModel {
+
+		private final TypeElement type;
+
+		private final String typeName;
+
+		private final String tableName;
+
+		private final String idName;
+
+		/** Every field in the class hierarchy, in the order columns is matched. */
+		private final List<FieldModel> fields = new ArrayList<FieldModel>();
+
+		private final boolean constructorAccessible;
+
+		private EntityModel(final TypeElement type) {
+			this.type = type;
+			this.typeName = type.getQualifiedName().toString();
+			TableName tableName = type.getAnnotation(TableName.class);
+			String simpleName = type.getSimpleName().toString();
+			this.tableName = tableName != null && !tableName.tableName().equals("") ? tableName.tableName() : simpleName;
+			PrimaryKey primaryKey = type.getAnnotation(PrimaryKey.class);
+			this.idName = primaryKey != null && !primaryKey.id().equals("") ? primaryKey.id() : simpleName + "ID";
+			boolean constructorAccessible = false;
+			for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+				if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+					constructorAccessible = true;
+				}
+			}
+			this.constructorAccessible = constructorAccessible;
+			int code = 1;
+			TypeElement current = type;
+			while (current != null && !current.getQualifiedName().contentEquals("java.lang.Object")) {
+				for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+					FieldModel model = new FieldModel(current, field, this.getPackage());
+					if (model.columnType != null) {
+						model.code = code++;
+					}
+					this.fields.add(model);
+				}
+				TypeMirror superclass = current.getSuperclass();
+				current = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+			}
+		}
+
+		private PackageElement getPackage() {
+			return PersistenceProcessor.this.getPackage(this.type);
+		}
+
+		/**
+		 * @return the database fields that is written. The primary key is not written and every column is only written once.
+		 */
+		private List<FieldModel> getWritableFields() {
+			List<FieldModel> result = new ArrayList<FieldModel>();
+			Set<String> columns = new HashSet<String>();
+			columns.add(this.idName.toLowerCase(Locale.ENGLISH));
+			for (FieldModel field : this.fields) {
+				if (field.columnType != null && columns.add(field.columnName.toLowerCase(Locale.ENGLISH))) {
+					result.add(field);
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * A field of a class.
+	 */
+	private final class FieldModel {
+
+		private final String owner;
+
+		private final String name;
+
+		/** Name of the ColumnType or null if it is not a database field. */
+		private final String columnType;
+
+		private final String columnName;
+
+		private final TypeMirror type;
+
+		private final boolean direct;
+
+		private int code;
+
+		private FieldModel(final TypeElement owner, final VariableElement field, final PackageElement entityPackage) {
+			this.owner = owner.getQualifiedName().toString();
+			this.name = field.getSimpleName().toString();
+			this.type = field.asType();
+			Set<Modifier> modifiers = field.getModifiers();
+			String columnType = null;
+			if (!modifiers.contains(Modifier.STATIC)) {
+				for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+					columnType = PersistenceProcessor.getColumnType(annotation);
+					if (columnType != null) {
+						break;
+					}
+				}
+			}
+			this.columnType = columnType;
+			ForeignKey foreignKey = field.getAnnotation(ForeignKey.class);
+			if ("FOREIGN_KEY".equals(columnType) && foreignKey != null) {
+				this.columnName = foreignKey.id();
+			} else {
+				this.columnName = this.name;
+			}
+			boolean samePackage = PersistenceProcessor.this.getPackage(owner).equals(entityPackage);
+			this.direct = !modifiers.contains(Modifier.PRIVATE) && !modifiers.contains(Modifier.FINAL)
+					&& (modifiers.contains(Modifier.PUBLIC) || samePackage);
+		}
+
+		private boolean is(final TypeKind kind) {
+			return this.type.getKind() == kind;
+		}
+
+		private boolean isType(final String qualifiedName) {
+			if (this.type.getKind() != TypeKind.DECLARED) {
+				return false;
+			}
+			return ((TypeElement) ((DeclaredType) this.type).asElement()).getQualifiedName().contentEquals(qualifiedName);
+		}
+
+		private boolean isEnum() {
+			return this.type.getKind() == TypeKind.DECLARED && ((DeclaredType) this.type).asElement().getKind() == ElementKind.ENUM;
+		}
+
+		private String getTypeName() {
+			return PersistenceProcessor.this.processingEnv.getTypeUtils().erasure(this.type).toString();
+		}
+	}
+
+	private static String getColumnType(final AnnotationMirror annotation) {
+		String name = ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+		if (!name.startsWith(ANNOTATIONS)) {
+			return null;
+		}
+		name = name.substring(ANNOTATIONS.length());
+		if (name.equals("DBInteger")) {
+			return "INTEGER";
+		} else if (name.equals("DBDouble")) {
+			return "DOUBLE";
+		} else if (name.equals("Real")) {
+			return "REAL";
+		} else if (name.equals("Numeric") || name.equals("Decimal")) {
+			return "NUMERIC";
+		} else if (name.equals("Timestamp")) {
+			return "TIMESTAMP";
+		} else if (name.equals("Varchar")) {
+			return "VARCHAR";
+		} else if (name.equals("Clob")) {
+			return "CLOB";
+		} else if (name.equals("DBBoolean")) {
+			return "BOOLEAN";
+		} else if (name.equals("BigInt")) {
+			return "BIGINT";
+		} else if (name.equals("ForeignKey")) {
+			return "FOREIGN_KEY";
+		}
+		return null;
+	}
+
+	/**
+	 * Writes the source of a generated mapping.
+	 */
+	private static final class SourceWriter {
+
+		private final EntityModel model;
+
+		private final String packageName;
+
+		private final String mappingName;
+
+		private final StringBuilder out = new StringBuilder(4096);
+
+		private SourceWriter(final EntityModel model, final String packageName, final String mappingName) {
+			this.model = model;
+			this.packageName = packageName;
+			this.mappingName = mappingName;
+		}
+
+		private String write() {
+			String type = this.model.typeName;
+			List<FieldModel> writable = this.model.getWritableFields();
+			if (!this.packageName.isEmpty()) {
+				this.line(0, "package " + this.packageName + ";");
+				this.line(0, "");
+			}
+			this.line(0, "/**");
+			this.line(0, " * Generated by " + PersistenceProcessor.class.getName() + " from " + type + ". Do not edit.");
+			this.line(0, " */");
+			this.line(0, "public final class " + this.mappingName + " extends " + MAPPING + "GeneratedMapping<" + type + "> {");
+			this.line(0, "");
+			for (FieldModel field : this.model.fields) {
+				if (field.columnType == null) {
+					continue;
+				}
+				if (this.isDelegated(field)) {
+					this.line(1, "private static final " + MAPPING + "FieldMapping FIELD_" + field.code + " = field(" + field.owner
+							+ ".class, \"" + field.name + "\");");
+				}
+				if (!field.direct) {
+					this.line(1, "private static final " + MAPPING + "FieldAccessor ACCESSOR_" + field.code + " = accessor("
+							+ field.owner + ".class, \"" + field.name + "\");");
+				}
+			}
+			this.line(0, "");
+			this.writeConstructor(type, writable);
+			this.writeNewInstance(type);
+			this.writePopulate(type);
+			this.writeBindInsert(type, writable);
+			this.writeBindUpdate(type, writable);
+			this.line(0, "}");
+			return this.out.toString();
+		}
+
+		private void writeConstructor(final String type, final List<FieldModel> writable) {
+			String table = "[" + this.model.tableName + "]";
+			String idName = this.model.idName;
+			StringBuilder columns = new StringBuilder();
+			StringBuilder values = new StringBuilder();
+			StringBuilder set = new StringBuilder();
+			for (FieldModel field : writable) {
+				if (columns.length() > 0) {
+					columns.append(", ");
+					values.append(", ");
+					set.append(", ");
+				}
+				columns.append(field.columnName);
+				values.append("?");
+				set.append(field.columnName).append("=?");
+			}
+			String select = "SELECT * FROM " + table + " WHERE " + idName + "=?";
+			String insert;
+			if (writable.isEmpty()) {
+				insert = "INSERT INTO " + table + " DEFAULT VALUES";
+			} else {
+				insert = "INSERT INTO " + table + " (" + columns + ") VALUES (" + values + ")";
+			}
+			String update = "UPDATE " + table + " SET " + set + " WHERE " + idName + "=?";
+			if (writable.isEmpty()) {
+				update = "UPDATE " + table + " SET " + idName + "=" + idName + " WHERE " + idName + "=?";
+			}
+			String delete = "DELETE FROM " + table + " WHERE " + idName + "=?";
+			this.line(1, "public " + this.mappingName + "() {");
+			this.line(2, "super(" + type + ".class, " + literal(this.model.tableName) + ", " + literal(idName) + ",");
+			this.line(4, literal(select) + ",");
+			this.line(4, literal(insert) + ",");
+			this.line(4, literal(update) + ",");
+			this.line(4, literal(delete) + ");");
+			for (FieldModel field : this.model.fields) {
+				String code = field.columnType == null ? "IGNORED" : String.valueOf(field.code);
+				this.line(2, "column(" + literal(field.name) + ", " + code + ");");
+				if (field.columnType != null && !field.columnName.equals(field.name)) {
+					this.line(2, "column(" + literal(field.columnName) + ", " + code + ");");
+				}
+			}
+			this.line(1, "}");
+			this.line(0, "");
+		}
+
+		private void writeNewInstance(final String type) {
+			this.line(1, "@Override");
+			this.line(1, "public " + type + " newInstance() {");
+			if (this.model.constructorAccessible) {
+				this.line(2, "return new " + type + "();");
+			} else {
+				this.line(2, "try {");
+				this.line(3, "return " + MAPPING + "Accessors.newInstance(" + type + ".class);");
+				this.line(2, "} catch (java.lang.InstantiationException e) {");
+				this.line(3, "throw new java.lang.IllegalStateException(e);");
+				this.line(2, "} catch (java.lang.IllegalAccessException e) {");
+				this.line(3, "throw new java.lang.IllegalStateException(e);");
+				this.line(2, "}");
+			}
+			this.line(1, "}");
+			this.line(0, "");
+		}
+
+		private void writePopulate(final String type) {
+			this.line(1, "@Override");
+			this.line(1, "public void populate(java.sql.ResultSet resultSet, int[] columns, " + type
+					+ " e, boolean follow, info.sollie.db.interfaces.Retriver retriver) {");
+			this.line(2, "for (int i = 0; i < columns.length; i++) {");
+			this.line(3, "int column = i + 1;");
+			this.line(3, "switch (columns[i]) {");
+			for (FieldModel field : this.model.fields) {
+				if (field.columnType == null) {
+					continue;
+				}
+				this.line(3, "case " + field.code + ":");
+				if (this.isDelegated(field)) {
+					this.line(4, "try {");
+					this.line(5, "FIELD_" + field.code + ".set(retriver, resultSet.getObject(column), e, follow);");
+				} else {
+					this.line(4, "try {");
+					this.line(5, this.assignment(field));
+				}
+				this.line(4, "} catch (java.lang.Exception e1) {");
+				this.line(5, "failed(" + literal(field.name) + ", e1);");
+				this.line(4, "}");
+				this.line(4, "break;");
+			}
+			this.line(3, "default:");
+			this.line(4, "break;");
+			this.line(3, "}");
+			this.line(2, "}");
+			this.line(1, "}");
+			this.line(0, "");
+		}
+
+		/**
+		 * @return true if the value is converted by the retriver. Only values with a typed getter is set directly.
+		 */
+		private boolean isDelegated(final FieldModel field) {
+			return this.getter(field) == null;
+		}
+
+		/**
+		 * @return the typed getter expression for the field or null if it must be converted by the retriver.
+		 */
+		private String getter(final FieldModel field) {
+			String kind = field.columnType;
+			if (kind.equals("INTEGER") && field.is(TypeKind.INT)) {
+				return "resultSet.getInt(column)";
+			} else if ((kind.equals("DOUBLE") || kind.equals("NUMERIC") || kind.equals("REAL")) && field.is(TypeKind.DOUBLE)) {
+				return "resultSet.getDouble(column)";
+			} else if (kind.equals("REAL") && field.is(TypeKind.FLOAT)) {
+				return "resultSet.getFloat(column)";
+			} else if (kind.equals("BOOLEAN") && field.is(TypeKind.BOOLEAN)) {
+				return "resultSet.getBoolean(column)";
+			} else if (kind.equals("BIGINT") && field.is(TypeKind.LONG)) {
+				return "resultSet.getLong(column)";
+			} else if (kind.equals("BIGINT") && field.is(TypeKind.INT)) {
+				return "(int) resultSet.getLong(column)";
+			} else if ((kind.equals("VARCHAR") || kind.equals("CLOB")) && field.isType("java.lang.String")) {
+				return "resultSet.getString(column)";
+			} else if (kind.equals("VARCHAR") && field.isEnum()) {
+				return "enumValue(" + field.getTypeName() + ".class, resultSet.getString(column))";
+			}
+			return null;
+		}
+
+		private String assignment(final FieldModel field) {
+			String getter = this.getter(field);
+			if (field.direct) {
+				return "e." + field.name + " = " + getter + ";";
+			}
+			switch (field.type.getKind()) {
+			case INT:
+				return "ACCESSOR_" + field.code + ".setInt(e, " + getter + ");";
+			case LONG:
+				return "ACCESSOR_" + field.code + ".setLong(e, " + getter + ");";
+			case DOUBLE:
+				return "ACCESSOR_" + field.code + ".setDouble(e, " + getter + ");";
+			case BOOLEAN:
+				return "ACCESSOR_" + field.code + ".setBoolean(e, " + getter + ");";
+			default:
+				return "ACCESSOR_" + field.code + ".set(e, " + getter + ");";
+			}
+		}
+
+		private void writeBindInsert(final String type, final List<FieldModel> writable) {
+			this.line(1, "@Override");
+			this.line(1, "public void bindInsert(java.sql.PreparedStatement statement, " + type + " e) throws java.sql.SQLException {");
+			int index = 1;
+			for (FieldModel field : writable) {
+				this.line(2, this.binding(field, index++));
+			}
+			this.line(1, "}");
+			this.line(0, "");
+		}
+
+		private void writeBindUpdate(final String type, final List<FieldModel> writable) {
+			this.line(1, "@Override");
+			this.line(1, "public void bindUpdate(java.sql.PreparedStatement statement, " + type + " e) throws java.sql.SQLException {");
+			int index = 1;
+			for (FieldModel field : writable) {
+				this.line(2, this.binding(field, index++));
+			}
+			this.line(2, "statement.setInt(" + index + ", java.lang.Integer.parseInt(e.getID()));");
+			this.line(1, "}");
+		}
+
+		private String binding(final FieldModel field, final int index) {
+			String kind = field.columnType;
+			if (field.direct) {
+				String value = "e." + field.name;
+				if (field.is(TypeKind.INT) && (kind.equals("INTEGER") || kind.equals("BIGINT"))) {
+					return "statement.setInt(" + index + ", " + value + ");";
+				} else if (field.is(TypeKind.LONG) && (kind.equals("INTEGER") || kind.equals("BIGINT"))) {
+					return "statement.setLong(" + index + ", " + value + ");";
+				} else if (field.is(TypeKind.DOUBLE) && (kind.equals("DOUBLE") || kind.equals("NUMERIC") || kind.equals("REAL"))) {
+					return "statement.setDouble(" + index + ", " + value + ");";
+				} else if (field.is(TypeKind.FLOAT) && kind.equals("REAL")) {
+					return "statement.setFloat(" + index + ", " + value + ");";
+				} else if (field.is(TypeKind.BOOLEAN) && kind.equals("BOOLEAN")) {
+					return "statement.setBoolean(" + index + ", " + value + ");";
+				} else if (field.is(TypeKind.BOOLEAN) && kind.equals("INTEGER")) {
+					return "statement.setInt(" + index + ", " + value + " ? 1 : 0);";
+				}
+				return MAPPING + "Parameters.bind(statement, " + index + ", " + MAPPING + "ColumnType." + kind + ", " + value + ");";
+			}
+			return MAPPING + "Parameters.bind(statement, " + index + ", " + MAPPING + "ColumnType." + kind + ", value(ACCESSOR_"
+					+ field.code + ", e));";
+		}
+
+		private void line(final int indent, final String text) {
+			for (int i = 0; i < indent; i++) {
+				this.out.append('\t');
+			}
+			this.out.append(text).append('\n');
+		}
+
+		private static String literal(final String value) {
+			StringBuilder result = new StringBuilder(value.length() + 2);
+			result.append('"');
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				if (c == '"' || c == '\\') {
+					result.append('\\').append(c);
+				} else if (c < 0x20 || c > 0x7e) {
+					result.append(String.format("\\u%04x", Integer.valueOf(c)));
+				} else {
+					result.append(c);
+				}
+			}
+			return result.append('"').toString();
+		}
+	}
+}
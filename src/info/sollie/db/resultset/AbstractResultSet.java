@@ -0,0 +1,1008 @@
+package info.sollie.db.resultset;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * Base class for result sets that is implemented by the library. It is read only: every update method throws
+ * a {@link SQLFeatureNotSupportedException}. The methods that takes a column label finds the column with
+ * {@link #findColumn(String)} and calls the method that takes a column index, so a subclass only needs to
+ * implement the index methods it supports. Every other method throws a {@link SQLFeatureNotSupportedException}.
+ *
+ */
+public abstract class AbstractResultSet implements ResultSet {
+
+	/**
+	 * @param method that is not supported.
+	 * @return a exception to throw.
+	 */
+	protected SQLFeatureNotSupportedException notSupported(final String method) {
+		return new SQLFeatureNotSupportedException(method + " is not supported by " + this.getClass().getSimpleName());
+	}
+
+	/**
+	 * @return a exception to throw from the update methods.
+	 */
+	protected SQLFeatureNotSupportedException readOnly() {
+		return new SQLFeatureNotSupportedException(this.getClass().getSimpleName() + " is read only");
+	}
+
+@Override
+	public boolean absolute(final int row) throws SQLException {
+		throw this.notSupported("absolute");
+	}
+
+	@Override
+	public void afterLast() throws SQLException {
+		throw this.notSupported("afterLast");
+	}
+
+	@Override
+	public void beforeFirst() throws SQLException {
+		throw this.notSupported("beforeFirst");
+	}
+
+	@Override
+	public void cancelRowUpdates() throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void clearWarnings() throws SQLException {
+		throw this.notSupported("clearWarnings");
+	}
+
+	@Override
+	public void close() throws SQLException {
+		throw this.notSupported("close");
+	}
+
+	@Override
+	public void deleteRow() throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public int findColumn(final String columnLabel) throws SQLException {
+		throw this.notSupported("findColumn");
+	}
+
+	@Override
+	public boolean first() throws SQLException {
+		throw this.notSupported("first");
+	}
+
+	@Override
+	public Array getArray(final String columnLabel) throws SQLException {
+		return this.getArray(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Array getArray(final int columnIndex) throws SQLException {
+		throw this.notSupported("getArray");
+	}
+
+	@Override
+	public InputStream getAsciiStream(final String columnLabel) throws SQLException {
+		return this.getAsciiStream(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public InputStream getAsciiStream(final int columnIndex) throws SQLException {
+		throw this.notSupported("getAsciiStream");
+	}
+
+	@Override
+	@Deprecated
+	public BigDecimal getBigDecimal(final String columnLabel, final int scale) throws SQLException {
+		return this.getBigDecimal(this.findColumn(columnLabel), scale);
+	}
+
+	@Override
+	public BigDecimal getBigDecimal(final String columnLabel) throws SQLException {
+		return this.getBigDecimal(this.findColumn(columnLabel));
+	}
+
+	@Override
+	@Deprecated
+	public BigDecimal getBigDecimal(final int columnIndex, final int scale) throws SQLException {
+		throw this.notSupported("getBigDecimal");
+	}
+
+	@Override
+	public BigDecimal getBigDecimal(final int columnIndex) throws SQLException {
+		throw this.notSupported("getBigDecimal");
+	}
+
+	@Override
+	public InputStream getBinaryStream(final String columnLabel) throws SQLException {
+		return this.getBinaryStream(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public InputStream getBinaryStream(final int columnIndex) throws SQLException {
+		throw this.notSupported("getBinaryStream");
+	}
+
+	@Override
+	public Blob getBlob(final String columnLabel) throws SQLException {
+		return this.getBlob(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Blob getBlob(final int columnIndex) throws SQLException {
+		throw this.notSupported("getBlob");
+	}
+
+	@Override
+	public boolean getBoolean(final String columnLabel) throws SQLException {
+		return this.getBoolean(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public boolean getBoolean(final int columnIndex) throws SQLException {
+		throw this.notSupported("getBoolean");
+	}
+
+	@Override
+	public byte getByte(final String columnLabel) throws SQLException {
+		return this.getByte(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public byte getByte(final int columnIndex) throws SQLException {
+		throw this.notSupported("getByte");
+	}
+
+	@Override
+	public byte[] getBytes(final String columnLabel) throws SQLException {
+		return this.getBytes(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public byte[] getBytes(final int columnIndex) throws SQLException {
+		throw this.notSupported("getBytes");
+	}
+
+	@Override
+	public Reader getCharacterStream(final String columnLabel) throws SQLException {
+		return this.getCharacterStream(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Reader getCharacterStream(final int columnIndex) throws SQLException {
+		throw this.notSupported("getCharacterStream");
+	}
+
+	@Override
+	public Clob getClob(final String columnLabel) throws SQLException {
+		return this.getClob(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Clob getClob(final int columnIndex) throws SQLException {
+		throw this.notSupported("getClob");
+	}
+
+	@Override
+	public int getConcurrency() throws SQLException {
+		throw this.notSupported("getConcurrency");
+	}
+
+	@Override
+	public String getCursorName() throws SQLException {
+		throw this.notSupported("getCursorName");
+	}
+
+	@Override
+	public Date getDate(final String columnLabel, final Calendar cal) throws SQLException {
+		return this.getDate(this.findColumn(columnLabel), cal);
+	}
+
+	@Override
+	public Date getDate(final String columnLabel) throws SQLException {
+		return this.getDate(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Date getDate(final int columnIndex, final Calendar cal) throws SQLException {
+		throw this.notSupported("getDate");
+	}
+
+	@Override
+	public Date getDate(final int columnIndex) throws SQLException {
+		throw this.notSupported("getDate");
+	}
+
+	@Override
+	public double getDouble(final String columnLabel) throws SQLException {
+		return this.getDouble(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public double getDouble(final int columnIndex) throws SQLException {
+		throw this.notSupported("getDouble");
+	}
+
+	@Override
+	public int getFetchDirection() throws SQLException {
+		throw this.notSupported("getFetchDirection");
+	}
+
+	@Override
+	public int getFetchSize() throws SQLException {
+		throw this.notSupported("getFetchSize");
+	}
+
+	@Override
+	public float getFloat(final String columnLabel) throws SQLException {
+		return this.getFloat(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public float getFloat(final int columnIndex) throws SQLException {
+		throw this.notSupported("getFloat");
+	}
+
+	@Override
+	public int getHoldability() throws SQLException {
+		throw this.notSupported("getHoldability");
+	}
+
+	@Override
+	public int getInt(final String columnLabel) throws SQLException {
+		return this.getInt(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public int getInt(final int columnIndex) throws SQLException {
+		throw this.notSupported("getInt");
+	}
+
+	@Override
+	public long getLong(final String columnLabel) throws SQLException {
+		return this.getLong(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public long getLong(final int columnIndex) throws SQLException {
+		throw this.notSupported("getLong");
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() throws SQLException {
+		throw this.notSupported("getMetaData");
+	}
+
+	@Override
+	public Reader getNCharacterStream(final String columnLabel) throws SQLException {
+		return this.getNCharacterStream(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Reader getNCharacterStream(final int columnIndex) throws SQLException {
+		throw this.notSupported("getNCharacterStream");
+	}
+
+	@Override
+	public NClob getNClob(final String columnLabel) throws SQLException {
+		return this.getNClob(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public NClob getNClob(final int columnIndex) throws SQLException {
+		throw this.notSupported("getNClob");
+	}
+
+	@Override
+	public String getNString(final String columnLabel) throws SQLException {
+		return this.getNString(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public String getNString(final int columnIndex) throws SQLException {
+		throw this.notSupported("getNString");
+	}
+
+	@Override
+	public <T> T getObject(final String columnLabel, final Class<T> type) throws SQLException {
+		return this.getObject(this.findColumn(columnLabel), type);
+	}
+
+	@Override
+	public Object getObject(final String columnLabel, final Map<String, Class<?>> map) throws SQLException {
+		return this.getObject(this.findColumn(columnLabel), map);
+	}
+
+	@Override
+	public Object getObject(final String columnLabel) throws SQLException {
+		return this.getObject(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public <T> T getObject(final int columnIndex, final Class<T> type) throws SQLException {
+		throw this.notSupported("getObject");
+	}
+
+	@Override
+	public Object getObject(final int columnIndex, final Map<String, Class<?>> map) throws SQLException {
+		throw this.notSupported("getObject");
+	}
+
+	@Override
+	public Object getObject(final int columnIndex) throws SQLException {
+		throw this.notSupported("getObject");
+	}
+
+	@Override
+	public Ref getRef(final String columnLabel) throws SQLException {
+		return this.getRef(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Ref getRef(final int columnIndex) throws SQLException {
+		throw this.notSupported("getRef");
+	}
+
+	@Override
+	public int getRow() throws SQLException {
+		throw this.notSupported("getRow");
+	}
+
+	@Override
+	public RowId getRowId(final String columnLabel) throws SQLException {
+		return this.getRowId(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public RowId getRowId(final int columnIndex) throws SQLException {
+		throw this.notSupported("getRowId");
+	}
+
+	@Override
+	public SQLXML getSQLXML(final String columnLabel) throws SQLException {
+		return this.getSQLXML(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public SQLXML getSQLXML(final int columnIndex) throws SQLException {
+		throw this.notSupported("getSQLXML");
+	}
+
+	@Override
+	public short getShort(final String columnLabel) throws SQLException {
+		return this.getShort(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public short getShort(final int columnIndex) throws SQLException {
+		throw this.notSupported("getShort");
+	}
+
+	@Override
+	public Statement getStatement() throws SQLException {
+		throw this.notSupported("getStatement");
+	}
+
+	@Override
+	public String getString(final String columnLabel) throws SQLException {
+		return this.getString(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public String getString(final int columnIndex) throws SQLException {
+		throw this.notSupported("getString");
+	}
+
+	@Override
+	public Time getTime(final String columnLabel, final Calendar cal) throws SQLException {
+		return this.getTime(this.findColumn(columnLabel), cal);
+	}
+
+	@Override
+	public Time getTime(final String columnLabel) throws SQLException {
+		return this.getTime(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Time getTime(final int columnIndex, final Calendar cal) throws SQLException {
+		throw this.notSupported("getTime");
+	}
+
+	@Override
+	public Time getTime(final int columnIndex) throws SQLException {
+		throw this.notSupported("getTime");
+	}
+
+	@Override
+	public Timestamp getTimestamp(final String columnLabel, final Calendar cal) throws SQLException {
+		return this.getTimestamp(this.findColumn(columnLabel), cal);
+	}
+
+	@Override
+	public Timestamp getTimestamp(final String columnLabel) throws SQLException {
+		return this.getTimestamp(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public Timestamp getTimestamp(final int columnIndex, final Calendar cal) throws SQLException {
+		throw this.notSupported("getTimestamp");
+	}
+
+	@Override
+	public Timestamp getTimestamp(final int columnIndex) throws SQLException {
+		throw this.notSupported("getTimestamp");
+	}
+
+	@Override
+	public int getType() throws SQLException {
+		throw this.notSupported("getType");
+	}
+
+	@Override
+	public URL getURL(final String columnLabel) throws SQLException {
+		return this.getURL(this.findColumn(columnLabel));
+	}
+
+	@Override
+	public URL getURL(final int columnIndex) throws SQLException {
+		throw this.notSupported("getURL");
+	}
+
+	@Override
+	@Deprecated
+	public InputStream getUnicodeStream(final String columnLabel) throws SQLException {
+		return this.getUnicodeStream(this.findColumn(columnLabel));
+	}
+
+	@Override
+	@Deprecated
+	public InputStream getUnicodeStream(final int columnIndex) throws SQLException {
+		throw this.notSupported("getUnicodeStream");
+	}
+
+	@Override
+	public SQLWarning getWarnings() throws SQLException {
+		throw this.notSupported("getWarnings");
+	}
+
+	@Override
+	public void insertRow() throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public boolean isAfterLast() throws SQLException {
+		throw this.notSupported("isAfterLast");
+	}
+
+	@Override
+	public boolean isBeforeFirst() throws SQLException {
+		throw this.notSupported("isBeforeFirst");
+	}
+
+	@Override
+	public boolean isClosed() throws SQLException {
+		throw this.notSupported("isClosed");
+	}
+
+	@Override
+	public boolean isFirst() throws SQLException {
+		throw this.notSupported("isFirst");
+	}
+
+	@Override
+	public boolean isLast() throws SQLException {
+		throw this.notSupported("isLast");
+	}
+
+	@Override
+	public boolean isWrapperFor(final Class<?> iface) throws SQLException {
+		throw this.notSupported("isWrapperFor");
+	}
+
+	@Override
+	public boolean last() throws SQLException {
+		throw this.notSupported("last");
+	}
+
+	@Override
+	public void moveToCurrentRow() throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void moveToInsertRow() throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public boolean next() throws SQLException {
+		throw this.notSupported("next");
+	}
+
+	@Override
+	public boolean previous() throws SQLException {
+		throw this.notSupported("previous");
+	}
+
+	@Override
+	public void refreshRow() throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public boolean relative(final int rows) throws SQLException {
+		throw this.notSupported("relative");
+	}
+
+	@Override
+	public boolean rowDeleted() throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean rowInserted() throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean rowUpdated() throws SQLException {
+		return false;
+	}
+
+	@Override
+	public void setFetchDirection(final int direction) throws SQLException {
+		throw this.notSupported("setFetchDirection");
+	}
+
+	@Override
+	public void setFetchSize(final int rows) throws SQLException {
+		throw this.notSupported("setFetchSize");
+	}
+
+	@Override
+	public <T> T unwrap(final Class<T> iface) throws SQLException {
+		throw this.notSupported("unwrap");
+	}
+
+	@Override
+	public void updateArray(final String columnLabel, final Array x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateArray(final int columnIndex, final Array x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateAsciiStream(final String columnLabel, final InputStream x, final int length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateAsciiStream(final String columnLabel, final InputStream x, final long length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateAsciiStream(final String columnLabel, final InputStream x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateAsciiStream(final int columnIndex, final InputStream x, final int length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateAsciiStream(final int columnIndex, final InputStream x, final long length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateAsciiStream(final int columnIndex, final InputStream x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateBigDecimal(final String columnLabel, final BigDecimal x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateBigDecimal(final int columnIndex, final BigDecimal x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateBinaryStream(final String columnLabel, final InputStream x, final int length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateBinaryStream(final String columnLabel, final InputStream x, final long length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateBinaryStream(final String columnLabel, final InputStream x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateBinaryStream(final int columnIndex, final InputStream x, final int length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateBinaryStream(final int columnIndex, final InputStream x, final long length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateBinaryStream(final int columnIndex, final InputStream x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateBlob(final String columnLabel, final InputStream x, final long length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateBlob(final String columnLabel, final InputStream x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateBlob(final String columnLabel, final Blob x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateBlob(final int columnIndex, final InputStream x, final long length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateBlob(final int columnIndex, final InputStream x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateBlob(final int columnIndex, final Blob x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateBoolean(final String columnLabel, final boolean x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateBoolean(final int columnIndex, final boolean x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateByte(final String columnLabel, final byte x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateByte(final int columnIndex, final byte x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateBytes(final String columnLabel, final byte[] x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateBytes(final int columnIndex, final byte[] x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateCharacterStream(final String columnLabel, final Reader x, final int length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateCharacterStream(final String columnLabel, final Reader x, final long length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateCharacterStream(final String columnLabel, final Reader x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateCharacterStream(final int columnIndex, final Reader x, final int length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateCharacterStream(final int columnIndex, final Reader x, final long length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateCharacterStream(final int columnIndex, final Reader x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateClob(final String columnLabel, final Reader x, final long length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateClob(final String columnLabel, final Reader x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateClob(final String columnLabel, final Clob x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateClob(final int columnIndex, final Reader x, final long length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateClob(final int columnIndex, final Reader x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateClob(final int columnIndex, final Clob x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateDate(final String columnLabel, final Date x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateDate(final int columnIndex, final Date x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateDouble(final String columnLabel, final double x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateDouble(final int columnIndex, final double x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateFloat(final String columnLabel, final float x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateFloat(final int columnIndex, final float x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateInt(final String columnLabel, final int x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateInt(final int columnIndex, final int x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateLong(final String columnLabel, final long x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateLong(final int columnIndex, final long x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateNCharacterStream(final String columnLabel, final Reader x, final long length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateNCharacterStream(final String columnLabel, final Reader x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateNCharacterStream(final int columnIndex, final Reader x, final long length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateNCharacterStream(final int columnIndex, final Reader x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateNClob(final String columnLabel, final Reader x, final long length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateNClob(final String columnLabel, final Reader x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateNClob(final String columnLabel, final NClob x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateNClob(final int columnIndex, final Reader x, final long length) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateNClob(final int columnIndex, final Reader x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateNClob(final int columnIndex, final NClob x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateNString(final String columnLabel, final String x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateNString(final int columnIndex, final String x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateNull(final String columnLabel) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateNull(final int columnIndex) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateObject(final String columnLabel, final Object x, final int scale) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateObject(final String columnLabel, final Object x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateObject(final int columnIndex, final Object x, final int scale) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateObject(final int columnIndex, final Object x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateRef(final String columnLabel, final Ref x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateRef(final int columnIndex, final Ref x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateRow() throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateRowId(final String columnLabel, final RowId x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateRowId(final int columnIndex, final RowId x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateSQLXML(final String columnLabel, final SQLXML x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateSQLXML(final int columnIndex, final SQLXML x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateShort(final String columnLabel, final short x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateShort(final int columnIndex, final short x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateString(final String columnLabel, final String x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateString(final int columnIndex, final String x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateTime(final String columnLabel, final Time x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateTime(final int columnIndex, final Time x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateTimestamp(final String columnLabel, final Timestamp x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public void updateTimestamp(final int columnIndex, final Timestamp x) throws SQLException {
+		throw this.readOnly();
+	}
+
+	@Override
+	public boolean wasNull() throws SQLException {
+		throw this.notSupported("wasNull");
+	}
+}
@@ -0,0 +1,759 @@
+package info.sollie.db.resultset;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The values of one column in a {@link ColumnarResultSet}. Every column type keeps its values in a primitive array
+ * where it can, and null values in a bitmap that is only made if the column has a null value.
+ *
+ */
+abstract class Column {
+
+	/** Rough size of a object header and a reference, used when the memory footprint is estimated. */
+	static final int OBJECT_OVERHEAD = 16;
+
+	static final int REFERENCE = 8;
+
+	final int sqlType;
+
+	/** One bit for every row that is null. Null if the column has no null values. */
+	private long[] nulls;
+
+	Column(final int sqlType) {
+		this.sqlType = sqlType;
+	}
+
+	/**
+	 * Choose the column type for a SQL type.
+	 *
+	 * @param sqlType the {@link Types} of the column.
+	 * @param precision of the column from the meta data.
+	 * @param scale of the column from the meta data.
+	 * @param capacity number of rows to make room for.
+	 * @return a empty column.
+	 */
+	static Column create(final int sqlType, final int precision, final int scale, final int capacity) {
+		switch (sqlType) {
+		case Types.BIT:
+		case Types.BOOLEAN:
+		case Types.TINYINT:
+		case Types.SMALLINT:
+		case Types.INTEGER:
+			return new IntColumn(sqlType, capacity);
+		case Types.BIGINT:
+			return new LongColumn(sqlType, capacity);
+		case Types.REAL:
+		case Types.FLOAT:
+		case Types.DOUBLE:
+			return new DoubleColumn(sqlType, capacity);
+		case Types.NUMERIC:
+		case Types.DECIMAL:
+			if (precision > 0 && precision <= DecimalColumn.MAX_PRECISION && scale >= 0) {
+				return new DecimalColumn(sqlType, scale, capacity);
+			}
+			return new ObjectColumn(sqlType, capacity);
+		case Types.CHAR:
+		case Types.VARCHAR:
+		case Types.LONGVARCHAR:
+		case Types.NCHAR:
+		case Types.NVARCHAR:
+		case Types.LONGNVARCHAR:
+		case Types.CLOB:
+		case Types.NCLOB:
+			return new StringColumn(sqlType, capacity);
+		case Types.DATE:
+		case Types.TIME:
+		case Types.TIMESTAMP:
+			return new TimestampColumn(sqlType, capacity);
+		default:
+			return new ObjectColumn(sqlType, capacity);
+		}
+	}
+
+	/**
+	 * Read the value of the current row of the source into the column.
+	 *
+	 * @param source positioned at the row.
+	 * @param column index in the source starting at 1.
+	 * @param row index in this column starting at 0. Room for it is made with {@link #grow(int)}.
+	 */
+	abstract void read(ResultSet source, int column, int row) throws SQLException;
+
+	/**
+	 * Make room for a number of rows.
+	 */
+	abstract void grow(int capacity);
+
+	/**
+	 * Cut the arrays to the number of rows that was read.
+	 */
+	abstract void trim(int rows);
+
+	/**
+	 * @return the value boxed as the driver would return it, or null.
+	 */
+	abstract Object getObject(int row);
+
+	/**
+	 * @return estimated number of bytes used by the values of the column.
+	 */
+	abstract long getMemoryFootprint();
+
+	final void setNull(final int row) {
+		if (this.nulls == null) {
+			this.nulls = new long[(row >> 6) + 1];
+		} else if ((row >> 6) >= this.nulls.length) {
+			this.nulls = Arrays.copyOf(this.nulls, Math.max((row >> 6) + 1, this.nulls.length * 2));
+		}
+		this.nulls[row >> 6] |= 1L << row;
+	}
+
+	final boolean isNull(final int row) {
+		return this.nulls != null && (row >> 6) < this.nulls.length && (this.nulls[row >> 6] & (1L << row)) != 0;
+	}
+
+	final void trimNulls(final int rows) {
+		if (this.nulls != null) {
+			this.nulls = Arrays.copyOf(this.nulls, (rows + 63) >> 6);
+		}
+	}
+
+	final long getNullsFootprint() {
+		return this.nulls == null ? 0 : OBJECT_OVERHEAD + 8L * this.nulls.length;
+	}
+
+	int getInt(final int row) throws SQLException {
+		return Column.toNumber(this.getObject(row)).intValue();
+	}
+
+	long getLong(final int row) throws SQLException {
+		return Column.toNumber(this.getObject(row)).longValue();
+	}
+
+	double getDouble(final int row) throws SQLException {
+		return Column.toNumber(this.getObject(row)).doubleValue();
+	}
+
+	boolean getBoolean(final int row) throws SQLException {
+		Object value = this.getObject(row);
+		if (value instanceof Boolean) {
+			return ((Boolean) value).booleanValue();
+		} else if (value instanceof String) {
+			String string = ((String) value).trim();
+			return string.equals("1") || string.equalsIgnoreCase("true");
+		}
+		return Column.toNumber(value).intValue() != 0;
+	}
+
+	String getString(final int row) throws SQLException {
+		Object value = this.getObject(row);
+		return value == null ? null : value.toString();
+	}
+
+	BigDecimal getBigDecimal(final int row) throws SQLException {
+		Object value = this.getObject(row);
+		if (value == null || value instanceof BigDecimal) {
+			return (BigDecimal) value;
+		} else if (value instanceof Double || value instanceof Float) {
+			return BigDecimal.valueOf(((Number) value).doubleValue());
+		} else if (value instanceof BigInteger) {
+			return new BigDecimal((BigInteger) value);
+		}
+		return new BigDecimal(Column.toNumber(value).toString());
+	}
+
+	Timestamp getTimestamp(final int row) throws SQLException {
+		Object value = this.getObject(row);
+		if (value == null || value instanceof Timestamp) {
+			return (Timestamp) value;
+		} else if (value instanceof java.util.Date) {
+			return new Timestamp(((java.util.Date) value).getTime());
+		} else if (value instanceof String) {
+			try {
+				return Timestamp.valueOf(((String) value).trim());
+			} catch (IllegalArgumentException e) {
+				throw new SQLException("Cannot convert " + value + " to a timestamp", e);
+			}
+		}
+		throw new SQLException("Cannot convert " + value.getClass().getSimpleName() + " to a timestamp");
+	}
+
+	byte[] getBytes(final int row) throws SQLException {
+		Object value = this.getObject(row);
+		if (value == null || value instanceof byte[]) {
+			return (byte[]) value;
+		}
+		throw new SQLException("Cannot convert " + value.getClass().getSimpleName() + " to bytes");
+	}
+
+	private static Number toNumber(final Object value) throws SQLException {
+		if (value == null) {
+			return Integer.valueOf(0);
+		} else if (value instanceof Number) {
+			return (Number) value;
+		} else if (value instanceof Boolean) {
+			return Integer.valueOf(((Boolean) value).booleanValue() ? 1 : 0);
+		} else if (value instanceof String) {
+			try {
+				return new BigDecimal(((String) value).trim());
+			} catch (NumberFormatException e) {
+				throw new SQLException("Cannot convert " + value + " to a number", e);
+			}
+		}
+		throw new SQLException("Cannot convert " + value.getClass().getSimpleName() + " to a number");
+	}
+
+	/**
+	 * BIT, TINYINT, SMALLINT and INTEGER columns.
+	 */
+	static final class IntColumn extends Column {
+
+		private int[] values;
+
+		IntColumn(final int sqlType, final int capacity) {
+			super(sqlType);
+			this.values = new int[capacity];
+		}
+
+		@Override
+		void read(final ResultSet source, final int column, final int row) throws SQLException {
+			if (this.sqlType == Types.BIT || this.sqlType == Types.BOOLEAN) {
+				this.values[row] = source.getBoolean(column) ? 1 : 0;
+			} else {
+				this.values[row] = source.getInt(column);
+			}
+			if (source.wasNull()) {
+				this.setNull(row);
+			}
+		}
+
+		@Override
+		void grow(final int capacity) {
+			this.values = Arrays.copyOf(this.values, capacity);
+		}
+
+		@Override
+		void trim(final int rows) {
+			this.values = Arrays.copyOf(this.values, rows);
+			this.trimNulls(rows);
+		}
+
+		@Override
+		Object getObject(final int row) {
+			if (this.isNull(row)) {
+				return null;
+			} else if (this.sqlType == Types.BIT || this.sqlType == Types.BOOLEAN) {
+				return Boolean.valueOf(this.values[row] != 0);
+			}
+			return Integer.valueOf(this.values[row]);
+		}
+
+		@Override
+		int getInt(final int row) {
+			return this.values[row];
+		}
+
+		@Override
+		long getLong(final int row) {
+			return this.values[row];
+		}
+
+		@Override
+		double getDouble(final int row) {
+			return this.values[row];
+		}
+
+		@Override
+		boolean getBoolean(final int row) {
+			return this.values[row] != 0;
+		}
+
+		@Override
+		long getMemoryFootprint() {
+			return OBJECT_OVERHEAD + 4L * this.values.length + this.getNullsFootprint();
+		}
+	}
+
+	/**
+	 * BIGINT columns.
+	 */
+	static final class LongColumn extends Column {
+
+		private long[] values;
+
+		LongColumn(final int sqlType, final int capacity) {
+			super(sqlType);
+			this.values = new long[capacity];
+		}
+
+		@Override
+		void read(final ResultSet source, final int column, final int row) throws SQLException {
+			this.values[row] = source.getLong(column);
+			if (source.wasNull()) {
+				this.setNull(row);
+			}
+		}
+
+		@Override
+		void grow(final int capacity) {
+			this.values = Arrays.copyOf(this.values, capacity);
+		}
+
+		@Override
+		void trim(final int rows) {
+			this.values = Arrays.copyOf(this.values, rows);
+			this.trimNulls(rows);
+		}
+
+		@Override
+		Object getObject(final int row) {
+			return this.isNull(row) ? null : Long.valueOf(this.values[row]);
+		}
+
+		@Override
+		int getInt(final int row) {
+			return (int) this.values[row];
+		}
+
+		@Override
+		long getLong(final int row) {
+			return this.values[row];
+		}
+
+		@Override
+		double getDouble(final int row) {
+			return this.values[row];
+		}
+
+		@Override
+		boolean getBoolean(final int row) {
+			return this.values[row] != 0;
+		}
+
+		@Override
+		long getMemoryFootprint() {
+			return OBJECT_OVERHEAD + 8L * this.values.length + this.getNullsFootprint();
+		}
+	}
+
+	/**
+	 * REAL, FLOAT and DOUBLE columns. REAL values is returned as Float.
+	 */
+	static final class DoubleColumn extends Column {
+
+		private double[] values;
+
+		DoubleColumn(final int sqlType, final int capacity) {
+			super(sqlType);
+			this.values = new double[capacity];
+		}
+
+		@Override
+		void read(final ResultSet source, final int column, final int row) throws SQLException {
+			this.values[row] = this.sqlType == Types.REAL ? source.getFloat(column) : source.getDouble(column);
+			if (source.wasNull()) {
+				this.setNull(row);
+			}
+		}
+
+		@Override
+		void grow(final int capacity) {
+			this.values = Arrays.copyOf(this.values, capacity);
+		}
+
+		@Override
+		void trim(final int rows) {
+			this.values = Arrays.copyOf(this.values, rows);
+			this.trimNulls(rows);
+		}
+
+		@Override
+		Object getObject(final int row) {
+			if (this.isNull(row)) {
+				return null;
+			} else if (this.sqlType == Types.REAL) {
+				return Float.valueOf((float) this.values[row]);
+			}
+			return Double.valueOf(this.values[row]);
+		}
+
+		@Override
+		int getInt(final int row) {
+			return (int) this.values[row];
+		}
+
+		@Override
+		long getLong(final int row) {
+			return (long) this.values[row];
+		}
+
+		@Override
+		double getDouble(final int row) {
+			return this.values[row];
+		}
+
+		@Override
+		boolean getBoolean(final int row) {
+			return this.values[row] != 0;
+		}
+
+		@Override
+		long getMemoryFootprint() {
+			return OBJECT_OVERHEAD + 8L * this.values.length + this.getNullsFootprint();
+		}
+	}
+
+	/**
+	 * NUMERIC and DECIMAL columns with a precision that fits in a long. The values is kept unscaled with the scale
+	 * of the column. Values that does not fit is kept as they are in a overflow map.
+	 */
+	static final class DecimalColumn extends Column {
+
+		static final int MAX_PRECISION = 18;
+
+		private final int scale;
+
+		private long[] unscaled;
+
+		private Map<Integer, BigDecimal> overflow;
+
+		DecimalColumn(final int sqlType, final int scale, final int capacity) {
+			super(sqlType);
+			this.scale = scale;
+			this.unscaled = new long[capacity];
+		}
+
+		@Override
+		void read(final ResultSet source, final int column, final int row) throws SQLException {
+			BigDecimal value = source.getBigDecimal(column);
+			if (value == null) {
+				this.setNull(row);
+				return;
+			}
+			try {
+				BigInteger unscaled = value.setScale(this.scale).unscaledValue();
+				if (unscaled.bitLength() < 64) {
+					this.unscaled[row] = unscaled.longValue();
+					return;
+				}
+			} catch (ArithmeticException e) {
+				// More decimals than the column. Kept as it is.
+			}
+			if (this.overflow == null) {
+				this.overflow = new HashMap<Integer, BigDecimal>();
+			}
+			this.overflow.put(Integer.valueOf(row), value);
+		}
+
+		@Override
+		void grow(final int capacity) {
+			this.unscaled = Arrays.copyOf(this.unscaled, capacity);
+		}
+
+		@Override
+		void trim(final int rows) {
+			this.unscaled = Arrays.copyOf(this.unscaled, rows);
+			this.trimNulls(rows);
+		}
+
+		@Override
+		Object getObject(final int row) {
+			return this.getBigDecimal(row);
+		}
+
+		@Override
+		BigDecimal getBigDecimal(final int row) {
+			if (this.isNull(row)) {
+				return null;
+			}
+			if (this.overflow != null) {
+				BigDecimal value = this.overflow.get(Integer.valueOf(row));
+				if (value != null) {
+					return value;
+				}
+			}
+			return BigDecimal.valueOf(this.unscaled[row], this.scale);
+		}
+
+		@Override
+		int getInt(final int row) {
+			return (int) this.getLong(row);
+		}
+
+		@Override
+		long getLong(final int row) {
+			if (this.scale == 0 && !this.hasOverflow(row)) {
+				return this.unscaled[row];
+			}
+			BigDecimal value = this.getBigDecimal(row);
+			return value == null ? 0 : value.longValue();
+		}
+
+		@Override
+		double getDouble(final int row) {
+			BigDecimal value = this.getBigDecimal(row);
+			return value == null ? 0 : value.doubleValue();
+		}
+
+		@Override
+		boolean getBoolean(final int row) {
+			BigDecimal value = this.getBigDecimal(row);
+			return value != null && value.signum() != 0;
+		}
+
+		private boolean hasOverflow(final int row) {
+			return this.overflow != null && this.overflow.containsKey(Integer.valueOf(row));
+		}
+
+		@Override
+		long getMemoryFootprint() {
+			long result = OBJECT_OVERHEAD + 8L * this.unscaled.length + this.getNullsFootprint();
+			if (this.overflow != null) {
+				result += this.overflow.size() * (3L * OBJECT_OVERHEAD + 4 * REFERENCE);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Character and clob columns. Every distinct value is kept once in a table and the rows refer to it by index.
+	 */
+	static final class StringColumn extends Column {
+
+		/** Stop looking up values in the dictionary when it has this many values. Later values is just added. */
+		private static final int MAX_DICTIONARY = 1 << 16;
+
+		private int[] codes;
+
+		private String[] table;
+
+		private int tableSize;
+
+		/** Value to index in the table while the column is read. Null after {@link #trim(int)}. */
+		private Map<String, Integer> dictionary;
+
+		StringColumn(final int sqlType, final int capacity) {
+			super(sqlType);
+			this.codes = new int[capacity];
+			this.table = new String[16];
+			this.dictionary = new HashMap<String, Integer>();
+		}
+
+		@Override
+		void read(final ResultSet source, final int column, final int row) throws SQLException {
+			String value = source.getString(column);
+			if (value == null) {
+				this.setNull(row);
+				return;
+			}
+			if (this.dictionary != null) {
+				Integer code = this.dictionary.get(value);
+				if (code != null) {
+					this.codes[row] = code.intValue();
+					return;
+				}
+			}
+			if (this.tableSize == this.table.length) {
+				this.table = Arrays.copyOf(this.table, this.tableSize * 2);
+			}
+			this.table[this.tableSize] = value;
+			if (this.dictionary != null) {
+				if (this.dictionary.size() < MAX_DICTIONARY) {
+					this.dictionary.put(value, Integer.valueOf(this.tableSize));
+				} else {
+					this.dictionary = null;
+				}
+			}
+			this.codes[row] = this.tableSize++;
+		}
+
+		@Override
+		void grow(final int capacity) {
+			this.codes = Arrays.copyOf(this.codes, capacity);
+		}
+
+		@Override
+		void trim(final int rows) {
+			this.codes = Arrays.copyOf(this.codes, rows);
+			this.table = Arrays.copyOf(this.table, this.tableSize);
+			this.dictionary = null;
+			this.trimNulls(rows);
+		}
+
+		@Override
+		Object getObject(final int row) {
+			return this.getString(row);
+		}
+
+		@Override
+		String getString(final int row) {
+			return this.isNull(row) ? null : this.table[this.codes[row]];
+		}
+
+		@Override
+		long getMemoryFootprint() {
+			long result = 2L * OBJECT_OVERHEAD + 4L * this.codes.length + (long) REFERENCE * this.table.length + this.getNullsFootprint();
+			for (int i = 0; i < this.tableSize; i++) {
+				result += 2 * OBJECT_OVERHEAD + 2L * this.table[i].length();
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * DATE, TIME and TIMESTAMP columns. The time is kept as milliseconds and the nanoseconds of timestamps separate.
+	 */
+	static final class TimestampColumn extends Column {
+
+		private long[] millis;
+
+		/** Nanoseconds of TIMESTAMP values. Null for DATE and TIME columns. */
+		private int[] nanos;
+
+		TimestampColumn(final int sqlType, final int capacity) {
+			super(sqlType);
+			this.millis = new long[capacity];
+			this.nanos = sqlType == Types.TIMESTAMP ? new int[capacity] : null;
+		}
+
+		@Override
+		void read(final ResultSet source, final int column, final int row) throws SQLException {
+			java.util.Date value;
+			if (this.sqlType == Types.DATE) {
+				value = source.getDate(column);
+			} else if (this.sqlType == Types.TIME) {
+				value = source.getTime(column);
+			} else {
+				value = source.getTimestamp(column);
+			}
+			if (value == null) {
+				this.setNull(row);
+				return;
+			}
+			this.millis[row] = value.getTime();
+			if (this.nanos != null) {
+				this.nanos[row] = ((Timestamp) value).getNanos();
+			}
+		}
+
+		@Override
+		void grow(final int capacity) {
+			this.millis = Arrays.copyOf(this.millis, capacity);
+			if (this.nanos != null) {
+				this.nanos = Arrays.copyOf(this.nanos, capacity);
+			}
+		}
+
+		@Override
+		void trim(final int rows) {
+			this.grow(rows);
+			this.trimNulls(rows);
+		}
+
+		@Override
+		Object getObject(final int row) {
+			if (this.isNull(row)) {
+				return null;
+			} else if (this.sqlType == Types.DATE) {
+				return new java.sql.Date(this.millis[row]);
+			} else if (this.sqlType == Types.TIME) {
+				return new java.sql.Time(this.millis[row]);
+			}
+			return this.getTimestamp(row);
+		}
+
+		@Override
+		Timestamp getTimestamp(final int row) {
+			if (this.isNull(row)) {
+				return null;
+			}
+			Timestamp result = new Timestamp(this.millis[row]);
+			if (this.nanos != null) {
+				result.setNanos(this.nanos[row]);
+			}
+			return result;
+		}
+
+		@Override
+		long getLong(final int row) {
+			return this.millis[row];
+		}
+
+		@Override
+		long getMemoryFootprint() {
+			return OBJECT_OVERHEAD + 8L * this.millis.length + (this.nanos == null ? 0 : OBJECT_OVERHEAD + 4L * this.nanos.length)
+					+ this.getNullsFootprint();
+		}
+	}
+
+	/**
+	 * Every other column type. The values is kept as the objects the driver returns.
+	 */
+	static final class ObjectColumn extends Column {
+
+		private Object[] values;
+
+		ObjectColumn(final int sqlType, final int capacity) {
+			super(sqlType);
+			this.values = new Object[capacity];
+		}
+
+		@Override
+		void read(final ResultSet source, final int column, final int row) throws SQLException {
+			Object value;
+			switch (this.sqlType) {
+			case Types.BINARY:
+			case Types.VARBINARY:
+			case Types.LONGVARBINARY:
+			case Types.BLOB:
+				value = source.getBytes(column);
+				break;
+			default:
+				value = source.getObject(column);
+				break;
+			}
+			if (value == null) {
+				this.setNull(row);
+			} else {
+				this.values[row] = value;
+			}
+		}
+
+		@Override
+		void grow(final int capacity) {
+			this.values = Arrays.copyOf(this.values, capacity);
+		}
+
+		@Override
+		void trim(final int rows) {
+			this.values = Arrays.copyOf(this.values, rows);
+			this.trimNulls(rows);
+		}
+
+		@Override
+		Object getObject(final int row) {
+			return this.values[row];
+		}
+
+		@Override
+		long getMemoryFootprint() {
+			long result = OBJECT_OVERHEAD + (long) REFERENCE * this.values.length + this.getNullsFootprint();
+			for (Object value : this.values) {
+				if (value instanceof byte[]) {
+					result += OBJECT_OVERHEAD + ((byte[]) value).length;
+				} else if (value != null) {
+					result += 2 * OBJECT_OVERHEAD;
+				}
+			}
+			return result;
+		}
+	}
+}
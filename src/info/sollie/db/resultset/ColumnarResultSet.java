@@ -0,0 +1,498 @@
+package info.sollie.db.resultset;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.serial.SerialClob;
+
+/**
+ * A disconnected, read only result set that keeps the rows in memory column by column. Numbers, booleans and
+ * times is kept in primitive arrays, strings in a table where every distinct value is only kept once, and null
+ * values in bitmaps. It uses less memory and is faster to fill than a {@link javax.sql.rowset.CachedRowSet}, which
+ * keeps every value as a object.
+ *
+ * Create it with {@link #populate(ResultSet)}. It does not need to be closed, and it can be scrolled.
+ *
+ * @author Andre Sollie
+ *
+ */
+public final class ColumnarResultSet extends AbstractResultSet {
+
+	/** Rows to make room for before the first row is read. */
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final ResultSetMetaData metaData;
+
+	private final Column[] columns;
+
+	private final int rows;
+
+	/** Column label and name in lower case to the column index. */
+	private final Map<String, Integer> labels;
+
+	/** Current row starting at 0. -1 is before the first row and rows is after the last row. */
+	private int row = -1;
+
+	private boolean wasNull;
+
+	private boolean closed;
+
+	private int fetchSize;
+
+	private ColumnarResultSet(final ResultSetMetaData metaData, final Column[] columns, final int rows) throws SQLException {
+		this.metaData = metaData;
+		this.columns = columns;
+		this.rows = rows;
+		this.labels = new HashMap<String, Integer>();
+		for (int i = 1; i <= columns.length; i++) {
+			ColumnarResultSet.putIfAbsent(this.labels, metaData.getColumnLabel(i), i);
+		}
+		for (int i = 1; i <= columns.length; i++) {
+			ColumnarResultSet.putIfAbsent(this.labels, metaData.getColumnName(i), i);
+		}
+	}
+
+	private static void putIfAbsent(final Map<String, Integer> labels, final String label, final int index) {
+		if (label != null) {
+			String key = label.toLowerCase(Locale.ENGLISH);
+			if (!labels.containsKey(key)) {
+				labels.put(key, Integer.valueOf(index));
+			}
+		}
+	}
+
+	/**
+	 * Read every row of a result set into memory. The source is read from its current position to the end, but it
+	 * is not closed.
+	 *
+	 * @param source to read.
+	 * @return a disconnected result set positioned before the first row.
+	 * @throws SQLException if the source could not be read.
+	 */
+	public static ColumnarResultSet populate(final ResultSet source) throws SQLException {
+		return ColumnarResultSet.populate(source, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Read the next rows of a result set into memory. Used to read a large result set in batches. The source is
+	 * not closed.
+	 *
+	 * @param source to read.
+	 * @param maxRows max number of rows to read.
+	 * @return a disconnected result set positioned before the first row. It has less than maxRows rows if the
+	 * end of the source is reached.
+	 * @throws SQLException if the source could not be read.
+	 */
+	public static ColumnarResultSet populate(final ResultSet source, final int maxRows) throws SQLException {
+		ResultSetMetaData sourceMetaData = source.getMetaData();
+		int columnCount = sourceMetaData.getColumnCount();
+		int capacity = Math.min(INITIAL_CAPACITY, Math.max(maxRows, 1));
+		Column[] columns = new Column[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			columns[i] = Column.create(sourceMetaData.getColumnType(i + 1), sourceMetaData.getPrecision(i + 1),
+					sourceMetaData.getScale(i + 1), capacity);
+		}
+		int rows = 0;
+		while (rows < maxRows && source.next()) {
+			if (rows == capacity) {
+				capacity = (int) Math.min((long) capacity * 2, maxRows);
+				for (Column column : columns) {
+					column.grow(capacity);
+				}
+			}
+			for (int i = 0; i < columnCount; i++) {
+				columns[i].read(source, i + 1, rows);
+			}
+			rows++;
+		}
+		for (Column column : columns) {
+			column.trim(rows);
+		}
+		return new ColumnarResultSet(ColumnarResultSet.copy(sourceMetaData), columns, rows);
+	}
+
+	/**
+	 * Copy the meta data, so the source can be closed.
+	 */
+	private static ResultSetMetaData copy(final ResultSetMetaData source) throws SQLException {
+		RowSetMetaDataImpl result = new RowSetMetaDataImpl();
+		int columnCount = source.getColumnCount();
+		result.setColumnCount(columnCount);
+		for (int i = 1; i <= columnCount; i++) {
+			result.setColumnName(i, source.getColumnName(i));
+			result.setColumnLabel(i, source.getColumnLabel(i));
+			result.setColumnType(i, source.getColumnType(i));
+			result.setColumnTypeName(i, source.getColumnTypeName(i));
+			result.setPrecision(i, Math.max(0, source.getPrecision(i)));
+			result.setScale(i, Math.max(0, source.getScale(i)));
+			result.setColumnDisplaySize(i, Math.max(0, source.getColumnDisplaySize(i)));
+			result.setNullable(i, source.isNullable(i));
+			result.setAutoIncrement(i, source.isAutoIncrement(i));
+			result.setCaseSensitive(i, source.isCaseSensitive(i));
+			result.setSigned(i, source.isSigned(i));
+			result.setCurrency(i, source.isCurrency(i));
+			result.setSearchable(i, source.isSearchable(i));
+			result.setTableName(i, ColumnarResultSet.emptyIfNull(source.getTableName(i)));
+			result.setSchemaName(i, ColumnarResultSet.emptyIfNull(source.getSchemaName(i)));
+			result.setCatalogName(i, ColumnarResultSet.emptyIfNull(source.getCatalogName(i)));
+		}
+		return result;
+	}
+
+	private static String emptyIfNull(final String value) {
+		return value == null ? "" : value;
+	}
+
+	/**
+	 * @return number of rows.
+	 */
+	public int size() {
+		return this.rows;
+	}
+
+	/**
+	 * Estimate the number of bytes the rows use in memory. The estimate assumes 16 byte object headers and 8 byte
+	 * references, and does not count the meta data.
+	 *
+	 * @return estimated number of bytes.
+	 */
+	public long getMemoryFootprint() {
+		long result = Column.OBJECT_OVERHEAD;
+		for (Column column : this.columns) {
+			result += Column.REFERENCE + column.getMemoryFootprint();
+		}
+		return result;
+	}
+
+	private Column column(final int columnIndex) throws SQLException {
+		if (this.closed) {
+			throw new SQLException("Result set is closed");
+		}
+		if (columnIndex < 1 || columnIndex > this.columns.length) {
+			throw new SQLException("Invalid column index " + columnIndex + ". Result set has " + this.columns.length + " columns");
+		}
+		if (this.row < 0 || this.row >= this.rows) {
+			throw new SQLException("Invalid cursor position. Not on a row");
+		}
+		Column column = this.columns[columnIndex - 1];
+		this.wasNull = column.isNull(this.row);
+		return column;
+	}
+
+	@Override
+	public boolean next() throws SQLException {
+		this.checkOpen();
+		if (this.row < this.rows) {
+			this.row++;
+		}
+		return this.row < this.rows;
+	}
+
+	@Override
+	public boolean previous() throws SQLException {
+		this.checkOpen();
+		if (this.row >= 0) {
+			this.row--;
+		}
+		return this.row >= 0;
+	}
+
+	@Override
+	public boolean absolute(final int row) throws SQLException {
+		this.checkOpen();
+		if (row > 0) {
+			this.row = Math.min(row - 1, this.rows);
+		} else if (row < 0) {
+			this.row = Math.max(this.rows + row, -1);
+		} else {
+			this.row = -1;
+		}
+		return this.row >= 0 && this.row < this.rows;
+	}
+
+	@Override
+	public boolean relative(final int rows) throws SQLException {
+		this.checkOpen();
+		this.row = Math.max(-1, Math.min(this.rows, this.row + rows));
+		return this.row >= 0 && this.row < this.rows;
+	}
+
+	@Override
+	public boolean first() throws SQLException {
+		return this.absolute(1);
+	}
+
+	@Override
+	public boolean last() throws SQLException {
+		return this.absolute(-1);
+	}
+
+	@Override
+	public void beforeFirst() throws SQLException {
+		this.checkOpen();
+		this.row = -1;
+	}
+
+	@Override
+	public void afterLast() throws SQLException {
+		this.checkOpen();
+		this.row = this.rows;
+	}
+
+	@Override
+	public boolean isBeforeFirst() throws SQLException {
+		return this.rows > 0 && this.row < 0;
+	}
+
+	@Override
+	public boolean isAfterLast() throws SQLException {
+		return this.rows > 0 && this.row >= this.rows;
+	}
+
+	@Override
+	public boolean isFirst() throws SQLException {
+		return this.rows > 0 && this.row == 0;
+	}
+
+	@Override
+	public boolean isLast() throws SQLException {
+		return this.rows > 0 && this.row == this.rows - 1;
+	}
+
+	@Override
+	public int getRow() throws SQLException {
+		return this.row >= 0 && this.row < this.rows ? this.row + 1 : 0;
+	}
+
+	private void checkOpen() throws SQLException {
+		if (this.closed) {
+			throw new SQLException("Result set is closed");
+		}
+	}
+
+	@Override
+	public boolean wasNull() throws SQLException {
+		return this.wasNull;
+	}
+
+	@Override
+	public int findColumn(final String columnLabel) throws SQLException {
+		Integer index = columnLabel == null ? null : this.labels.get(columnLabel.toLowerCase(Locale.ENGLISH));
+		if (index == null) {
+			throw new SQLException("Invalid column name " + columnLabel);
+		}
+		return index.intValue();
+	}
+
+	@Override
+	public Object getObject(final int columnIndex) throws SQLException {
+		Column column = this.column(columnIndex);
+		return this.wasNull ? null : column.getObject(this.row);
+	}
+
+	@Override
+	public String getString(final int columnIndex) throws SQLException {
+		Column column = this.column(columnIndex);
+		return this.wasNull ? null : column.getString(this.row);
+	}
+
+	@Override
+	public String getNString(final int columnIndex) throws SQLException {
+		return this.getString(columnIndex);
+	}
+
+	@Override
+	public boolean getBoolean(final int columnIndex) throws SQLException {
+		Column column = this.column(columnIndex);
+		return this.wasNull ? false : column.getBoolean(this.row);
+	}
+
+	@Override
+	public byte getByte(final int columnIndex) throws SQLException {
+		return (byte) this.getInt(columnIndex);
+	}
+
+	@Override
+	public short getShort(final int columnIndex) throws SQLException {
+		return (short) this.getInt(columnIndex);
+	}
+
+	@Override
+	public int getInt(final int columnIndex) throws SQLException {
+		Column column = this.column(columnIndex);
+		return this.wasNull ? 0 : column.getInt(this.row);
+	}
+
+	@Override
+	public long getLong(final int columnIndex) throws SQLException {
+		Column column = this.column(columnIndex);
+		return this.wasNull ? 0 : column.getLong(this.row);
+	}
+
+	@Override
+	public float getFloat(final int columnIndex) throws SQLException {
+		return (float) this.getDouble(columnIndex);
+	}
+
+	@Override
+	public double getDouble(final int columnIndex) throws SQLException {
+		Column column = this.column(columnIndex);
+		return this.wasNull ? 0 : column.getDouble(this.row);
+	}
+
+	@Override
+	public BigDecimal getBigDecimal(final int columnIndex) throws SQLException {
+		Column column = this.column(columnIndex);
+		return this.wasNull ? null : column.getBigDecimal(this.row);
+	}
+
+	@Override
+	@Deprecated
+	public BigDecimal getBigDecimal(final int columnIndex, final int scale) throws SQLException {
+		BigDecimal value = this.getBigDecimal(columnIndex);
+		return value == null ? null : value.setScale(scale, RoundingMode.HALF_UP);
+	}
+
+	@Override
+	public byte[] getBytes(final int columnIndex) throws SQLException {
+		Column column = this.column(columnIndex);
+		return this.wasNull ? null : column.getBytes(this.row);
+	}
+
+	@Override
+	public InputStream getBinaryStream(final int columnIndex) throws SQLException {
+		byte[] value = this.getBytes(columnIndex);
+		return value == null ? null : new ByteArrayInputStream(value);
+	}
+
+	@Override
+	public Reader getCharacterStream(final int columnIndex) throws SQLException {
+		String value = this.getString(columnIndex);
+		return value == null ? null : new StringReader(value);
+	}
+
+	@Override
+	public Reader getNCharacterStream(final int columnIndex) throws SQLException {
+		return this.getCharacterStream(columnIndex);
+	}
+
+	@Override
+	public Clob getClob(final int columnIndex) throws SQLException {
+		String value = this.getString(columnIndex);
+		return value == null ? null : new SerialClob(value.toCharArray());
+	}
+
+	@Override
+	public Timestamp getTimestamp(final int columnIndex) throws SQLException {
+		Column column = this.column(columnIndex);
+		return this.wasNull ? null : column.getTimestamp(this.row);
+	}
+
+	@Override
+	public Date getDate(final int columnIndex) throws SQLException {
+		Timestamp value = this.getTimestamp(columnIndex);
+		return value == null ? null : new Date(value.getTime());
+	}
+
+	@Override
+	public Time getTime(final int columnIndex) throws SQLException {
+		Timestamp value = this.getTimestamp(columnIndex);
+		return value == null ? null : new Time(value.getTime());
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() throws SQLException {
+		return this.metaData;
+	}
+
+	@Override
+	public void close() throws SQLException {
+		this.closed = true;
+	}
+
+	@Override
+	public boolean isClosed() throws SQLException {
+		return this.closed;
+	}
+
+	@Override
+	public SQLWarning getWarnings() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public void clearWarnings() throws SQLException {
+	}
+
+	@Override
+	public Statement getStatement() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public int getType() throws SQLException {
+		return ResultSet.TYPE_SCROLL_INSENSITIVE;
+	}
+
+	@Override
+	public int getConcurrency() throws SQLException {
+		return ResultSet.CONCUR_READ_ONLY;
+	}
+
+	@Override
+	public int getHoldability() throws SQLException {
+		return ResultSet.HOLD_CURSORS_OVER_COMMIT;
+	}
+
+	@Override
+	public int getFetchDirection() throws SQLException {
+		return ResultSet.FETCH_FORWARD;
+	}
+
+	@Override
+	public void setFetchDirection(final int direction) throws SQLException {
+		if (direction != ResultSet.FETCH_FORWARD && direction != ResultSet.FETCH_REVERSE && direction != ResultSet.FETCH_UNKNOWN) {
+			throw new SQLException("Invalid fetch direction " + direction);
+		}
+	}
+
+	@Override
+	public int getFetchSize() throws SQLException {
+		return this.fetchSize;
+	}
+
+	@Override
+	public void setFetchSize(final int rows) throws SQLException {
+		this.fetchSize = rows;
+	}
+
+	@Override
+	public boolean isWrapperFor(final Class<?> iface) throws SQLException {
+		return iface.isInstance(this);
+	}
+
+	@Override
+	public <T> T unwrap(final Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		throw new SQLException(this.getClass().getSimpleName() + " is not a " + iface.getName());
+	}
+}
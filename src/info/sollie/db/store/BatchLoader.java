@@ -0,0 +1,255 @@
+package info.sollie.db.store;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import info.sollie.db.DatabaseTools;
+import info.sollie.db.errors.SQLError;
+import info.sollie.db.handlers.AnnotationObjectListHandler;
+import info.sollie.db.interfaces.DatabaseTool;
+import info.sollie.db.interfaces.Retrievable;
+import info.sollie.db.mssql.SqlGenerator;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Collects lookups by ID and reads them with one IN query for every class, instead of one query for every lookup.
+ * A lookup returns a future that is completed when the lookups is dispatched. The lookups is dispatched when
+ * {@link #dispatch()} is called, when a future that is not completed is read, or after a delay if the loader has a
+ * executor. Lookups of the same class and ID in the same dispatch share the future.
+ *
+ * On Java 9 and later a future made from a lookup with thenApply, whenComplete or the other callbacks also
+ * dispatches when it is read. A callback itself is only run when the lookups is dispatched, so a loader without a
+ * executor must be dispatched with {@link #dispatch()} when the result is only used in callbacks.
+ *
+ * Relations of the objects is not followed. A object that is in the open {@link IdentityMap} is returned without a
+ * query. If a query fails, the futures of the class is completed with a {@link SQLError}.
+ *
+ * <pre>
+ * BatchLoader loader = new BatchLoader();
+ * Future&lt;Customer&gt; customer = loader.load(Customer.class, order.getCustomerId());
+ * Future&lt;Product&gt; product = loader.load(Product.class, line.getProductId());
+ * loader.dispatch();
+ * </pre>
+ *
+ * @author Andre Sollie
+ *
+ */
+public final class BatchLoader {
+
+	private static final Logger logger = Logger.getLogger(BatchLoader.class);
+
+	private final DatabaseTool databaseTool;
+
+	private final ScheduledExecutorService executor;
+
+	private final long delay;
+
+	private final TimeUnit unit;
+
+	/** Lookups that is not dispatched, by class and ID. Guarded by this. */
+	private Map<Class<?>, Map<Integer, Lookup<?>>> pending = new LinkedHashMap<Class<?>, Map<Integer, Lookup<?>>>();
+
+	/** A dispatch is scheduled on the executor. Guarded by this. */
+	private boolean scheduled;
+
+	/**
+	 * A loader that is dispatched when {@link #dispatch()} is called or a future is read.
+	 */
+	public BatchLoader() {
+		this(DatabaseTools.getMssqlDatabaseTool(), null, 0, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * A loader that is dispatched a delay after the first lookup that is not dispatched.
+	 *
+	 * @param executor that dispatches.
+	 * @param delay from the first lookup until the dispatch.
+	 * @param unit of the delay.
+	 */
+	public BatchLoader(final ScheduledExecutorService executor, final long delay, final TimeUnit unit) {
+		this(DatabaseTools.getMssqlDatabaseTool(), executor, delay, unit);
+	}
+
+	/**
+	 * @param databaseTool that reads the objects.
+	 * @param executor that dispatches. Can be null.
+	 * @param delay from the first lookup until the dispatch.
+	 * @param unit of the delay.
+	 */
+	public BatchLoader(final DatabaseTool databaseTool, final ScheduledExecutorService executor, final long delay,
+			final TimeUnit unit) {
+		if (databaseTool == null) {
+			throw new IllegalArgumentException("Database tool cannot be null");
+		}
+		this.databaseTool = databaseTool;
+		this.executor = executor;
+		this.delay = delay;
+		this.unit = unit;
+	}
+
+	/**
+	 * Add a lookup by ID.
+	 *
+	 * @param clazz of the object.
+	 * @param id of the object.
+	 * @return future with the object, or null if there is no object with the ID. It is completed with a 
+	 * {@link SQLError} if the object could not be read.
+	 */
+	@SuppressWarnings("unchecked")
+	public <E extends Retrievable> CompletableFuture<E> load(final Class<E> clazz, final int id) {
+		if (clazz == null) {
+			throw new IllegalArgumentException("Class cannot be null");
+		}
+		IdentityMap identities = IdentityMap.current();
+		if (identities != null) {
+			E known = identities.get(clazz, id);
+			if (known != null) {
+				return CompletableFuture.completedFuture(known);
+			}
+		}
+		boolean schedule = false;
+		Lookup<E> lookup;
+		synchronized (this) {
+			Map<Integer, Lookup<?>> lookups = this.pending.get(clazz);
+			if (lookups == null) {
+				lookups = new LinkedHashMap<Integer, Lookup<?>>();
+				this.pending.put(clazz, lookups);
+			}
+			Integer key = Integer.valueOf(id);
+			lookup = (Lookup<E>) lookups.get(key);
+			if (lookup == null) {
+				lookup = new Lookup<E>(this);
+				lookups.put(key, lookup);
+			}
+			if (this.executor != null && !this.scheduled) {
+				this.scheduled = true;
+				schedule = true;
+			}
+		}
+		if (schedule) {
+			this.executor.schedule(new Runnable() {
+				@Override
+				public void run() {
+					BatchLoader.this.dispatch();
+				}
+			}, this.delay, this.unit);
+		}
+		return lookup;
+	}
+
+	/**
+	 * Read every lookup that is not dispatched. The futures is completed before it returns.
+	 *
+	 * @return number of queries that was executed.
+	 */
+	public int dispatch() {
+		Map<Class<?>, Map<Integer, Lookup<?>>> lookups;
+		synchronized (this) {
+			if (this.pending.isEmpty()) {
+				return 0;
+			}
+			lookups = this.pending;
+			this.pending = new LinkedHashMap<Class<?>, Map<Integer, Lookup<?>>>();
+			this.scheduled = false;
+		}
+		int queries = 0;
+		for (Map.Entry<Class<?>, Map<Integer, Lookup<?>>> entry : lookups.entrySet()) {
+			queries += this.dispatch(entry.getKey(), entry.getValue());
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Dispatched lookups of " + lookups.size() + " classes with " + queries + " queries.");
+		}
+		return queries;
+	}
+
+	@SuppressWarnings("unchecked")
+	private int dispatch(final Class<?> clazz, final Map<Integer, Lookup<?>> lookups) {
+		Class<Retrievable> type = (Class<Retrievable>) clazz;
+		List<Integer> ids = new ArrayList<Integer>(lookups.keySet());
+		Map<Integer, Retrievable> found = new HashMap<Integer, Retrievable>();
+		AnnotationObjectListHandler<Retrievable> handler = new AnnotationObjectListHandler<Retrievable>(type, false, 
+				this.databaseTool.getRetriver());
+		int queries = 0;
+		String sql = null;
+		try {
+			for (int from = 0; from < ids.size(); from += SqlGenerator.MAX_IN_SIZE) {
+				List<Integer> chunk = ids.subList(from, Math.min(from + SqlGenerator.MAX_IN_SIZE, ids.size()));
+				sql = SqlGenerator.getInStatement(type, chunk.size());
+				for (Retrievable e : this.databaseTool.getQueryRunner().query(sql, handler, chunk.toArray())) {
+					found.put(Integer.valueOf(e.getID()), e);
+				}
+				queries++;
+			}
+		} catch (SQLException e) {
+			logger.error("Could not read the lookups of " + type.getSimpleName() + ". " + e.getMessage());
+			SQLError error = new SQLError(sql, e.getMessage(), e);
+			for (Lookup<?> lookup : lookups.values()) {
+				lookup.completeExceptionally(error);
+			}
+			return queries;
+		} catch (RuntimeException e) {
+			for (Lookup<?> lookup : lookups.values()) {
+				lookup.completeExceptionally(e);
+			}
+			return queries;
+		}
+		for (Map.Entry<Integer, Lookup<?>> entry : lookups.entrySet()) {
+			((Lookup<Retrievable>) entry.getValue()).complete(found.get(entry.getKey()));
+		}
+		return queries;
+	}
+
+	/**
+	 * A future that dispatches the loader if it is read before it is completed.
+	 */
+	private static final class Lookup<E> extends CompletableFuture<E> {
+
+		private final BatchLoader loader;
+
+		private Lookup(final BatchLoader loader) {
+			this.loader = loader;
+		}
+
+		@Override
+		public E get() throws InterruptedException, ExecutionException {
+			if (!this.isDone()) {
+				this.loader.dispatch();
+			}
+			return super.get();
+		}
+
+		@Override
+		public E get(final long timeout, final TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+			if (!this.isDone()) {
+				this.loader.dispatch();
+			}
+			return super.get(timeout, unit);
+		}
+
+		@Override
+		public E join() {
+			if (!this.isDone()) {
+				this.loader.dispatch();
+			}
+			return super.join();
+		}
+
+		/**
+		 * Used by CompletableFuture on Java 9 and later for the futures made by the callbacks, so reading them
+		 * dispatches the loader. It overrides nothing on Java 8, and has no @Override.
+		 */
+		public <U> CompletableFuture<U> newIncompleteFuture() {
+			return new Lookup<U>(this.loader);
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package info.sollie.db.store;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import info.sollie.db.DatabaseTools;
+import info.sollie.db.interfaces.CheckpointStore;
+import info.sollie.db.interfaces.DatabaseTool;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Factory for {@link CheckpointStore}s.
+ *
+ * @author Andre Sollie
+ *
+ */
+public final class CheckpointStores {
+
+	/** Static method factory */
+	private CheckpointStores() {
+	}
+
+	/**
+	 * Get a checkpoint store that only keeps the checkpoints in memory. A job can continue after a failure
+	 * in the same process, but not after a restart.
+	 *
+	 * @return a new checkpoint store.
+	 */
+	public static CheckpointStore getMemoryStore() {
+		return new MemoryCheckpointStore();
+	}
+
+	/**
+	 * Get a checkpoint store that keeps the checkpoints in a table in the Mssql database. The table must have
+	 * the columns Job (varchar) and LastID (int):
+	 *
+	 * <pre>
+	 * CREATE TABLE [JobCheckpoint] (Job VARCHAR(128) NOT NULL PRIMARY KEY, LastID INT NOT NULL)
+	 * </pre>
+	 *
+	 * @param tableName name of the table.
+	 * @return a checkpoint store for the table.
+	 */
+	public static CheckpointStore getTableStore(final String tableName) {
+		if (tableName == null || tableName.length() == 0) {
+			throw new IllegalArgumentException("Table name cannot be empty.");
+		}
+		return new TableCheckpointStore(tableName);
+	}
+
+	private static class MemoryCheckpointStore implements CheckpointStore {
+
+		private final ConcurrentMap<String, Integer> checkpoints = new ConcurrentHashMap<String, Integer>();
+
+		@Override
+		public int getCheckpoint(final String job) {
+			Integer id = this.checkpoints.get(job);
+			return id == null ? 0 : id.intValue();
+		}
+
+		@Override
+		public void saveCheckpoint(final String job, final int id) {
+			this.checkpoints.put(job, Integer.valueOf(id));
+		}
+
+		@Override
+		public void clearCheckpoint(final String job) {
+			this.checkpoints.remove(job);
+		}
+	}
+
+	private static class TableCheckpointStore implements CheckpointStore {
+
+		private static final Logger logger = Logger.getLogger(TableCheckpointStore.class);
+
+		private final DatabaseTool mssqlTool = DatabaseTools.getMssqlDatabaseTool();
+
+		private final String selectSql;
+
+		private final String saveSql;
+
+		private final String deleteSql;
+
+		private TableCheckpointStore(final String tableName) {
+			String table = "[" + tableName + "]";
+			this.selectSql = "SELECT LastID FROM " + table + " WHERE Job=?";
+			this.saveSql = "UPDATE " + table + " SET LastID=? WHERE Job=? IF @@ROWCOUNT = 0 INSERT INTO " + table
+					+ " (Job, LastID) VALUES (?, ?)";
+			this.deleteSql = "DELETE FROM " + table + " WHERE Job=?";
+		}
+
+		@Override
+		public int getCheckpoint(final String job) {
+			Number id = this.mssqlTool.getValue(this.selectSql, Number.class, "LastID", job);
+			return id == null ? 0 : id.intValue();
+		}
+
+		@Override
+		public void saveCheckpoint(final String job, final int id) {
+			Integer value = Integer.valueOf(id);
+			this.mssqlTool.write(this.saveSql, value, job, job, value);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Checkpoint for " + job + " is " + id);
+			}
+		}
+
+		@Override
+		public void clearCheckpoint(final String job) {
+			this.mssqlTool.write(this.deleteSql, job);
+		}
+	}
+}
@@ -0,0 +1,215 @@
+package info.sollie.db.store;
+
+import java.io.Closeable;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import info.sollie.db.Nullable;
+import info.sollie.db.interfaces.Retrievable;
+import info.sollie.db.interfaces.SimpleCache;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps one instance of every object that is read from the database in a unit of work, as a request. The objects
+ * is kept on class and ID. While a identity map is open on a thread, lookups by ID is answered from the map without
+ * a query, and every object that is read is the same instance as a object with the same class and ID that is read
+ * before. Objects is kept as they was first read, so relations that was not followed is not read later.
+ *
+ * A object of a subclass is kept as the top concrete class it extends, so it is found by a foreign key that is
+ * declared as the superclass.
+ *
+ * The map belongs to the thread that opened it. Objects read on other threads, as by
+ * {@link info.sollie.db.handlers.ParallelObjectListHandler}, is not kept.
+ *
+ * <pre>
+ * IdentityMap map = IdentityMap.open();
+ * try {
+ *     ...
+ * } finally {
+ *     map.close();
+ * }
+ * </pre>
+ *
+ * @author Andre Sollie
+ *
+ */
+public final class IdentityMap implements SimpleCache<Retrievable>, Closeable {
+
+	private static final Logger logger = Logger.getLogger(IdentityMap.class);
+
+	private static final ThreadLocal<IdentityMap> current = new ThreadLocal<IdentityMap>();
+
+	/** The class that objects of a class is kept as. Kept for the life of the JVM. */
+	private static final ConcurrentMap<Class<?>, Class<?>> roots = new ConcurrentHashMap<Class<?>, Class<?>>();
+
+	private final Map<String, Retrievable> objects = new HashMap<String, Retrievable>();
+
+	/** The map that was open when this was opened. */
+	private final IdentityMap previous;
+
+	private int hits;
+
+	private IdentityMap(final IdentityMap previous) {
+		this.previous = previous;
+	}
+
+	/**
+	 * Open a new identity map on the current thread. A map that is open already is used again when the new is closed.
+	 *
+	 * @return the new map.
+	 */
+	public static IdentityMap open() {
+		IdentityMap map = new IdentityMap(current.get());
+		current.set(map);
+		return map;
+	}
+
+	/**
+	 * @return the identity map that is open on the current thread or null if none is open.
+	 */
+	@Nullable
+	public static IdentityMap current() {
+		return current.get();
+	}
+
+	/**
+	 * Close the map, and open the map that was open before it.
+	 */
+	@Override
+	public void close() {
+		if (current.get() != this) {
+			logger.warn("Closing a identity map that is not the current map of the thread.");
+			return;
+		}
+		if (this.previous != null) {
+			current.set(this.previous);
+		} else {
+			current.remove();
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Identity map closed with " + this.objects.size() + " objects and " + this.hits + " hits.");
+		}
+		this.objects.clear();
+	}
+
+	/**
+	 * @return the key of a object.
+	 */
+	public static String key(final Class<?> clazz, final String id) {
+		return clazz.getName() + ":" + id;
+	}
+
+	/**
+	 * @return the top concrete class the class extends that is {@link Retrievable}, or the class itself.
+	 */
+	private static Class<?> getRoot(final Class<?> clazz) {
+		Class<?> result = roots.get(clazz);
+		if (result == null) {
+			result = clazz;
+			for (Class<?> parent = clazz.getSuperclass(); parent != null && Retrievable.class.isAssignableFrom(parent); 
+					parent = parent.getSuperclass()) {
+				if (!Modifier.isAbstract(parent.getModifiers())) {
+					result = parent;
+				}
+			}
+			roots.putIfAbsent(clazz, result);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the key a object is kept with in the map. Objects of a subclass is kept as {@link #getRoot(Class)}.
+	 */
+	private static String identityKey(final Class<?> clazz, final String id) {
+		return IdentityMap.key(IdentityMap.getRoot(clazz), id);
+	}
+
+	/**
+	 * @return the object with the class and ID or null if it is not read. A object of a subclass is found by the 
+	 * superclass.
+	 */
+	@Nullable
+	public <E extends Retrievable> E get(final Class<E> clazz, final int id) {
+		Retrievable known = this.objects.get(IdentityMap.identityKey(clazz, String.valueOf(id)));
+		if (!clazz.isInstance(known)) {
+			return null;
+		}
+		this.hits++;
+		return clazz.cast(known);
+	}
+
+	/**
+	 * Get the instance of a object that is read. If a object with the same class and ID is read before, that
+	 * object is returned. Else the object is kept and returned. A object that is read before as a superclass is 
+	 * replaced by the object of the subclass.
+	 *
+	 * @param e the object that is read.
+	 * @return the instance to use.
+	 */
+	@SuppressWarnings("unchecked")
+	public <E extends Retrievable> E register(final E e) {
+		if (e == null || e.getID() == null) {
+			return e;
+		}
+		String key = IdentityMap.identityKey(e.getClass(), e.getID());
+		Retrievable known = this.objects.get(key);
+		if (e.getClass().isInstance(known)) {
+			this.hits++;
+			return (E) known;
+		}
+		this.objects.put(key, e);
+		return e;
+	}
+
+	/**
+	 * Keep the object. A object with the same class and ID is replaced.
+	 */
+	public void put(final Retrievable e) {
+		if (e != null && e.getID() != null) {
+			this.objects.put(IdentityMap.identityKey(e.getClass(), e.getID()), e);
+		}
+	}
+
+	/**
+	 * Remove the object with the class and ID.
+	 */
+	public void remove(final Class<?> clazz, final int id) {
+		this.objects.remove(IdentityMap.identityKey(clazz, String.valueOf(id)));
+	}
+
+	@Override
+	@Nullable
+	public Retrievable get(final String key) {
+		Retrievable result = this.objects.get(key);
+		if (result != null) {
+			this.hits++;
+		}
+		return result;
+	}
+
+	@Override
+	public boolean put(final String key, final Retrievable t) {
+		return this.objects.put(key, t) == null;
+	}
+
+	@Override
+	public boolean purge(final String key) {
+		return this.objects.remove(key) != null;
+	}
+
+	@Override
+	public void clear() {
+		this.objects.clear();
+	}
+
+	/**
+	 * @return number of objects in the map.
+	 */
+	public int size() {
+		return this.objects.size();
+	}
+}
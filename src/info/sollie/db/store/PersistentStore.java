@@ -3,6 +3,8 @@ package info.sollie.db.store;
 import java.util.List;
 
 import info.sollie.db.annotations.ForeignKey;
+import info.sollie.db.interfaces.CheckpointStore;
+import info.sollie.db.interfaces.ChunkProcessor;
 import info.sollie.db.interfaces.Retrievable;
 import info.sollie.db.interfaces.Writeable;
 
@@ -64,12 +66,33 @@ public interface PersistentStore {
 	public <E extends Writeable> void storeObject(E e);
 	
 	/**
-	 * Stores multiple object to the persistent store. 
+	 * Stores multiple object to the persistent store in one transaction, with 
+	 * {@link PersistentStores#DEFAULT_BATCH_SIZE} objects in every round-trip.
 	 * 
 	 * @param <E> that implements writable.
 	 * @param e a list of writable objects.
 	 */
 	public <E extends Writeable> void storeObjects(List<E> e);
+
+	/**
+	 * Stores multiple object to the persistent store in one transaction. The id of new objects is set.
+	 * 
+	 * @param <E> that implements writable.
+	 * @param e a list of writable objects.
+	 * @param batchSize number of objects in every round-trip.
+	 */
+	public <E extends Writeable> void storeObjects(List<E> e, int batchSize);
+
+	/**
+	 * Stores and deletes multiple object in one transaction. The objects is written in the order of the lists, and
+	 * the objects to delete after the objects to store.
+	 * 
+	 * @param <E> that implements writable.
+	 * @param store objects to insert or update.
+	 * @param delete objects to delete.
+	 * @param batchSize number of objects in every round-trip.
+	 */
+	public <E extends Writeable> void storeObjects(List<E> store, List<E> delete, int batchSize);
 	
 	/**
 	 * Delete object from the persistent store. 
@@ -108,4 +131,34 @@ public interface PersistentStore {
 	 * @param ordering true for asc, false for desc
 	 */
 	public <E extends Retrievable> List<E> getObjects(Class<E> clazz, boolean ordering, int ...IDs);
+
+	/**
+	 * Process every object of a class one chunk at a time. Only one chunk is in memory at a time. Complex
+	 * objects is not followed.
+	 * 
+	 * @param <E> that implements Retrievable.
+	 * @param clazz to be processed.
+	 * @param chunkSize max number of objects in a chunk.
+	 * @param processor that is called for every chunk.
+	 * @return number of objects processed.
+	 */
+	public <E extends Retrievable> long processInChunks(Class<E> clazz, int chunkSize, ChunkProcessor<? super E> processor);
+
+	/**
+	 * Process every object of a class one chunk at a time. The table is read in primary key order with
+	 * WHERE id &gt; last id, so it does not matter how large the table is. After every chunk the last id is
+	 * saved as a checkpoint. If the job fails it continues after the checkpoint the next time it is run. When
+	 * every chunk is processed the checkpoint is cleared.
+	 * 
+	 * @param <E> that implements Retrievable.
+	 * @param clazz to be processed.
+	 * @param chunkSize max number of objects in a chunk.
+	 * @param follow complex objects as {@link ForeignKey}, {@link OneToMany} and {@link ManyToMany} 
+	 * @param job name of the checkpoint.
+	 * @param checkpoints where the checkpoint is kept.
+	 * @param processor that is called for every chunk.
+	 * @return number of objects processed in this run.
+	 */
+	public <E extends Retrievable> long processInChunks(Class<E> clazz, int chunkSize, boolean follow, String job,
+			CheckpointStore checkpoints, ChunkProcessor<? super E> processor);
 }
@@ -1,20 +1,31 @@
 package info.sollie.db.store;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 
 import info.sollie.db.DatabaseTools;
 import info.sollie.db.Nullable;
-import info.sollie.db.annotations.ManyToMany;
+import info.sollie.db.Persistence;
+import info.sollie.db.errors.SQLError;
+import info.sollie.db.handlers.AnnotationObjectListHandler;
+import info.sollie.db.interfaces.CheckpointStore;
+import info.sollie.db.interfaces.ChunkProcessor;
 import info.sollie.db.interfaces.DatabaseTool;
 import info.sollie.db.interfaces.Retrievable;
 import info.sollie.db.interfaces.Writeable;
+import info.sollie.db.mapping.Accessors;
+import info.sollie.db.mapping.GeneratedMapping;
+import info.sollie.db.mapping.GeneratedMappings;
+import info.sollie.db.mssql.IDAllocator;
 import info.sollie.db.mssql.SqlGenerator;
+import info.sollie.db.mssql.WriteBatch;
+import info.sollie.db.mssql.WriteTemplate;
 
 import org.apache.log4j.Logger;
 
@@ -22,6 +33,9 @@ import org.apache.log4j.Logger;
 public class PersistentStores {
 	
 	public static final PersistentStore PS = new MssqlStore();
+
+	/** Number of objects in every round-trip of {@link PersistentStore#storeObjects(List)}. */
+	public static final int DEFAULT_BATCH_SIZE = 500;
 	
 	/**
 	 * Get the Mssql persistent store. 
@@ -56,7 +70,7 @@ public class PersistentStores {
 			}
 			if (id < 0) {
 				try {
-					return clazz.newInstance();
+					return Accessors.newInstance(clazz);
 				} catch (InstantiationException e) {
 					// Don't care.
 				} catch (IllegalAccessException e) {
@@ -77,6 +91,11 @@ public class PersistentStores {
 			if (logger.isDebugEnabled()) {
 				logger.debug("Trying to get object with ID: " + e.getID());
 			}
+			GeneratedMapping<?> mapping = GeneratedMappings.get(e.getClass());
+			if (mapping != null) {
+				mssqlTool.setObject(mapping.getSelectSql(), e, follow, Integer.valueOf(e.getID()));
+				return e;
+			}
 			String sql = SqlGenerator.getRetrivable((Retrievable) e);
 			if (logger.isDebugEnabled()) {
 				logger.debug("Trying to get object with SQL: " + sql);
@@ -87,61 +106,140 @@ public class PersistentStores {
 
 		/**
 		 * Writes object to the Mssql database. It will store the object to the database, but not
-		 * objects that references to this object.
+		 * objects that references to this object. The object is written with parameters, with the SQL
+		 * of the generated mapping of the class or a cached {@link WriteTemplate}. A object with ManyToMany 
+		 * relations is written with {@link #storeObjects(List, int)}, so the relations is written in the same
+		 * transaction.
 		 */
 		@Override
+		@SuppressWarnings("unchecked")
 		public final <E extends Writeable> void storeObject(final E e) {
-			if (e != null) {
-				String sql = SqlGenerator.writeSql(e);
-				mssqlTool.storeObject(sql, e);
-				try {
-					this.storeManyToManyRelation(e);
-				} catch (InstantiationException e1) {
-					logger.error("Cannot create a instance of the ManyToMany relation object", e1);
-				} catch (IllegalAccessException e1) {
-					logger.error("Cannot accesss the field to the ManyToMany relation object", e1);
+			UnitOfWork unitOfWork = UnitOfWork.current();
+			if (e != null && unitOfWork != null) {
+				unitOfWork.register(e);
+			} else if (e != null && SqlGenerator.hasManyToMany(e.getClass())) {
+				this.storeObjects(Collections.singletonList(e), DEFAULT_BATCH_SIZE);
+			} else if (e != null) {
+				IDAllocator.assign(e);
+				GeneratedMapping<E> mapping = (GeneratedMapping<E>) GeneratedMappings.get(e.getClass());
+				Object[] snapshot = e instanceof Persistence ? ((Persistence<?>) e).getSnapshot() : null;
+				if (snapshot != null && !SqlGenerator.isNew(e)) {
+					WriteTemplate template = SqlGenerator.getDirtyTemplate(e, snapshot);
+					if (template == null) {
+						if (logger.isDebugEnabled()) {
+							logger.debug(e.getClass().getSimpleName() + " " + e.getID() + " is not changed. Nothing to store.");
+						}
+					} else {
+						mssqlTool.storeObject(template.getSql(), e, template);
+					}
+				} else if (mapping != null && !IDAllocator.isAllocated(e.getClass())) {
+					if (SqlGenerator.isNew(e)) {
+						mssqlTool.storeObject(mapping.getInsertSql(), e, mapping.getInsertBinder());
+					} else {
+						mssqlTool.storeObject(mapping.getUpdateSql(), e, mapping.getUpdateBinder());
+					}
+				} else {
+					WriteTemplate template = SqlGenerator.getWriteTemplate(e);
+					mssqlTool.storeObject(template.getSql(), e, template);
 				}
+				this.kept(e);
 			} else {
 				if (logger.isDebugEnabled()) {
 					logger.debug("Cannot store object. Object to store is null.");
 				}
 			}
 		}
-		
-		public final <E extends Writeable> void storeManyToManyRelation(final E e) throws InstantiationException, IllegalAccessException {
-			for (Field field : e.getClass().getDeclaredFields()) {
-				field.setAccessible(true);
-				if (field.getType().equals(List.class)) {
-					for (Annotation annotation: field.getAnnotations()) {
-						if (annotation instanceof ManyToMany) {
-							ManyToMany manyToMany = (ManyToMany) annotation;
-							Type type = field.getGenericType();
-							if (type instanceof ParameterizedType) {
-								ParameterizedType pType = (ParameterizedType) type;
-								for (Type clazz : pType.getActualTypeArguments()) {
-									if (clazz instanceof Class) {
-										Retrievable relationObject = (Retrievable) ((Class<Retrievable>) clazz).newInstance();
-										String sql = SqlGenerator.getManyToManyWriteSQL(e, field, manyToMany, relationObject);
-										if (sql.length() > 0 ) {
-											String delteSql = SqlGenerator.getManyToManyDeleteRefSQL(e, field, manyToMany, relationObject);
-											//TODO:Sm.DB.write(delteSql);
-											//TOD0:Sm.DB.write(sql);
-										}
-									}
-								}
-							}
-						}
-					}
-				}
+
+		/**
+		 * Mark the object as clean and keep it in the identity map.
+		 */
+		private <E extends Writeable> void kept(final E e) {
+			if (e instanceof Persistence) {
+				((Persistence<?>) e).markClean();
+			}
+			IdentityMap identities = IdentityMap.current();
+			if (identities != null && e instanceof Retrievable) {
+				identities.put((Retrievable) e);
 			}
 		}
 
+		@Override
+		public final <E extends Writeable> void storeObjects(final List<E> e) {
+			this.storeObjects(e, DEFAULT_BATCH_SIZE);
+		}
+
+		@Override
+		public final <E extends Writeable> void storeObjects(final List<E> e, final int batchSize) {
+			this.storeObjects(e, Collections.<E>emptyList(), batchSize);
+		}
+
 		/**
-		 * Not implemented yet. Should store a lot of objects.
+		 * Writes the objects to the Mssql database with one connection in one transaction. The objects is grouped by 
+		 * class for inserts and deletes and by class and UPDATE for updates, and every group is written in batches. A object
+		 * that is not changed since it was read is not written. The ManyToMany relations of the stored objects is 
+		 * written in the same transaction, after the objects, also for a object that is not changed.
 		 */
 		@Override
-		@Deprecated
-		public final <E extends Writeable> void storeObjects(List<E> e) {
+		public final <E extends Writeable> void storeObjects(final List<E> store, final List<E> delete, final int batchSize) {
+			List<WriteBatch<E>> batches = WriteBatch.group(store == null ? Collections.<E>emptyList() : store);
+			int written = batches.size();
+			if (store != null) {
+				Map<Class<?>, List<E>> relations = new LinkedHashMap<Class<?>, List<E>>();
+				for (E object : store) {
+					if (object == null) {
+						continue;
+					}
+					if (!relations.containsKey(object.getClass())) {
+						relations.put(object.getClass(), SqlGenerator.hasManyToMany(object.getClass()) ? new ArrayList<E>() : null);
+					}
+					List<E> group = relations.get(object.getClass());
+					if (group != null) {
+						group.add(object);
+					}
+				}
+				for (Map.Entry<Class<?>, List<E>> entry : relations.entrySet()) {
+					if (entry.getValue() != null) {
+						batches.add(WriteBatch.relations(entry.getKey(), entry.getValue()));
+					}
+				}
+			}
+			int related = batches.size();
+			if (delete != null && !delete.isEmpty()) {
+				Map<Class<?>, List<E>> deletes = new LinkedHashMap<Class<?>, List<E>>();
+				for (E object : delete) {
+					if (object != null && !SqlGenerator.isNew(object)) {
+						List<E> group = deletes.get(object.getClass());
+						if (group == null) {
+							group = new ArrayList<E>();
+							deletes.put(object.getClass(), group);
+						}
+						group.add(object);
+					}
+				}
+				for (Map.Entry<Class<?>, List<E>> entry : deletes.entrySet()) {
+					batches.add(WriteBatch.deletes(entry.getKey(), entry.getValue()));
+				}
+			}
+			if (batches.isEmpty()) {
+				return;
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Storing objects in " + batches.size() + " batches.");
+			}
+			IdentityMap identities = IdentityMap.current();
+			mssqlTool.storeObjects(batches, batchSize);
+			for (int i = 0; i < batches.size(); i++) {
+				if (i >= written && i < related) {
+					continue;
+				}
+				for (E object : batches.get(i).getObjects()) {
+					if (i < written) {
+						this.kept(object);
+					} else if (identities != null) {
+						identities.remove(object.getClass(), Integer.parseInt(object.getID()));
+					}
+				}
+			}
 		}
 
 		@Override
@@ -166,6 +264,11 @@ public class PersistentStores {
 
 		@Override
 		public <E extends Writeable> void deleteObject(E e) {
+			UnitOfWork unitOfWork = UnitOfWork.current();
+			if (unitOfWork != null) {
+				unitOfWork.registerDeleted(e);
+				return;
+			}
 			this.deleteObject(e.getID(), e.getClass());
 		}
 
@@ -190,10 +293,78 @@ public class PersistentStores {
 			return this.mssqlTool.getObjects(resultSet, clazz, true);
 		}
 
+		@Override
+		public <E extends Retrievable> long processInChunks(final Class<E> clazz, final int chunkSize,
+				final ChunkProcessor<? super E> processor) {
+			return this.processInChunks(clazz, chunkSize, false, clazz.getName(), CheckpointStores.getMemoryStore(), processor);
+		}
+
+		@Override
+		public <E extends Retrievable> long processInChunks(final Class<E> clazz, final int chunkSize, final boolean follow,
+				final String job, final CheckpointStore checkpoints, final ChunkProcessor<? super E> processor) {
+			if (clazz == null || processor == null || checkpoints == null) {
+				throw new IllegalArgumentException("Class, checkpoint store and processor cannot be null");
+			}
+			if (chunkSize <= 0) {
+				throw new IllegalArgumentException("Chunk size must be above 0. Was " + chunkSize);
+			}
+			String sql = SqlGenerator.getChunkSQL(clazz);
+			int lastId = checkpoints.getCheckpoint(job);
+			if (lastId > 0) {
+				logger.info("Continues " + job + " after id " + lastId);
+			}
+			long processed = 0;
+			while (true) {
+				List<E> chunk;
+				try {
+					chunk = this.mssqlTool.getQueryRunner().query(sql,
+							new AnnotationObjectListHandler<E>(clazz, follow, this.mssqlTool.getRetriver()),
+							Integer.valueOf(chunkSize), Integer.valueOf(lastId));
+				} catch (SQLException e) {
+					throw new SQLError(sql, "Could not read the chunk after id " + lastId + ". " + e.getMessage(), e);
+				}
+				if (chunk.isEmpty()) {
+					break;
+				}
+				processor.process(chunk);
+				lastId = Integer.parseInt(chunk.get(chunk.size() - 1).getID());
+				checkpoints.saveCheckpoint(job, lastId);
+				processed += chunk.size();
+				if (logger.isDebugEnabled()) {
+					logger.debug(job + " has processed " + processed + " objects. Last id " + lastId);
+				}
+				if (chunk.size() < chunkSize) {
+					break;
+				}
+			}
+			checkpoints.clearCheckpoint(job);
+			return processed;
+		}
+
 		@Override
 		public <E extends Writeable> void deleteObject(int id, Class<E> clazz) {
+			UnitOfWork unitOfWork = UnitOfWork.current();
+			if (unitOfWork != null) {
+				try {
+					E e = Accessors.newInstance(clazz);
+					e.setID(id);
+					unitOfWork.registerDeleted(e);
+				} catch (Exception e) {
+					logger.error("Cannot delete object. Something is wrong.", e);
+				}
+				return;
+			}
+			IdentityMap identities = IdentityMap.current();
+			if (identities != null) {
+				identities.remove(clazz, id);
+			}
 			try {
-				String sql = SqlGenerator.deleteStatement((Writeable) clazz.newInstance(), id);
+				GeneratedMapping<E> mapping = GeneratedMappings.get(clazz);
+				if (mapping != null) {
+					mssqlTool.write(mapping.getDeleteSql(), Integer.valueOf(id));
+					return;
+				}
+				String sql = SqlGenerator.deleteStatement((Writeable) Accessors.newInstance(clazz), id);
 				mssqlTool.write(sql);
 			} catch (Exception e ) {
 				logger.error("Cannot delete object. Something is wrong.", e);
@@ -0,0 +1,330 @@
+package info.sollie.db.store;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import info.sollie.db.Nullable;
+import info.sollie.db.errors.SQLError;
+import info.sollie.db.implementation.GenericDatabaseTool;
+import info.sollie.db.interfaces.Writeable;
+import info.sollie.db.mapping.ClassMappings;
+import info.sollie.db.mapping.ColumnType;
+import info.sollie.db.mapping.FieldMapping;
+import info.sollie.db.mssql.IDAllocator;
+import info.sollie.db.mssql.SqlGenerator;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Collects the objects that is stored and deleted in a unit of work, as a request, and writes them at commit with
+ * one connection in one transaction. While a unit of work is open on a thread, {@link PersistentStore#storeObject(Writeable)}
+ * and {@link PersistentStore#deleteObject(Writeable)} only registers the object, and a new object gets its id at
+ * commit, or at register if the class has {@link info.sollie.db.annotations.AllocatedID}.
+ *
+ * At commit the tables is written in the order of the foreign keys. A table is stored after the tables it references
+ * and deleted before them. The objects of a table is written in JDBC batches. References between new objects of the
+ * same table is not ordered.
+ *
+ * The unit of work belongs to the thread that opened it. While it commits, every connection taken from a
+ * {@link info.sollie.db.implementation.GenericTransactionalPoolManager} on the thread is the connection of the unit
+ * of work.
+ *
+ * <pre>
+ * UnitOfWork unitOfWork = UnitOfWork.begin();
+ * try {
+ *     order.save();
+ *     line.save();
+ *     unitOfWork.commit();
+ * } finally {
+ *     unitOfWork.close();
+ * }
+ * </pre>
+ *
+ * @author Andre Sollie
+ *
+ */
+public final class UnitOfWork implements Closeable {
+
+	private static final Logger logger = Logger.getLogger(UnitOfWork.class);
+
+	private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<UnitOfWork>();
+
+	/** Number of foreign keys from a class to the class that references nothing. Kept for the life of the JVM. */
+	private static final ConcurrentMap<Class<?>, Integer> depths = new ConcurrentHashMap<Class<?>, Integer>();
+
+	/** The unit of work that was open when this was opened. */
+	private final UnitOfWork previous;
+
+	private final PersistentStore store;
+
+	private final int batchSize;
+
+	/** Objects to store in the order they was registered. */
+	private final List<Writeable> stored = new ArrayList<Writeable>();
+
+	/** Objects to delete in the order they was registered. */
+	private final List<Writeable> deleted = new ArrayList<Writeable>();
+
+	private final Set<Writeable> registered = Collections.newSetFromMap(new IdentityHashMap<Writeable, Boolean>());
+
+	/** The connection of the commit. */
+	private Connection connection;
+
+	private boolean committing;
+
+	private boolean closed;
+
+	private UnitOfWork(final UnitOfWork previous, final PersistentStore store, final int batchSize) {
+		this.previous = previous;
+		this.store = store;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Open a new unit of work on the current thread, that writes {@link PersistentStores#DEFAULT_BATCH_SIZE} objects in
+	 * every round-trip.
+	 *
+	 * @return the new unit of work.
+	 */
+	public static UnitOfWork begin() {
+		return UnitOfWork.begin(PersistentStores.DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Open a new unit of work on the current thread. A unit of work that is open already is used again when the new
+	 * is closed.
+	 *
+	 * @param batchSize number of objects in every round-trip at commit.
+	 * @return the new unit of work.
+	 */
+	public static UnitOfWork begin(final int batchSize) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("Batch size must be above 0. Was " + batchSize);
+		}
+		UnitOfWork unitOfWork = new UnitOfWork(current.get(), PersistentStores.getMssqlStore(), batchSize);
+		current.set(unitOfWork);
+		return unitOfWork;
+	}
+
+	/**
+	 * @return the unit of work that is open on the current thread or null if none is open.
+	 */
+	@Nullable
+	public static UnitOfWork current() {
+		return current.get();
+	}
+
+	/**
+	 * @return true if the connection is the connection of the unit of work on the current thread. It is committed and
+	 * closed by the unit of work.
+	 */
+	public static boolean isBound(final Connection connection) {
+		UnitOfWork unitOfWork = current.get();
+		return connection != null && unitOfWork != null && unitOfWork.connection == connection;
+	}
+
+	/**
+	 * Register a object to insert or update at commit.
+	 */
+	public void register(final Writeable e) {
+		this.checkOpen();
+		if (e != null && this.registered.add(e)) {
+			IDAllocator.assign(e);
+			this.stored.add(e);
+		}
+	}
+
+	/**
+	 * Register a object to delete at commit. A object with the same class and id that is registered to store is not
+	 * stored. A new object is only forgotten.
+	 */
+	public void registerDeleted(final Writeable e) {
+		this.checkOpen();
+		if (e == null) {
+			return;
+		}
+		for (Iterator<Writeable> iterator = this.stored.iterator(); iterator.hasNext();) {
+			Writeable known = iterator.next();
+			if (known == e || (known.getClass() == e.getClass() && !SqlGenerator.isNew(known) && known.getID().equals(e.getID()))) {
+				iterator.remove();
+				this.registered.remove(known);
+			}
+		}
+		if (!SqlGenerator.isNew(e) && this.registered.add(e)) {
+			this.deleted.add(e);
+		}
+	}
+
+	/**
+	 * @return number of objects to store and delete.
+	 */
+	public int size() {
+		return this.stored.size() + this.deleted.size();
+	}
+
+	/**
+	 * @return false while the unit of work commits, so every connection on the thread is the connection of the unit
+	 * of work.
+	 */
+	public boolean autoCommit() {
+		return !this.committing;
+	}
+
+	/**
+	 * @return the connection of the commit or null if it has none.
+	 */
+	@Nullable
+	public Connection getConnection() {
+		return this.connection;
+	}
+
+	/**
+	 * Set the connection of the commit. It is set by the connection manager. The unit of work commits and closes it.
+	 */
+	public void setConnection(final Connection connection) {
+		this.connection = connection;
+	}
+
+	/**
+	 * Write every registered object in one transaction. The unit of work can be used again after a commit.
+	 *
+	 * @throws SQLError if the objects could not be written. Nothing is written, and the objects is still registered.
+	 */
+	public void commit() {
+		this.checkOpen();
+		if (current.get() != this) {
+			throw new IllegalStateException("Only the current unit of work of the thread can commit.");
+		}
+		if (this.stored.isEmpty() && this.deleted.isEmpty()) {
+			return;
+		}
+		List<Writeable> store = UnitOfWork.sort(this.stored, false);
+		List<Writeable> delete = UnitOfWork.sort(this.deleted, true);
+		this.committing = true;
+		try {
+			this.store.storeObjects(store, delete, this.batchSize);
+			if (this.connection != null) {
+				this.connection.commit();
+			}
+		} catch (SQLException e) {
+			GenericDatabaseTool.rollbackSilent(this.connection);
+			throw new SQLError("COMMIT", "Could not commit the unit of work. " + e.getMessage(), e);
+		} catch (RuntimeException e) {
+			GenericDatabaseTool.rollbackSilent(this.connection);
+			throw e;
+		} finally {
+			this.committing = false;
+			this.release();
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Unit of work committed " + store.size() + " objects to store and " + delete.size() + " to delete.");
+		}
+		this.stored.clear();
+		this.deleted.clear();
+		this.registered.clear();
+	}
+
+	/**
+	 * Close the unit of work, and open the unit of work that was open before it. Objects that is not committed is not
+	 * written.
+	 */
+	@Override
+	public void close() {
+		if (this.closed) {
+			return;
+		}
+		if (current.get() != this) {
+			logger.warn("Closing a unit of work that is not the current unit of work of the thread.");
+			return;
+		}
+		this.closed = true;
+		if (this.previous != null) {
+			current.set(this.previous);
+		} else {
+			current.remove();
+		}
+		if (!this.stored.isEmpty() || !this.deleted.isEmpty()) {
+			logger.info("Unit of work closed without commit. " + this.size() + " objects is not written.");
+		}
+		this.stored.clear();
+		this.deleted.clear();
+		this.registered.clear();
+	}
+
+	private void checkOpen() {
+		if (this.closed) {
+			throw new IllegalStateException("The unit of work is closed.");
+		}
+	}
+
+	/**
+	 * Give the connection of the commit back to the pool.
+	 */
+	private void release() {
+		Connection bound = this.connection;
+		this.connection = null;
+		if (bound != null) {
+			try {
+				bound.setAutoCommit(true);
+			} catch (SQLException e) {
+				// Skip.
+			}
+			GenericDatabaseTool.closeConnectionSilent(bound);
+		}
+	}
+
+	/**
+	 * Sort objects by the depth of the class, and keep the order of objects with the same depth.
+	 *
+	 * @param objects to sort.
+	 * @param reverse true to put the classes that references other classes first.
+	 * @return the sorted objects.
+	 */
+	private static List<Writeable> sort(final List<Writeable> objects, final boolean reverse) {
+		List<Writeable> result = new ArrayList<Writeable>(objects);
+		Collections.sort(result, new Comparator<Writeable>() {
+			@Override
+			public int compare(final Writeable o1, final Writeable o2) {
+				int depth1 = UnitOfWork.getDepth(o1.getClass(), new HashSet<Class<?>>());
+				int depth2 = UnitOfWork.getDepth(o2.getClass(), new HashSet<Class<?>>());
+				return reverse ? depth2 - depth1 : depth1 - depth2;
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * @return the longest path of foreign keys from the class. 0 if it has no foreign keys.
+	 */
+	private static int getDepth(final Class<?> clazz, final Set<Class<?>> visiting) {
+		Integer known = depths.get(clazz);
+		if (known != null) {
+			return known.intValue();
+		}
+		if (!visiting.add(clazz)) {
+			logger.warn("The foreign keys of " + clazz.getSimpleName() + " is a cycle. The tables of the cycle is not ordered.");
+			return 0;
+		}
+		int result = 0;
+		for (FieldMapping field : ClassMappings.get(clazz).getFields()) {
+			Class<?> type = field.getField().getType();
+			if (field.getType() == ColumnType.FOREIGN_KEY && type != clazz) {
+				result = Math.max(result, UnitOfWork.getDepth(type, visiting) + 1);
+			}
+		}
+		visiting.remove(clazz);
+		depths.putIfAbsent(clazz, Integer.valueOf(result));
+		return result;
+	}
+}
@@ -0,0 +1,518 @@
+package info.sollie.db.store;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import info.sollie.db.interfaces.CheckpointStore;
+import info.sollie.db.interfaces.ChunkProcessor;
+import info.sollie.db.interfaces.Retrievable;
+import info.sollie.db.interfaces.Writeable;
+import info.sollie.db.mssql.SqlGenerator;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A store that writes objects on a background thread, for writes that can be lost, as audit rows, counters and
+ * activity logs. {@link #storeObject(Writeable)} puts the object in a bounded queue and returns. A object that is
+ * stored again before it is written is written once, with the values it has when it is written. The queue is
+ * written in batches with {@link PersistentStore#storeObjects(List, int)} when it has batch size objects, or max
+ * delay after the oldest object was queued.
+ *
+ * When the queue is full, the caller waits until the writer has taken a batch. A batch that fails is logged and
+ * lost. Deletes and reads go to the store behind at once, and a delete removes the queued write of the object.
+ * {@link #close()} writes the queue and stops the writer. Objects stored after close, or after the writer has
+ * stopped by a error, is written at once.
+ *
+ * <pre>
+ * WriteBehindStore audit = new WriteBehindStore(PersistentStores.getMssqlStore(), 10000, 500, 1, TimeUnit.SECONDS);
+ * audit.registerShutdownHook();
+ * audit.storeObject(entry);
+ * </pre>
+ *
+ * @author Andre Sollie
+ *
+ */
+public final class WriteBehindStore implements PersistentStore, Closeable {
+
+	private static final Logger logger = Logger.getLogger(WriteBehindStore.class);
+
+	private static final AtomicInteger threads = new AtomicInteger();
+
+	private final PersistentStore store;
+
+	private final int capacity;
+
+	private final int batchSize;
+
+	private final long maxDelay;
+
+	/** Queued writes by class and id, or by the object if it is new. Guarded by lock. */
+	private final Map<Object, Queued> queue = new LinkedHashMap<Object, Queued>();
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** Signalled when the writer has work. */
+	private final Condition work = this.lock.newCondition();
+
+	/** Signalled when the writer has taken a batch or written it. */
+	private final Condition taken = this.lock.newCondition();
+
+	private final Thread writer;
+
+	/** A batch is being written. Guarded by lock. */
+	private boolean writing;
+
+	/** Number of callers waiting for the queue to be written. Guarded by lock. */
+	private int flushing;
+
+	/** Guarded by lock. */
+	private boolean closed;
+
+	/** The writer has stopped. Guarded by lock. */
+	private boolean stopped;
+
+	private final AtomicLong written = new AtomicLong();
+
+	private final AtomicLong coalesced = new AtomicLong();
+
+	private final AtomicLong failed = new AtomicLong();
+
+	private final AtomicLong flushes = new AtomicLong();
+
+	private final AtomicLong lastLatency = new AtomicLong();
+
+	private final AtomicLong maxLatency = new AtomicLong();
+
+	/**
+	 * @param store that the objects is written to.
+	 * @param capacity max number of objects in the queue.
+	 * @param batchSize number of objects that is written together.
+	 * @param maxDelay from a object is queued until it is written.
+	 * @param unit of the max delay.
+	 */
+	public WriteBehindStore(final PersistentStore store, final int capacity, final int batchSize, final long maxDelay,
+			final TimeUnit unit) {
+		if (store == null) {
+			throw new IllegalArgumentException("Store cannot be null");
+		}
+		if (batchSize <= 0 || capacity < batchSize) {
+			throw new IllegalArgumentException("Batch size must be above 0 and capacity at least the batch size. Was "
+					+ batchSize + " and " + capacity);
+		}
+		this.store = store;
+		this.capacity = capacity;
+		this.batchSize = batchSize;
+		this.maxDelay = unit.toNanos(maxDelay);
+		this.writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				WriteBehindStore.this.write();
+			}
+		}, "write-behind-" + threads.incrementAndGet());
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Close the store when the JVM shuts down, so the queue is written.
+	 */
+	public void registerShutdownHook() {
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			@Override
+			public void run() {
+				WriteBehindStore.this.close();
+			}
+		}, this.writer.getName() + "-shutdown"));
+	}
+
+	@Override
+	public <E extends Writeable> void storeObject(final E e) {
+		if (e == null) {
+			return;
+		}
+		Object key = WriteBehindStore.key(e);
+		this.lock.lock();
+		try {
+			while (!this.closed && this.isRunning()) {
+				Queued queued = this.queue.get(key);
+				if (queued != null) {
+					queued.e = e;
+					this.coalesced.incrementAndGet();
+					return;
+				}
+				if (this.queue.size() < this.capacity) {
+					this.queue.put(key, new Queued(e, System.nanoTime()));
+					if (this.queue.size() == 1 || this.queue.size() >= this.batchSize) {
+						this.work.signal();
+					}
+					return;
+				}
+				try {
+					this.taken.await();
+				} catch (InterruptedException e1) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		} finally {
+			this.lock.unlock();
+		}
+		this.store.storeObject(e);
+	}
+
+	@Override
+	public <E extends Writeable> void storeObjects(final List<E> e) {
+		if (e == null) {
+			return;
+		}
+		for (E object : e) {
+			this.storeObject(object);
+		}
+	}
+
+	@Override
+	public <E extends Writeable> void storeObjects(final List<E> e, final int batchSize) {
+		this.storeObjects(e);
+	}
+
+	@Override
+	public <E extends Writeable> void storeObjects(final List<E> store, final List<E> delete, final int batchSize) {
+		this.storeObjects(store);
+		if (delete == null || delete.isEmpty()) {
+			return;
+		}
+		for (E object : delete) {
+			if (object != null) {
+				this.remove(object.getClass(), object.getID());
+			}
+		}
+		this.store.storeObjects(Collections.<E>emptyList(), delete, batchSize);
+	}
+
+	@Override
+	public <E extends Writeable> void deleteObject(final String id, final Class<E> clazz) {
+		this.remove(clazz, id);
+		this.store.deleteObject(id, clazz);
+	}
+
+	@Override
+	public <E extends Writeable> void deleteObject(final int id, final Class<E> clazz) {
+		this.remove(clazz, String.valueOf(id));
+		this.store.deleteObject(id, clazz);
+	}
+
+	@Override
+	public <E extends Writeable> void deleteObject(final E e) {
+		this.remove(e.getClass(), e.getID());
+		this.store.deleteObject(e);
+	}
+
+	@Override
+	public <E extends Retrievable> E getObject(final Class<E> clazz, final int id) {
+		return this.store.getObject(clazz, id);
+	}
+
+	@Override
+	public <E extends Retrievable> E getObject(final E e) {
+		return this.store.getObject(e);
+	}
+
+	@Override
+	public <E extends Retrievable> E getObject(final Class<E> clazz, final int id, final boolean follow) {
+		return this.store.getObject(clazz, id, follow);
+	}
+
+	@Override
+	public <E extends Retrievable> E getObject(final E e, final boolean follow) {
+		return this.store.getObject(e, follow);
+	}
+
+	@Override
+	public <E extends Retrievable> List<E> getObjects(final Class<E> clazz, final int... IDs) {
+		return this.store.getObjects(clazz, IDs);
+	}
+
+	@Override
+	public <E extends Retrievable> List<E> getObjects(final Class<E> clazz, final boolean ordering, final int... IDs) {
+		return this.store.getObjects(clazz, ordering, IDs);
+	}
+
+	@Override
+	public <E extends Retrievable> long processInChunks(final Class<E> clazz, final int chunkSize,
+			final ChunkProcessor<? super E> processor) {
+		return this.store.processInChunks(clazz, chunkSize, processor);
+	}
+
+	@Override
+	public <E extends Retrievable> long processInChunks(final Class<E> clazz, final int chunkSize, final boolean follow,
+			final String job, final CheckpointStore checkpoints, final ChunkProcessor<? super E> processor) {
+		return this.store.processInChunks(clazz, chunkSize, follow, job, checkpoints, processor);
+	}
+
+	/**
+	 * Write every queued object and wait until it is written.
+	 *
+	 * @throws InterruptedException if the thread is interrupted while it waits.
+	 */
+	public void flush() throws InterruptedException {
+		this.lock.lock();
+		try {
+			this.flushing++;
+			this.work.signal();
+			while ((!this.queue.isEmpty() || this.writing) && this.isRunning()) {
+				this.taken.await();
+			}
+		} finally {
+			this.flushing--;
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Write the queue and stop the writer. Objects stored after close is written at once.
+	 */
+	@Override
+	public void close() {
+		this.lock.lock();
+		try {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+			this.work.signal();
+			this.taken.signalAll();
+		} finally {
+			this.lock.unlock();
+		}
+		try {
+			this.writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.warn("Interrupted while the queue was written. " + this.getQueueDepth() + " objects is not written.");
+		}
+	}
+
+	/**
+	 * @return number of objects in the queue.
+	 */
+	public int getQueueDepth() {
+		this.lock.lock();
+		try {
+			return this.queue.size();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @return number of objects that is written.
+	 */
+	public long getWritten() {
+		return this.written.get();
+	}
+
+	/**
+	 * @return number of stores that was merged with a queued store of the same object.
+	 */
+	public long getCoalesced() {
+		return this.coalesced.get();
+	}
+
+	/**
+	 * @return number of objects in batches that failed.
+	 */
+	public long getFailed() {
+		return this.failed.get();
+	}
+
+	/**
+	 * @return number of batches that is written.
+	 */
+	public long getFlushes() {
+		return this.flushes.get();
+	}
+
+	/**
+	 * @return milliseconds from the oldest object of the last batch was queued until the batch was written.
+	 */
+	public long getLastFlushLatency() {
+		return TimeUnit.NANOSECONDS.toMillis(this.lastLatency.get());
+	}
+
+	/**
+	 * @return the highest {@link #getLastFlushLatency()}.
+	 */
+	public long getMaxFlushLatency() {
+		return TimeUnit.NANOSECONDS.toMillis(this.maxLatency.get());
+	}
+
+	/**
+	 * @return true if the writer takes batches. Called with the lock.
+	 */
+	private boolean isRunning() {
+		return !this.stopped && this.writer.isAlive();
+	}
+
+	private void remove(final Class<?> clazz, final String id) {
+		this.lock.lock();
+		try {
+			this.queue.remove(IdentityMap.key(clazz, id));
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * The loop of the writer. When it stops, the callers that wait is woken and writes at once.
+	 */
+	private void write() {
+		try {
+			this.takeBatches();
+		} finally {
+			this.lock.lock();
+			try {
+				this.stopped = true;
+				this.writing = false;
+				if (!this.closed) {
+					logger.error("The writer stopped. " + this.queue.size() + " queued objects is not written, and new "
+							+ "objects is written at once.");
+				}
+				this.taken.signalAll();
+			} finally {
+				this.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Takes a batch when the queue has batch size objects, the oldest object is max delay old, or the store is flushed
+	 * or closed.
+	 */
+	private void takeBatches() {
+		while (true) {
+			List<Queued> batch;
+			this.lock.lock();
+			try {
+				while (this.queue.isEmpty() && !this.closed) {
+					this.work.awaitUninterruptibly();
+				}
+				if (this.queue.isEmpty()) {
+					this.taken.signalAll();
+					return;
+				}
+				while (this.queue.size() < this.batchSize && !this.closed && this.flushing == 0) {
+					long left = this.queue.values().iterator().next().queued + this.maxDelay - System.nanoTime();
+					if (left <= 0) {
+						break;
+					}
+					try {
+						this.work.awaitNanos(left);
+					} catch (InterruptedException e) {
+						// Write the batch.
+						break;
+					}
+				}
+				batch = new ArrayList<Queued>(Math.min(this.batchSize, this.queue.size()));
+				for (Iterator<Queued> iterator = this.queue.values().iterator(); iterator.hasNext() && batch.size() < this.batchSize;) {
+					batch.add(iterator.next());
+					iterator.remove();
+				}
+				this.writing = true;
+				this.taken.signalAll();
+			} finally {
+				this.lock.unlock();
+			}
+			this.write(batch);
+			this.lock.lock();
+			try {
+				this.writing = false;
+				this.taken.signalAll();
+			} finally {
+				this.lock.unlock();
+			}
+		}
+	}
+
+	private void write(final List<Queued> batch) {
+		List<Writeable> objects = new ArrayList<Writeable>(batch.size());
+		long oldest = Long.MAX_VALUE;
+		for (Queued queued : batch) {
+			objects.add(queued.e);
+			oldest = Math.min(oldest, queued.queued);
+		}
+		try {
+			this.store.storeObjects(objects, this.batchSize);
+			this.written.addAndGet(objects.size());
+		} catch (RuntimeException e) {
+			this.failed.addAndGet(objects.size());
+			logger.error("Could not write " + objects.size() + " queued objects. They is lost.", e);
+		}
+		long latency = System.nanoTime() - oldest;
+		this.flushes.incrementAndGet();
+		this.lastLatency.set(latency);
+		long max = this.maxLatency.get();
+		while (latency > max && !this.maxLatency.compareAndSet(max, latency)) {
+			max = this.maxLatency.get();
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Wrote " + objects.size() + " queued objects in " + TimeUnit.NANOSECONDS.toMillis(latency) + " ms.");
+		}
+	}
+
+	/**
+	 * @return the class and id of a stored object, or the object if it is new.
+	 */
+	private static Object key(final Writeable e) {
+		if (SqlGenerator.isNew(e)) {
+			return new Identity(e);
+		}
+		return IdentityMap.key(e.getClass(), e.getID());
+	}
+
+	/**
+	 * A queued object and the time it was first queued.
+	 */
+	private static final class Queued {
+
+		private Writeable e;
+
+		private final long queued;
+
+		private Queued(final Writeable e, final long queued) {
+			this.e = e;
+			this.queued = queued;
+		}
+	}
+
+	/**
+	 * Key of a new object, that is equal only to the same instance.
+	 */
+	private static final class Identity {
+
+		private final Object e;
+
+		private Identity(final Object e) {
+			this.e = e;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			return obj instanceof Identity && ((Identity) obj).e == this.e;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this.e);
+		}
+	}
+}